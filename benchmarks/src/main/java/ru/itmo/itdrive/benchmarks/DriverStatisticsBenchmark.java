@@ -0,0 +1,93 @@
+package ru.itmo.itdrive.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.itmo.itdrive.dto.DriverStatisticsResponse;
+import ru.itmo.itdrive.repository.DriverRepository;
+import ru.itmo.itdrive.repository.StatisticsRepository;
+import ru.itmo.itdrive.repository.UserRepository;
+import ru.itmo.itdrive.service.DriverService;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// DriverService.getDriverStatistics: агрегация выполняется одним SQL запросом, поэтому здесь
+// измеряется только прикладная часть (разбор строки результата и сборка ответа).
+// Стоимость самого запроса измеряется нагрузочным тестом на PostgreSQL
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverStatisticsBenchmark {
+
+    private DriverService driverService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Строка результата в том виде, в котором ее возвращает драйвер PostgreSQL
+        Object[] row = {new BigDecimal("4.87"), 120, 134L, 120L, 14L, 311L, new BigDecimal("48250.00")};
+        StatisticsRepository statisticsRepository = new StatisticsRepository() {
+            @Override
+            public DriverStatisticsResult getDriverStatistics(Long driverId) {
+                return new DriverStatisticsResult() {
+                    @Override
+                    public Double getAverageRating() {
+                        return ((Number) row[0]).doubleValue();
+                    }
+
+                    @Override
+                    public Integer getTotalTripsCount() {
+                        return ((Number) row[1]).intValue();
+                    }
+
+                    @Override
+                    public Long getTotalTrips() {
+                        return ((Number) row[2]).longValue();
+                    }
+
+                    @Override
+                    public Long getCompletedTrips() {
+                        return ((Number) row[3]).longValue();
+                    }
+
+                    @Override
+                    public Long getCancelledTrips() {
+                        return ((Number) row[4]).longValue();
+                    }
+
+                    @Override
+                    public Long getTotalPassengers() {
+                        return ((Number) row[5]).longValue();
+                    }
+
+                    @Override
+                    public BigDecimal getTotalEarnings() {
+                        return (BigDecimal) row[6];
+                    }
+                };
+            }
+        };
+        driverService = new DriverService(
+                Fixtures.repository(DriverRepository.class, Map.of()),
+                Fixtures.repository(UserRepository.class, Map.of()),
+                statisticsRepository
+        );
+    }
+
+    @Benchmark
+    public DriverStatisticsResponse getDriverStatistics() {
+        return driverService.getDriverStatistics(7L);
+    }
+}
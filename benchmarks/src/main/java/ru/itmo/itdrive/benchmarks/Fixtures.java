@@ -0,0 +1,91 @@
+package ru.itmo.itdrive.benchmarks;
+
+import ru.itmo.itdrive.model.Booking;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.model.User;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Синтетические данные и заглушки репозиториев: бенчмарки не обращаются к БД
+final class Fixtures {
+
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 9, 1, 7, 0);
+
+    private Fixtures() {
+    }
+
+    static List<Building> buildings(int count) {
+        List<Building> buildings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buildings.add(new Building((long) i + 1, "Корпус " + (i + 1), "Санкт-Петербург, адрес " + (i + 1),
+                    59.85 + (i % 10) * 0.012, 30.20 + (i / 10) * 0.02));
+        }
+        return buildings;
+    }
+
+    static List<User> drivers(int count) {
+        List<User> drivers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            drivers.add(user((long) i + 1, User.UserRole.DRIVER));
+        }
+        return drivers;
+    }
+
+    static User user(Long id, User.UserRole role) {
+        LocalDateTime created = BASE_TIME.minusDays(30);
+        return new User(id, "user" + id + "@itmo.ru",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z4u3VKcEqLJ6Kf3H8G9p0s1a",
+                "Имя" + id, "Фамилия" + id, role, "+7999" + String.format("%07d", id),
+                4.5 + (id % 5) * 0.1, (int) (id % 50), false, created, created);
+    }
+
+    // Поездки распределены по маршрутам и по времени отправления в пределах двух недель
+    static List<Trip> scheduledTrips(int count, List<Building> buildings, List<User> drivers, long seed) {
+        Random random = new Random(seed);
+        List<Trip> trips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Building from = buildings.get(random.nextInt(buildings.size()));
+            Building to = buildings.get(random.nextInt(buildings.size()));
+            if (from == to) {
+                to = buildings.get((buildings.indexOf(from) + 1) % buildings.size());
+            }
+            LocalDateTime departure = BASE_TIME.plusMinutes(random.nextInt(14 * 24 * 60));
+            int seats = 1 + random.nextInt(4);
+            trips.add(new Trip((long) i + 1, drivers.get(random.nextInt(drivers.size())), from, to, departure,
+                    null, null, seats, seats, BigDecimal.valueOf(50 + random.nextInt(250)),
+                    Trip.TripStatus.SCHEDULED, i % 3 == 0 ? "У главного входа" : null,
+                    departure.minusDays(1), departure.minusDays(1), null));
+        }
+        return trips;
+    }
+
+    static Booking booking(Long id, Trip trip, User passenger) {
+        return new Booking(id, trip, passenger, Booking.BookingStatus.CONFIRMED, trip.getPrice(),
+                Booking.PaymentMethod.CARD, 1, trip.getCreatedAt(), trip.getCreatedAt(), null);
+    }
+
+    // Заглушка Spring Data репозитория: метод возвращает заранее заданное значение по имени
+    @SuppressWarnings("unchecked")
+    static <T> T repository(Class<T> type, Map<String, Object> results) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            if (!results.containsKey(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return results.get(method.getName());
+        });
+    }
+}
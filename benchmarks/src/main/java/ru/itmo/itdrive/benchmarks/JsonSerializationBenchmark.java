@@ -0,0 +1,102 @@
+package ru.itmo.itdrive.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.itmo.itdrive.dto.BookingResponse;
+import ru.itmo.itdrive.dto.TripResponse;
+import ru.itmo.itdrive.dto.UserSummary;
+import ru.itmo.itdrive.model.Booking;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.model.User;
+import ru.itmo.itdrive.repository.BuildingRepository;
+import ru.itmo.itdrive.service.BuildingCatalog;
+import ru.itmo.itdrive.service.ResponseMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация графов Trip/Booking (как отдавались раньше) и DTO ответов API
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Trip> tripEntities;
+    private List<Booking> bookingEntities;
+    private List<TripResponse> tripResponses;
+    private List<BookingResponse> bookingResponses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Та же конфигурация дат, что у Spring Boot по умолчанию
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        List<Building> buildings = Fixtures.buildings(20);
+        tripEntities = Fixtures.scheduledTrips(size, buildings, Fixtures.drivers(10), 7);
+        ResponseMapper responseMapper = new ResponseMapper(new BuildingCatalog(
+                Fixtures.repository(BuildingRepository.class, Map.of("findAll", buildings))));
+
+        bookingEntities = new ArrayList<>(size);
+        tripResponses = new ArrayList<>(size);
+        bookingResponses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Trip trip = tripEntities.get(i);
+            User passenger = Fixtures.user(1000L + i, User.UserRole.PASSENGER);
+            Booking booking = Fixtures.booking((long) i + 1, trip, passenger);
+            TripResponse tripResponse = responseMapper.toTripResponse(trip);
+            bookingEntities.add(booking);
+            tripResponses.add(tripResponse);
+            bookingResponses.add(new BookingResponse(booking.getId(), tripResponse,
+                    new UserSummary(passenger.getId(), passenger.getFirstName(),
+                            passenger.getLastName(), passenger.getPhoneNumber(), passenger.getRating()),
+                    booking.getStatus(), booking.getPrice(), booking.getPaymentMethod(), booking.getSeats(),
+                    booking.getCreatedAt(), booking.getHoldExpiresAt()));
+        }
+    }
+
+    @Benchmark
+    public byte[] tripEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tripEntities);
+    }
+
+    @Benchmark
+    public byte[] tripResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tripResponses);
+    }
+
+    @Benchmark
+    public byte[] bookingEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bookingEntities);
+    }
+
+    @Benchmark
+    public byte[] bookingResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bookingResponses);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.itmo.itdrive.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.itmo.itdrive.dto.TripResponse;
+import ru.itmo.itdrive.dto.TripSearchRequest;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.model.User;
+import ru.itmo.itdrive.repository.BookingRepository;
+import ru.itmo.itdrive.repository.BuildingRepository;
+import ru.itmo.itdrive.repository.StatisticsRepository;
+import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.service.BuildingCatalog;
+import ru.itmo.itdrive.service.BuildingSpatialIndex;
+import ru.itmo.itdrive.service.PopularRouteTracker;
+import ru.itmo.itdrive.service.ResponseMapper;
+import ru.itmo.itdrive.service.TripLifecycleScheduler;
+import ru.itmo.itdrive.service.TripSearchIndex;
+import ru.itmo.itdrive.service.TripService;
+import ru.itmo.itdrive.service.UserEventInbox;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// TripService.searchTrips поверх индекса запланированных поездок в памяти
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripSearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int tripCount;
+
+    private TripService tripService;
+    private TripSearchRequest routeInWindow;
+    private TripSearchRequest windowOnly;
+    private TripSearchRequest priceOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Building> buildings = Fixtures.buildings(20);
+        List<User> drivers = Fixtures.drivers(500);
+        List<Trip> trips = Fixtures.scheduledTrips(tripCount, buildings, drivers, 42);
+
+        TripRepository tripRepository = Fixtures.repository(TripRepository.class, Map.of("findByStatus", trips));
+        BuildingRepository buildingRepository = Fixtures.repository(BuildingRepository.class, Map.of("findAll", buildings));
+        BuildingCatalog buildingCatalog = new BuildingCatalog(buildingRepository);
+        TripSearchIndex tripSearchIndex = new TripSearchIndex(tripRepository);
+        tripSearchIndex.rebuild();
+
+        PopularRouteTracker popularRouteTracker = new PopularRouteTracker(new StatisticsRepository(), 1000);
+        BookingRepository bookingRepository = Fixtures.repository(BookingRepository.class, Map.of());
+        UserEventInbox userEventInbox = new UserEventInbox(new SimpleMeterRegistry(), 100, 4, 10000, 60);
+        // Поиск не обращается к планировщику, он создается выключенным
+        TripLifecycleScheduler tripLifecycleScheduler = new TripLifecycleScheduler(
+                tripRepository, bookingRepository, tripSearchIndex,
+                popularRouteTracker, userEventInbox, new TransactionTemplate(),
+                new SimpleMeterRegistry(), false, 1000, 30, 6, 500);
+
+        tripService = new TripService(
+                tripRepository,
+                buildingRepository,
+                tripSearchIndex,
+                popularRouteTracker,
+                new ResponseMapper(buildingCatalog),
+                new BuildingSpatialIndex(buildingCatalog),
+                tripLifecycleScheduler,
+                bookingRepository,
+                userEventInbox
+        );
+
+        routeInWindow = new TripSearchRequest();
+        routeInWindow.setFromBuildingId(1L);
+        routeInWindow.setToBuildingId(2L);
+        routeInWindow.setDepartureTimeFrom(Fixtures.BASE_TIME.plusDays(3));
+        routeInWindow.setDepartureTimeTo(Fixtures.BASE_TIME.plusDays(3).plusHours(2));
+
+        windowOnly = new TripSearchRequest();
+        windowOnly.setDepartureTimeFrom(Fixtures.BASE_TIME.plusDays(5));
+        windowOnly.setDepartureTimeTo(Fixtures.BASE_TIME.plusDays(5).plusMinutes(30));
+
+        priceOnly = new TripSearchRequest();
+        priceOnly.setFromBuildingId(3L);
+        priceOnly.setMaxPrice(80);
+    }
+
+    @Benchmark
+    public List<TripResponse> routeAndDepartureWindow() {
+        return tripService.searchTrips(routeInWindow);
+    }
+
+    @Benchmark
+    public List<TripResponse> departureWindowOnly() {
+        return tripService.searchTrips(windowOnly);
+    }
+
+    @Benchmark
+    public List<TripResponse> originAndMaxPrice() {
+        return tripService.searchTrips(priceOnly);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.itmo.itdrive.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+// HTTP клиент к REST API, засекающий время каждого запроса.
+// Эндпоинт в отчете - шаблон пути ("GET /api/trips/driver/{id}"), а не конкретный URL.
+public class ApiClient {
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Duration timeout;
+    private volatile Metrics metrics = new Metrics();
+
+    public ApiClient(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(Executors.newCachedThreadPool(r -> {
+                    Thread thread = new Thread(r, "loadtest-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    public void useMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Session login(String email, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+                request("/api/auth/login", null)
+                        .POST(HttpRequest.BodyPublishers.ofString(json(Map.of("email", email, "password", password))))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Не удалось войти под " + email + ": HTTP " + response.statusCode());
+        }
+        JsonNode body = objectMapper.readTree(response.body());
+        return new Session(email, body.get("userId").asLong(), body.get("token").asText());
+    }
+
+    public JsonNode get(String endpoint, String path, String token) {
+        return send(endpoint, request(path, token).GET().build(), Set.of());
+    }
+
+    public JsonNode post(String endpoint, String path, String token, Object body, Set<Integer> rejectionStatuses) {
+        return send(endpoint,
+                request(path, token).POST(HttpRequest.BodyPublishers.ofString(json(body))).build(),
+                rejectionStatuses);
+    }
+
+    public JsonNode delete(String endpoint, String path, String token, Set<Integer> rejectionStatuses) {
+        return send(endpoint, request(path, token).DELETE().build(), rejectionStatuses);
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request, Set<Integer> rejectionStatuses) {
+        long start = System.nanoTime();
+        Metrics.Outcome outcome = Metrics.Outcome.ERROR;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                outcome = Metrics.Outcome.OK;
+                return response.body().isEmpty() ? null : objectMapper.readTree(response.body());
+            }
+            if (rejectionStatuses.contains(status)) {
+                outcome = Metrics.Outcome.REJECTED;
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            metrics.record(endpoint, System.nanoTime() - start, outcome);
+        }
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    public record Session(String email, long userId, String token) {
+    }
+
+    private String json(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
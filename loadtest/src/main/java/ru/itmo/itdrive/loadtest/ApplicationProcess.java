@@ -0,0 +1,101 @@
+package ru.itmo.itdrive.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Собранный jar приложения, запущенный дочерним процессом против подготовленной БД
+public class ApplicationProcess implements AutoCloseable {
+
+    private final Process process;
+    private final String baseUrl;
+
+    private ApplicationProcess(Process process, String baseUrl) {
+        this.process = process;
+        this.baseUrl = baseUrl;
+    }
+
+    public static ApplicationProcess start(LoadTestConfig config, String modeArgs,
+                                           String jdbcUrl, String username, String password)
+            throws IOException, InterruptedException {
+        Path jar = Path.of(config.get("app.jar"));
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Не найден " + jar.toAbsolutePath() + ": соберите приложение (mvn package -DskipTests)");
+        }
+        int port = config.getInt("app.port", 18080);
+
+        List<String> command = new ArrayList<>();
+        command.add(config.get("app.java", Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.druid.url=" + jdbcUrl);
+        command.add("--spring.datasource.druid.username=" + username);
+        command.add("--spring.datasource.druid.password=" + password);
+        for (String extraArgs : new String[]{config.get("app.args"), modeArgs}) {
+            if (extraArgs != null && !extraArgs.isBlank()) {
+                command.addAll(Arrays.asList(extraArgs.trim().split("\\s+")));
+            }
+        }
+
+        Path log = Path.of("target", "loadtest-app.log");
+        Files.createDirectories(log.getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+
+        ApplicationProcess application = new ApplicationProcess(process, "http://localhost:" + port);
+        try {
+            application.awaitReady(config.getInt("app.startup-timeout-seconds", 180), log);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            application.close();
+            throw e;
+        }
+        return application;
+    }
+
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    // Приложение готово, когда открытый эндпоинт входа отвечает на HTTP запрос (код ответа не важен)
+    private void awaitReady(int timeoutSeconds, Path log) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .timeout(Duration.ofSeconds(2))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Приложение завершилось с кодом " + process.exitValue() + ", см. " + log);
+            }
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException("Приложение не запустилось за " + timeoutSeconds + " с, см. " + log);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
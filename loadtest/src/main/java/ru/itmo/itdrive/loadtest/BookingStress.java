@@ -0,0 +1,237 @@
+package ru.itmo.itdrive.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Стресс-тест бронирования одной поездки: N потоков одновременно бронируют ее места (каждый пассажир
+// один раз, часть бронирований сразу отменяется), после чего проверяется, что места не проданы сверх
+// вместимости: SUM(seats) активных бронирований + available_seats = max_passengers, available_seats >= 0,
+// а индекс поиска показывает те же свободные места, что и БД.
+// Каждый уровень параллельности из stress.concurrency прогоняется на новой поездке.
+// Запуск: mvn -f loadtest/pom.xml compile exec:java -Dexec.mainClass=ru.itmo.itdrive.loadtest.BookingStress
+public class BookingStress {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig();
+        List<Integer> levels = config.getList("stress.concurrency").stream().map(Integer::parseInt).toList();
+
+        EmbeddedPostgres embedded = null;
+        String jdbcUrl = config.get("jdbc.url");
+        String username = config.get("jdbc.username", "postgres");
+        String password = config.get("jdbc.password", "postgres");
+        if (jdbcUrl == null) {
+            embedded = EmbeddedPostgres.builder().start();
+            jdbcUrl = embedded.getJdbcUrl("postgres", "postgres");
+            username = "postgres";
+            password = "postgres";
+        }
+
+        List<String> violations = new ArrayList<>();
+        try {
+            SeedData data;
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+                System.out.println("Применение схемы и засеивание данных...");
+                DataSeeder seeder = new DataSeeder(config);
+                seeder.applySchema(connection);
+                data = seeder.seed(connection);
+            }
+
+            System.out.println("Запуск приложения...");
+            try (ApplicationProcess application = ApplicationProcess.start(config, null, jdbcUrl, username, password);
+                 Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+                ApiClient client = new ApiClient(application.baseUrl(),
+                        Duration.ofMillis(config.getInt("request-timeout-ms", 10000)));
+                Runner runner = new Runner(config, client, data, connection);
+                System.out.println("Вход пассажиров...");
+                runner.login();
+
+                System.out.printf("%n%11s %9s %7s %9s %8s %7s %9s %11s %9s %9s  %s%n",
+                        "concurrency", "requests", "booked", "cancelled", "rejected", "errors",
+                        "req/s", "bookings/s", "p50 ms", "p99 ms", "invariant");
+                for (int level = 0; level < levels.size(); level++) {
+                    runner.run(levels.get(level), data.driverEmails().get(level % data.driverEmails().size()), violations);
+                }
+            }
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+
+        if (!violations.isEmpty()) {
+            System.out.println("\nНарушены инварианты:");
+            violations.forEach(v -> System.out.println("  " + v));
+            System.exit(1);
+        }
+        System.out.println("\nМеста не проданы сверх вместимости");
+    }
+
+    private static class Runner {
+
+        private final LoadTestConfig config;
+        private final ApiClient client;
+        private final SeedData data;
+        private final Connection connection;
+        private final List<ApiClient.Session> passengers = new ArrayList<>();
+
+        Runner(LoadTestConfig config, ApiClient client, SeedData data, Connection connection) {
+            this.config = config;
+            this.client = client;
+            this.data = data;
+            this.connection = connection;
+        }
+
+        void login() throws Exception {
+            int count = Math.min(config.getInt("stress.passengers", 500), data.passengerEmails().size());
+            ExecutorService executor = Executors.newFixedThreadPool(16);
+            try {
+                List<Future<ApiClient.Session>> futures = new ArrayList<>();
+                for (String email : data.passengerEmails().subList(0, count)) {
+                    futures.add(executor.submit(() -> client.login(email, data.password())));
+                }
+                for (Future<ApiClient.Session> future : futures) {
+                    passengers.add(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        void run(int concurrency, String driverEmail, List<String> violations) throws Exception {
+            int seats = config.getInt("stress.seats", 300);
+            int maxSeatsPerBooking = config.getInt("stress.max-seats-per-booking", 2);
+            double cancelRate = config.getDouble("stress.cancel-rate", 0.2);
+
+            long tripId = createTrip(driverEmail, seats);
+            Metrics metrics = new Metrics();
+            client.useMetrics(metrics);
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger booked = new AtomicInteger();
+            AtomicInteger cancelled = new AtomicInteger();
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                Thread thread = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int p = next.getAndIncrement(); p < passengers.size(); p = next.getAndIncrement()) {
+                        ApiClient.Session session = passengers.get(p);
+                        JsonNode booking = client.post("POST /api/bookings", "/api/bookings", session.token(),
+                                Map.of("tripId", tripId, "paymentMethod", "CARD",
+                                        "seats", random.nextInt(1, maxSeatsPerBooking + 1)),
+                                Set.of(400));
+                        if (booking == null) {
+                            continue;
+                        }
+                        booked.incrementAndGet();
+                        if (random.nextDouble() < cancelRate) {
+                            client.delete("DELETE /api/bookings/{id}", "/api/bookings/" + booking.get("id").asLong(),
+                                    session.token(), Set.of(400));
+                            cancelled.incrementAndGet();
+                        }
+                    }
+                }, "booking-stress-" + i);
+                threads.add(thread);
+            }
+            metrics.startRecording();
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            metrics.stopRecording();
+
+            String invariant = checkInvariant(tripId, concurrency, violations);
+            Map<String, Metrics.EndpointSummary> endpoints = metrics.summarize();
+            Metrics.EndpointSummary bookings = endpoints.get("POST /api/bookings");
+            long requests = endpoints.values().stream().mapToLong(Metrics.EndpointSummary::requests).sum();
+            long errors = endpoints.values().stream().mapToLong(Metrics.EndpointSummary::errors).sum();
+            double seconds = metrics.elapsedSeconds();
+            System.out.printf("%11d %9d %7d %9d %8d %7d %9.1f %11.1f %9.2f %9.2f  %s%n",
+                    concurrency, requests, booked.get(), cancelled.get(), bookings.rejected(), errors,
+                    requests / seconds, booked.get() / seconds, bookings.p50Ms(), bookings.p99Ms(), invariant);
+            if (errors > 0) {
+                violations.add("concurrency %d: %d ошибок".formatted(concurrency, errors));
+            }
+        }
+
+        // Поездка создается через API, чтобы попасть в индекс поиска
+        private long createTrip(String driverEmail, int seats) throws Exception {
+            ApiClient.Session driver = client.login(driverEmail, data.password());
+            SeedData.BuildingPoint from = data.buildings().get(0);
+            SeedData.BuildingPoint to = data.buildings().get(data.buildings().size() - 1);
+            JsonNode trip = client.post("POST /api/trips", "/api/trips", driver.token(),
+                    Map.of("fromBuildingId", from.id(), "toBuildingId", to.id(),
+                            "maxPassengers", seats, "price", 200, "description", "Стресс-тест бронирования"),
+                    Set.of());
+            if (trip == null) {
+                throw new IllegalStateException("Не удалось создать поездку от имени " + driverEmail);
+            }
+            return trip.get("id").asLong();
+        }
+
+        private String checkInvariant(long tripId, int concurrency, List<String> violations) throws Exception {
+            int maxPassengers;
+            int availableSeats;
+            long reservedSeats;
+            try (PreparedStatement statement = connection.prepareStatement("""
+                    SELECT t.max_passengers, t.available_seats,
+                           (SELECT COALESCE(SUM(b.seats), 0) FROM public.bookings b
+                            WHERE b.trip_id = t.id AND b.status <> 'CANCELLED')
+                    FROM public.trips t
+                    WHERE t.id = ?
+                    """)) {
+                statement.setLong(1, tripId);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    maxPassengers = rs.getInt(1);
+                    availableSeats = rs.getInt(2);
+                    reservedSeats = rs.getLong(3);
+                }
+            }
+
+            String result = "%d + %d = %d".formatted(reservedSeats, availableSeats, maxPassengers);
+            if (reservedSeats + availableSeats != maxPassengers || availableSeats < 0) {
+                violations.add("concurrency %d: забронировано %d + свободно %d != вместимость %d"
+                        .formatted(concurrency, reservedSeats, availableSeats, maxPassengers));
+                result += " НАРУШЕН";
+            }
+
+            Integer indexedSeats = indexedSeats(tripId);
+            if (indexedSeats == null || indexedSeats != availableSeats) {
+                violations.add("concurrency %d: в индексе поиска %s свободных мест, в БД %d"
+                        .formatted(concurrency, indexedSeats, availableSeats));
+                result += ", индекс " + indexedSeats;
+            }
+            return result;
+        }
+
+        private Integer indexedSeats(long tripId) {
+            SeedData.BuildingPoint from = data.buildings().get(0);
+            SeedData.BuildingPoint to = data.buildings().get(data.buildings().size() - 1);
+            JsonNode trips = client.get("GET /api/trips",
+                    "/api/trips?fromBuildingId=" + from.id() + "&toBuildingId=" + to.id(), passengers.get(0).token());
+            if (trips != null) {
+                for (JsonNode trip : trips) {
+                    if (trip.get("id").asLong() == tripId) {
+                        return trip.get("availableSeats").asInt();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
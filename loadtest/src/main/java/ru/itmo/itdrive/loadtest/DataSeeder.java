@@ -0,0 +1,202 @@
+package ru.itmo.itdrive.loadtest;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Применяет create_database.sql и засеивает данные до старта приложения:
+// индекс поиска поездок и таблица соседей корпусов строятся при запуске из того, что уже лежит в БД
+public class DataSeeder {
+
+    public static final String EMAIL_DOMAIN = "@loadtest.itdrive";
+
+    private final LoadTestConfig config;
+
+    public DataSeeder(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public void applySchema(Connection connection) throws IOException, SQLException {
+        String script = Files.readString(Path.of(config.get("schema.script")), StandardCharsets.UTF_8);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(script);
+        }
+    }
+
+    public SeedData seed(Connection connection) throws SQLException {
+        int drivers = config.getInt("seed.drivers", 100);
+        int passengers = config.getInt("seed.passengers", 1000);
+        int trips = config.getInt("seed.trips", 20000);
+        int daysAhead = config.getInt("seed.days-ahead", 14);
+        int stormSeats = config.getInt("seed.storm-seats", 200);
+        String password = config.get("seed.password", "loadtest-password");
+
+        // Один хэш на всех пользователей: засеивание не упирается в BCrypt
+        String passwordHash = new BCryptPasswordEncoder().encode(password);
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            // Корпуса в пределах Санкт-Петербурга, чтобы поиск рядом и подбор попутчиков находили соседей
+            statement.executeUpdate("""
+                    INSERT INTO public.buildings (name, address, latitude, longitude)
+                    SELECT 'Нагрузочный корпус ' || g,
+                           'Санкт-Петербург, нагрузочный адрес ' || g,
+                           59.90 + random() * 0.10,
+                           30.25 + random() * 0.20
+                    FROM generate_series(1, 40) g
+                    ON CONFLICT (name) DO NOTHING
+                    """);
+            insertUsers(statement, "driver", "DRIVER", drivers, passwordHash);
+            insertUsers(statement, "passenger", "PASSENGER", passengers, passwordHash);
+
+            // Запланированные поездки на ближайшие дни
+            statement.executeUpdate("""
+                    WITH b AS (SELECT array_agg(id) AS ids FROM public.buildings WHERE name LIKE 'Нагрузочный корпус %%'),
+                         d AS (SELECT array_agg(id) AS ids FROM public.users WHERE email LIKE 'driver%%%1$s')
+                    INSERT INTO public.trips (driver_id, from_building_id, to_building_id, departure_time,
+                                              max_passengers, available_seats, price, status, description,
+                                              created_at, updated_at)
+                    SELECT d.ids[1 + (g %% array_length(d.ids, 1))],
+                           b.ids[1 + (g %% array_length(b.ids, 1))],
+                           b.ids[1 + ((g + 1 + (g / array_length(b.ids, 1)) %% (array_length(b.ids, 1) - 1)) %% array_length(b.ids, 1))],
+                           date_trunc('minute', NOW()) + (random() * %2$d * 24 * 60) * INTERVAL '1 minute',
+                           4, 4, 100 + (g %% 20) * 10, 'SCHEDULED', 'Нагрузочный тест',
+                           NOW(), NOW()
+                    FROM generate_series(1, %3$d) g, b, d
+                    """.formatted(EMAIL_DOMAIN, daysAhead, trips));
+
+            // Завершенные поездки с бронированиями: история для статистики водителей
+            statement.executeUpdate("""
+                    WITH b AS (SELECT array_agg(id) AS ids FROM public.buildings WHERE name LIKE 'Нагрузочный корпус %%'),
+                         d AS (SELECT array_agg(id) AS ids FROM public.users WHERE email LIKE 'driver%%%1$s'),
+                         past AS (SELECT g, NOW() - (random() * 60 * 24 * 60) * INTERVAL '1 minute' AS departure
+                                  FROM generate_series(1, %2$d) g)
+                    INSERT INTO public.trips (driver_id, from_building_id, to_building_id, departure_time,
+                                              started_at, finished_at, max_passengers, available_seats, price,
+                                              status, description, created_at, updated_at)
+                    SELECT d.ids[1 + (g %% array_length(d.ids, 1))],
+                           b.ids[1 + (g %% array_length(b.ids, 1))],
+                           b.ids[1 + ((g + 7) %% array_length(b.ids, 1))],
+                           departure, departure, departure + INTERVAL '30 minutes',
+                           4, 3, 150, 'COMPLETED', 'Нагрузочный тест', departure, departure
+                    FROM past, b, d
+                    """.formatted(EMAIL_DOMAIN, Math.max(1, trips / 4)));
+            statement.executeUpdate("""
+                    WITH p AS (SELECT array_agg(id) AS ids FROM public.users WHERE email LIKE 'passenger%%%s')
+                    INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats,
+                                                 created_at, updated_at)
+                    SELECT t.id, p.ids[1 + (t.id %% array_length(p.ids, 1))], 'COMPLETED', t.price, 'CARD', 1,
+                           t.departure_time, t.departure_time
+                    FROM public.trips t, p
+                    WHERE t.status = 'COMPLETED' AND t.description = 'Нагрузочный тест'
+                    """.formatted(EMAIL_DOMAIN));
+        }
+
+        long stormTripId;
+        try (PreparedStatement statement = connection.prepareStatement("""
+                INSERT INTO public.trips (driver_id, from_building_id, to_building_id, departure_time,
+                                          max_passengers, available_seats, price, status, description,
+                                          created_at, updated_at)
+                SELECT (SELECT MIN(id) FROM public.users WHERE email LIKE 'driver%' || ?),
+                       (SELECT MIN(id) FROM public.buildings WHERE name LIKE 'Нагрузочный корпус %'),
+                       (SELECT MAX(id) FROM public.buildings WHERE name LIKE 'Нагрузочный корпус %'),
+                       NOW() + INTERVAL '1 day', ?, ?, 200, 'SCHEDULED', 'Шторм бронирований', NOW(), NOW()
+                RETURNING id
+                """)) {
+            statement.setString(1, EMAIL_DOMAIN);
+            statement.setInt(2, stormSeats);
+            statement.setInt(3, stormSeats);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                stormTripId = rs.getLong(1);
+            }
+        }
+
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+
+        return new SeedData(
+                loadEmails(connection, "driver"),
+                loadEmails(connection, "passenger"),
+                loadDriverTrips(connection),
+                loadBuildings(connection),
+                stormTripId,
+                password
+        );
+    }
+
+    private static void insertUsers(Statement statement, String prefix, String role, int count,
+                                    String passwordHash) throws SQLException {
+        statement.executeUpdate("""
+                INSERT INTO public.users (email, password, first_name, last_name, role, phone_number,
+                                          rating, total_trips, is_blocked, created_at, updated_at)
+                SELECT '%1$s' || g || '%2$s', '%3$s', 'Нагрузка', '%1$s' || g, '%4$s',
+                       '+7900' || lpad(g::text, 7, '0'), 5.0, 0, FALSE, NOW(), NOW()
+                FROM generate_series(1, %5$d) g
+                ON CONFLICT (email) DO NOTHING
+                """.formatted(prefix, EMAIL_DOMAIN, passwordHash, role, count));
+    }
+
+    private static List<String> loadEmails(Connection connection, String prefix) throws SQLException {
+        List<String> emails = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT email FROM public.users WHERE email LIKE ? ORDER BY id")) {
+            statement.setString(1, prefix + "%" + EMAIL_DOMAIN);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    emails.add(rs.getString(1));
+                }
+            }
+        }
+        return emails;
+    }
+
+    // Одна запланированная поездка каждого водителя: ее бронирования открывает дашборд
+    private static Map<String, Long> loadDriverTrips(Connection connection) throws SQLException {
+        Map<String, Long> trips = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT u.email, MIN(t.id)
+                FROM public.users u
+                JOIN public.trips t ON t.driver_id = u.id
+                WHERE u.email LIKE ? AND t.status = 'SCHEDULED'
+                GROUP BY u.email
+                """)) {
+            statement.setString(1, "driver%" + EMAIL_DOMAIN);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    trips.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        return trips;
+    }
+
+    private static List<SeedData.BuildingPoint> loadBuildings(Connection connection) throws SQLException {
+        List<SeedData.BuildingPoint> buildings = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("""
+                     SELECT id, latitude, longitude FROM public.buildings
+                     WHERE name LIKE 'Нагрузочный корпус %' ORDER BY id
+                     """)) {
+            while (rs.next()) {
+                buildings.add(new SeedData.BuildingPoint(rs.getLong(1), rs.getDouble(2), rs.getDouble(3)));
+            }
+        }
+        return buildings;
+    }
+}
@@ -0,0 +1,185 @@
+package ru.itmo.itdrive.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Нагрузочный тест: поднимает PostgreSQL со схемой create_database.sql, засеивает данные,
+// запускает приложение и прогоняет фазы сценариев через REST API.
+// Режимы (modes) прогоняются по очереди и сравниваются между собой.
+// Завершается с кодом 1, если нарушен хотя бы один SLO.
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig();
+        Report report = new Report(config);
+
+        List<String> modes = config.getList("modes");
+        if (modes.isEmpty()) {
+            report.startRun("default", "");
+            run(config, report, null);
+        } else {
+            for (String mode : modes) {
+                String modeArgs = config.get("mode." + mode + ".args", "");
+                System.out.println("\nРежим " + mode + ": " + modeArgs);
+                report.startRun(mode, modeArgs);
+                run(config, report, modeArgs);
+            }
+        }
+        report.printComparison();
+        report.write();
+
+        if (!report.violations().isEmpty()) {
+            System.out.println("\nНарушены SLO:");
+            report.violations().forEach(v -> System.out.println("  " + v));
+            System.exit(1);
+        }
+        System.out.println("\nSLO соблюдены");
+    }
+
+    // Один прогон всех фаз на свежей БД
+    private static void run(LoadTestConfig config, Report report, String modeArgs) throws Exception {
+        EmbeddedPostgres embedded = null;
+        String jdbcUrl = config.get("jdbc.url");
+        String username = config.get("jdbc.username", "postgres");
+        String password = config.get("jdbc.password", "postgres");
+        if (jdbcUrl == null) {
+            embedded = EmbeddedPostgres.builder().start();
+            jdbcUrl = embedded.getJdbcUrl("postgres", "postgres");
+            username = "postgres";
+            password = "postgres";
+        }
+
+        try {
+            DataSeeder seeder = new DataSeeder(config);
+            SeedData data;
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+                System.out.println("Применение схемы и засеивание данных...");
+                seeder.applySchema(connection);
+                data = seeder.seed(connection);
+            }
+
+            System.out.println("Запуск приложения...");
+            try (ApplicationProcess application = ApplicationProcess.start(config, modeArgs, jdbcUrl, username, password)) {
+                ApiClient client = new ApiClient(application.baseUrl(),
+                        Duration.ofMillis(config.getInt("request-timeout-ms", 10000)));
+                new PhaseRunner(config, client, data).run(report);
+            }
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    private static class PhaseRunner {
+
+        private final LoadTestConfig config;
+        private final ApiClient client;
+        private final SeedData data;
+
+        PhaseRunner(LoadTestConfig config, ApiClient client, SeedData data) {
+            this.config = config;
+            this.client = client;
+            this.data = data;
+        }
+
+        void run(Report report) throws Exception {
+            int rushUsers = config.getInt("phase.morning-rush.users", 64);
+            int stormUsers = config.getInt("phase.booking-storm.users", 200);
+            int dashboardUsers = config.getInt("phase.driver-dashboard.users", 32);
+
+            System.out.println("Вход пользователей...");
+            List<ApiClient.Session> passengers = login(data.passengerEmails(), Math.max(rushUsers, stormUsers));
+            List<ApiClient.Session> drivers = login(data.driverEmails(), dashboardUsers);
+
+            Scenarios.Scenario rush = new Scenarios.MorningRush(passengers.subList(0, Math.min(rushUsers, passengers.size())), data);
+            Scenarios.Scenario storm = new Scenarios.BookingStorm(passengers.subList(0, Math.min(stormUsers, passengers.size())), data);
+            Scenarios.Scenario dashboard = new Scenarios.DriverDashboard(drivers, data);
+
+            for (String phase : config.getList("phase.order")) {
+                List<Scenarios.Scenario> scenarios = switch (phase) {
+                    case "morning-rush" -> List.of(rush);
+                    case "booking-storm" -> List.of(storm);
+                    case "driver-dashboard" -> List.of(dashboard);
+                    case "mixed" -> List.of(rush, storm, dashboard);
+                    default -> throw new IllegalArgumentException("Неизвестная фаза: " + phase);
+                };
+                System.out.println("Фаза " + phase + "...");
+                report.addPhase(phase, runPhase(phase, scenarios));
+            }
+        }
+
+        // Вход выполняется параллельно: каждый вход - проверка BCrypt на стороне приложения
+        private List<ApiClient.Session> login(List<String> emails, int count) throws Exception {
+            if (emails.isEmpty()) {
+                throw new IllegalStateException("Нет засеянных пользователей");
+            }
+            String password = data.password();
+            ExecutorService executor = Executors.newFixedThreadPool(16);
+            try {
+                List<Future<ApiClient.Session>> futures = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    String email = emails.get(i % emails.size());
+                    futures.add(executor.submit(() -> client.login(email, password)));
+                }
+                List<ApiClient.Session> sessions = new ArrayList<>();
+                for (Future<ApiClient.Session> future : futures) {
+                    sessions.add(future.get());
+                }
+                return sessions;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private Metrics runPhase(String phase, List<Scenarios.Scenario> scenarios) throws InterruptedException {
+            int warmupSeconds = config.getInt("warmup-seconds", 5);
+            int durationSeconds = config.getInt("phase." + phase + ".duration-seconds", 30);
+            long thinkTimeMs = config.getInt("think-time-ms", 0);
+
+            Metrics metrics = new Metrics();
+            client.useMetrics(metrics);
+
+            long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+            List<Thread> users = new ArrayList<>();
+            for (Scenarios.Scenario scenario : scenarios) {
+                for (ApiClient.Session session : scenario.sessions()) {
+                    Thread user = new Thread(() -> {
+                        while (System.nanoTime() < stopAt) {
+                            scenario.iteration(client, session);
+                            if (thinkTimeMs > 0) {
+                                try {
+                                    Thread.sleep(thinkTimeMs);
+                                } catch (InterruptedException e) {
+                                    return;
+                                }
+                            }
+                        }
+                    }, scenario.name() + "-" + session.userId());
+                    user.setDaemon(true);
+                    users.add(user);
+                }
+            }
+            users.forEach(Thread::start);
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+            metrics.startRecording();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+            metrics.stopRecording();
+
+            for (Thread user : users) {
+                user.join();
+            }
+            return metrics;
+        }
+    }
+}
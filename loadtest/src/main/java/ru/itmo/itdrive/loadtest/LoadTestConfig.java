@@ -0,0 +1,60 @@
+package ru.itmo.itdrive.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+// Параметры из loadtest.properties, переопределяемые системными свойствами loadtest.*
+public class LoadTestConfig {
+
+    private static final String PREFIX = "loadtest.";
+
+    private final Properties properties = new Properties();
+
+    public LoadTestConfig() {
+        try (InputStream in = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            if (in != null) {
+                properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать loadtest.properties", e);
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(PREFIX))
+                .forEach(name -> properties.setProperty(name.substring(PREFIX.length()), System.getProperty(name)));
+    }
+
+    public String get(String key) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = get(key);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = get(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    public List<String> getList(String key) {
+        String value = get(key);
+        if (value == null) {
+            return List.of();
+        }
+        return Arrays.stream(value.split("[,\\s]+"))
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.itmo.itdrive.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Замеры одной фазы по эндпоинтам. Во время прогрева ответы не учитываются.
+public class Metrics {
+
+    public enum Outcome {
+        OK,
+        // Ожидаемый отказ бизнес-логики (например, закончились места): не считается ошибкой
+        REJECTED,
+        ERROR
+    }
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+    private volatile long startedAt;
+    private volatile long stoppedAt;
+
+    public void startRecording() {
+        startedAt = System.nanoTime();
+        recording = true;
+    }
+
+    public void stopRecording() {
+        recording = false;
+        stoppedAt = System.nanoTime();
+    }
+
+    public void record(String endpoint, long latencyNanos, Outcome outcome) {
+        if (!recording) {
+            return;
+        }
+        endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics()).record(latencyNanos, outcome);
+    }
+
+    public double elapsedSeconds() {
+        return (stoppedAt - startedAt) / 1e9;
+    }
+
+    public Map<String, EndpointSummary> summarize() {
+        double seconds = elapsedSeconds();
+        Map<String, EndpointSummary> result = new TreeMap<>();
+        endpoints.forEach((endpoint, metrics) -> result.put(endpoint, metrics.summarize(seconds)));
+        return result;
+    }
+
+    public record EndpointSummary(
+            long requests,
+            long rejected,
+            long errors,
+            double throughput,
+            double errorRate,
+            double p50Ms,
+            double p99Ms,
+            double maxMs
+    ) {
+    }
+
+    private static class EndpointMetrics {
+
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, Outcome outcome) {
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+            requests.increment();
+            if (outcome == Outcome.REJECTED) {
+                rejected.increment();
+            } else if (outcome == Outcome.ERROR) {
+                errors.increment();
+            }
+        }
+
+        EndpointSummary summarize(double seconds) {
+            long total = requests.sum();
+            long errorCount = errors.sum();
+            return new EndpointSummary(
+                    total,
+                    rejected.sum(),
+                    errorCount,
+                    seconds > 0 ? total / seconds : 0,
+                    total > 0 ? (double) errorCount / total : 0,
+                    latencies.getValueAtPercentile(50) / 1000.0,
+                    latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getMaxValue() / 1000.0
+            );
+        }
+    }
+}
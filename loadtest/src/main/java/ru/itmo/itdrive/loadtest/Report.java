@@ -0,0 +1,113 @@
+package ru.itmo.itdrive.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Сводка по прогонам (режимам) и фазам: p50/p99/max, пропускная способность и доля ошибок
+// по эндпоинтам, проверка SLO и сравнение режимов
+public class Report {
+
+    private final LoadTestConfig config;
+    private final Map<String, Run> runs = new LinkedHashMap<>();
+    private final List<String> violations = new ArrayList<>();
+    private String currentMode;
+    private Run current;
+
+    public Report(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public void startRun(String mode, String modeArgs) {
+        currentMode = mode;
+        current = new Run(modeArgs, new LinkedHashMap<>());
+        runs.put(mode, current);
+    }
+
+    public void addPhase(String phase, Metrics metrics) {
+        Map<String, Metrics.EndpointSummary> endpoints = metrics.summarize();
+        current.phases().put(phase, new PhaseReport(metrics.elapsedSeconds(), endpoints));
+        String label = config.get("modes") != null ? currentMode + " / " + phase : phase;
+
+        System.out.printf("%n=== %s (%.1f с) ===%n", label, metrics.elapsedSeconds());
+        System.out.printf("%-32s %9s %8s %7s %9s %8s %9s %9s %9s%n",
+                "endpoint", "requests", "rejected", "errors", "req/s", "err %", "p50 ms", "p99 ms", "max ms");
+        endpoints.forEach((endpoint, s) -> {
+            System.out.printf("%-32s %9d %8d %7d %9.1f %8.2f %9.2f %9.2f %9.2f%n",
+                    endpoint, s.requests(), s.rejected(), s.errors(), s.throughput(),
+                    s.errorRate() * 100, s.p50Ms(), s.p99Ms(), s.maxMs());
+            checkSlo(label, endpoint, s);
+        });
+    }
+
+    public List<String> violations() {
+        return violations;
+    }
+
+    // Таблица p99 и req/s каждого эндпоинта по режимам
+    public void printComparison() {
+        if (runs.size() < 2) {
+            return;
+        }
+        Map<String, TreeSet<String>> endpointsByPhase = new LinkedHashMap<>();
+        runs.values().forEach(run -> run.phases().forEach((phase, report) ->
+                endpointsByPhase.computeIfAbsent(phase, p -> new TreeSet<>()).addAll(report.endpoints().keySet())));
+
+        System.out.println("\n=== Сравнение режимов: p99 мс / req/s / err % ===");
+        endpointsByPhase.forEach((phase, endpoints) -> {
+            System.out.printf("%n%-32s", phase);
+            runs.keySet().forEach(mode -> System.out.printf(" %28s", mode));
+            System.out.println();
+            for (String endpoint : endpoints) {
+                System.out.printf("%-32s", endpoint);
+                for (Run run : runs.values()) {
+                    PhaseReport report = run.phases().get(phase);
+                    Metrics.EndpointSummary s = report != null ? report.endpoints().get(endpoint) : null;
+                    System.out.printf(" %28s", s == null ? "-"
+                            : "%.1f / %.1f / %.2f".formatted(s.p99Ms(), s.throughput(), s.errorRate() * 100));
+                }
+                System.out.println();
+            }
+        });
+    }
+
+    public void write() throws IOException {
+        Path file = Path.of(config.get("report.file", "target/loadtest-report.json"));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("appArgs", config.get("app.args", ""));
+        report.put("runs", runs);
+        report.put("sloViolations", violations);
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), report);
+        System.out.println("\nОтчет: " + file.toAbsolutePath());
+    }
+
+    private void checkSlo(String label, String endpoint, Metrics.EndpointSummary summary) {
+        double p99Limit = config.getDouble("slo.p99-ms." + endpoint, config.getDouble("slo.p99-ms", Double.MAX_VALUE));
+        double errorRateLimit = config.getDouble("slo.error-rate." + endpoint, config.getDouble("slo.error-rate", 1.0));
+        if (summary.p99Ms() > p99Limit) {
+            violations.add("%s / %s: p99 %.2f мс > %.2f мс".formatted(label, endpoint, summary.p99Ms(), p99Limit));
+        }
+        if (summary.errorRate() > errorRateLimit) {
+            violations.add("%s / %s: доля ошибок %.4f > %.4f".formatted(label, endpoint, summary.errorRate(), errorRateLimit));
+        }
+    }
+
+    public record Run(String modeArgs, Map<String, PhaseReport> phases) {
+    }
+
+    public record PhaseReport(double durationSeconds, Map<String, Metrics.EndpointSummary> endpoints) {
+    }
+}
@@ -0,0 +1,102 @@
+package ru.itmo.itdrive.loadtest;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Сценарии нагрузки. Каждый вызов iteration - одно действие виртуального пользователя.
+public class Scenarios {
+
+    public interface Scenario {
+
+        String name();
+
+        // Сессии, от имени которых работают виртуальные пользователи сценария
+        List<ApiClient.Session> sessions();
+
+        void iteration(ApiClient client, ApiClient.Session session);
+    }
+
+    // Утренний час пик: пассажиры ищут поездки по маршруту, рядом с собой и подбирают попутчиков
+    public record MorningRush(List<ApiClient.Session> sessions, SeedData data) implements Scenario {
+
+        @Override
+        public String name() {
+            return "morning-rush";
+        }
+
+        @Override
+        public void iteration(ApiClient client, ApiClient.Session session) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            SeedData.BuildingPoint from = randomBuilding(random);
+            SeedData.BuildingPoint to = randomBuilding(random);
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            int action = random.nextInt(100);
+            if (action < 50) {
+                client.get("GET /api/trips",
+                        "/api/trips?fromBuildingId=" + from.id() + "&toBuildingId=" + to.id()
+                                + "&departureTimeFrom=" + now,
+                        session.token());
+            } else if (action < 70) {
+                client.get("GET /api/trips/page",
+                        "/api/trips/page?fromBuildingId=" + from.id() + "&size=20",
+                        session.token());
+            } else if (action < 85) {
+                client.get("GET /api/trips/nearby",
+                        "/api/trips/nearby?latitude=" + from.latitude() + "&longitude=" + from.longitude()
+                                + "&radius=1500",
+                        session.token());
+            } else if (action < 95) {
+                client.get("GET /api/trips/match",
+                        "/api/trips/match?fromBuildingId=" + from.id() + "&toBuildingId=" + to.id()
+                                + "&departureTime=" + now.plusHours(random.nextInt(1, 48)),
+                        session.token());
+            } else {
+                client.get("GET /api/buildings", "/api/buildings", session.token());
+            }
+        }
+
+        private SeedData.BuildingPoint randomBuilding(ThreadLocalRandom random) {
+            return data.buildings().get(random.nextInt(data.buildings().size()));
+        }
+    }
+
+    // Шторм бронирований одной поездки: все пассажиры одновременно борются за ее места.
+    // 400 (нет мест, повторное бронирование) - ожидаемый отказ, а не ошибка.
+    public record BookingStorm(List<ApiClient.Session> sessions, SeedData data) implements Scenario {
+
+        @Override
+        public String name() {
+            return "booking-storm";
+        }
+
+        @Override
+        public void iteration(ApiClient client, ApiClient.Session session) {
+            client.post("POST /api/bookings", "/api/bookings", session.token(),
+                    Map.of("tripId", data.stormTripId(), "paymentMethod", "CARD", "seats", 1),
+                    Set.of(400));
+        }
+    }
+
+    // Дашборд водителя: свои поездки, бронирования ближайшей поездки и статистика
+    public record DriverDashboard(List<ApiClient.Session> sessions, SeedData data) implements Scenario {
+
+        @Override
+        public String name() {
+            return "driver-dashboard";
+        }
+
+        @Override
+        public void iteration(ApiClient client, ApiClient.Session session) {
+            client.get("GET /api/trips/driver/{id}", "/api/trips/driver/" + session.userId(), session.token());
+            Long tripId = data.driverTripIds().get(session.email());
+            if (tripId != null) {
+                client.get("GET /api/bookings/trip/{id}", "/api/bookings/trip/" + tripId, session.token());
+            }
+            client.get("GET /api/driver/statistics", "/api/driver/statistics", session.token());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.itmo.itdrive.loadtest;
+
+import java.util.List;
+import java.util.Map;
+
+public record SeedData(
+        List<String> driverEmails,
+        List<String> passengerEmails,
+        Map<String, Long> driverTripIds,
+        List<BuildingPoint> buildings,
+        long stormTripId,
+        String password
+) {
+
+    public record BuildingPoint(long id, double latitude, double longitude) {
+    }
+}
@@ -2,8 +2,10 @@ package ru.itmo.itdrive;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ItDriveApplication {
     public static void main(String[] args) {
         SpringApplication.run(ItDriveApplication.class, args);
@@ -1,5 +1,9 @@
 package ru.itmo.itdrive.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -11,49 +15,65 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import ru.itmo.itdrive.filter.JwtAuthenticationFilter;
+import ru.itmo.itdrive.security.BCryptCostCalibrator;
+import ru.itmo.itdrive.security.OffloadingPasswordEncoder;
 
+@Slf4j
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
     
     private final UserDetailsService userDetailsService;
-    private final JwtAuthenticationFilter jwtAuthFilter;
+    private final UserDetailsPasswordService userDetailsPasswordService;
 
-    public SecurityConfig(@Lazy UserDetailsService userDetailsService, @Lazy JwtAuthenticationFilter jwtAuthFilter) {
+    public SecurityConfig(@Lazy UserDetailsService userDetailsService,
+                          @Lazy UserDetailsPasswordService userDetailsPasswordService) {
         this.userDetailsService = userDetailsService;
-        this.jwtAuthFilter = jwtAuthFilter;
+        this.userDetailsPasswordService = userDetailsPasswordService;
     }
 
+    // Фильтр передается в метод, а не через @Lazy поле: ленивый CGLIB прокси не может переопределить
+    // final doFilter и вызывал бы его на неинициализированном экземпляре прокси
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   AuthenticationProvider authenticationProvider,
+                                                   JwtAuthenticationFilter jwtAuthFilter) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Асинхронная отправка результата long-poll: исходный запрос уже прошел авторизацию,
+                        // а JWT фильтр при этой отправке не выполняется
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/admin/**").hasAuthority("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
         
         return http.build();
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Хэши с меньшей стоимостью, чем текущая, перезаписываются при успешном входе
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -63,7 +83,21 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${password.bcrypt.cost:0}") int cost,
+                                           @Value("${password.bcrypt.target-millis:100}") long targetMillis,
+                                           @Value("${password.bcrypt.min-cost:10}") int minCost,
+                                           @Value("${password.bcrypt.max-cost:14}") int maxCost,
+                                           @Value("${password.executor.threads:0}") int threads,
+                                           @Value("${password.executor.queue-capacity:64}") int queueCapacity) {
+        if (cost <= 0) {
+            cost = BCryptCostCalibrator.calibrate(targetMillis, minCost, maxCost);
+            log.info("Стоимость BCrypt подобрана под {} мс: {}", targetMillis, cost);
+        }
+        // По умолчанию хэшированию отдается половина ядер, остальные обслуживают прочие запросы
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        return new OffloadingPasswordEncoder(new BCryptPasswordEncoder(cost), threads, queueCapacity, meterRegistry);
     }
 }
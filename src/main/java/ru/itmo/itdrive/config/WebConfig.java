@@ -0,0 +1,25 @@
+package ru.itmo.itdrive.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.itmo.itdrive.filter.DatabaseBulkheadInterceptor;
+
+@Configuration
+@ConditionalOnProperty(name = "bulkhead.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final DatabaseBulkheadInterceptor databaseBulkheadInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Вход и регистрация упираются в BCrypt, у которого своя ограниченная очередь, а не в пул БД:
+        // по методу POST они заняли бы разрешения записи, нужные бронированиям
+        registry.addInterceptor(databaseBulkheadInterceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/auth/**");
+    }
+}
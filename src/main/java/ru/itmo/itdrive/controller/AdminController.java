@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.itmo.itdrive.dto.RouteStatisticsResponse;
 import ru.itmo.itdrive.dto.StatisticsResponse;
+import ru.itmo.itdrive.dto.UserStatisticsMismatchResponse;
 import ru.itmo.itdrive.model.Review;
 import ru.itmo.itdrive.model.User;
 import ru.itmo.itdrive.service.AdminService;
@@ -29,14 +30,39 @@ public class AdminController {
         return ResponseEntity.ok(statistics);
     }
 
+    // Пересчет дневной сводки trip_daily_stats за период (без границ - за всю историю)
+    @PostMapping("/statistics/rebuild")
+    public ResponseEntity<Integer> rebuildStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        Integer rebuilt = adminService.rebuildStatistics(startDate, endDate);
+        return ResponseEntity.ok(rebuilt);
+    }
+
     @GetMapping("/routes/popular")
     public ResponseEntity<List<RouteStatisticsResponse>> getPopularRoutes(
-            @RequestParam(defaultValue = "10") Integer limit
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(defaultValue = "all") String window
     ) {
-        List<RouteStatisticsResponse> routes = adminService.getPopularRoutes(limit);
+        List<RouteStatisticsResponse> routes = adminService.getPopularRoutes(limit, window);
         return ResponseEntity.ok(routes);
     }
 
+    // Полный пересчет проекции user_stats (для одного пользователя или для всех)
+    @PostMapping("/user-stats/rebuild")
+    public ResponseEntity<Integer> rebuildUserStatistics(@RequestParam(required = false) Long userId) {
+        Integer rebuilt = adminService.rebuildUserStatistics(userId);
+        return ResponseEntity.ok(rebuilt);
+    }
+
+    // Пользователи, у которых проекция user_stats расходится с таблицей bookings
+    @GetMapping("/user-stats/check")
+    public ResponseEntity<List<UserStatisticsMismatchResponse>> checkUserStatistics() {
+        List<UserStatisticsMismatchResponse> mismatches = adminService.checkUserStatistics();
+        return ResponseEntity.ok(mismatches);
+    }
+
     @GetMapping("/users")
     public ResponseEntity<List<User>> getAllUsers() {
         List<User> users = adminService.getAllUsers();
@@ -5,10 +5,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.itmo.itdrive.dto.BookingBatchResponse;
+import ru.itmo.itdrive.dto.BookingDecisionsRequest;
+import ru.itmo.itdrive.dto.BookingDecisionsResponse;
+import ru.itmo.itdrive.dto.BookingResponse;
+import ru.itmo.itdrive.dto.CreateBookingBatchRequest;
 import ru.itmo.itdrive.dto.CreateBookingRequest;
-import ru.itmo.itdrive.model.Booking;
 import ru.itmo.itdrive.service.BookingService;
-import ru.itmo.itdrive.service.UserService;
 import ru.itmo.itdrive.util.SecurityUtil;
 
 import java.util.List;
@@ -19,33 +22,55 @@ import java.util.List;
 public class BookingController {
     
     private final BookingService bookingService;
-    private final UserService userService;
 
     @PostMapping
-    public ResponseEntity<Booking> createBooking(@Valid @RequestBody CreateBookingRequest request) {
-        Long passengerId = SecurityUtil.getCurrentUserId(userService);
+    public ResponseEntity<BookingResponse> createBooking(@Valid @RequestBody CreateBookingRequest request) {
+        Long passengerId = SecurityUtil.getCurrentUserId();
         if (passengerId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        Booking booking = bookingService.createBooking(request, passengerId);
+        BookingResponse booking = bookingService.createBooking(request, passengerId);
         return ResponseEntity.status(HttpStatus.CREATED).body(booking);
     }
 
+    // Несколько бронирований одним запросом: все или ни одного
+    @PostMapping("/batch")
+    public ResponseEntity<BookingBatchResponse> createBookings(@Valid @RequestBody CreateBookingBatchRequest request) {
+        Long passengerId = SecurityUtil.getCurrentUserId();
+        if (passengerId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        BookingBatchResponse response = bookingService.createBookings(request, passengerId);
+        HttpStatus status = response.getSuccess() ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(response);
+    }
+
     @GetMapping("/passenger/{passengerId}")
-    public ResponseEntity<List<Booking>> getBookingsByPassenger(@PathVariable Long passengerId) {
-        List<Booking> bookings = bookingService.getBookingsByPassenger(passengerId);
+    public ResponseEntity<List<BookingResponse>> getBookingsByPassenger(@PathVariable Long passengerId) {
+        List<BookingResponse> bookings = bookingService.getBookingsByPassenger(passengerId);
         return ResponseEntity.ok(bookings);
     }
 
     @GetMapping("/trip/{tripId}")
-    public ResponseEntity<List<Booking>> getBookingsByTrip(@PathVariable Long tripId) {
-        List<Booking> bookings = bookingService.getBookingsByTrip(tripId);
+    public ResponseEntity<List<BookingResponse>> getBookingsByTrip(@PathVariable Long tripId) {
+        List<BookingResponse> bookings = bookingService.getBookingsByTrip(tripId);
         return ResponseEntity.ok(bookings);
     }
 
+    // Подтверждение и отмена нескольких бронирований поездки водителем одним запросом
+    @PutMapping("/trip/{tripId}/decisions")
+    public ResponseEntity<BookingDecisionsResponse> decideBookings(@PathVariable Long tripId,
+                                                                   @Valid @RequestBody BookingDecisionsRequest request) {
+        Long driverId = SecurityUtil.getCurrentUserId();
+        if (driverId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(bookingService.decideBookings(tripId, request, driverId));
+    }
+
     @PutMapping("/{id}/confirm")
     public ResponseEntity<Void> confirmBooking(@PathVariable Long id) {
-        Long driverId = SecurityUtil.getCurrentUserId(userService);
+        Long driverId = SecurityUtil.getCurrentUserId();
         if (driverId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -55,7 +80,7 @@ public class BookingController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> cancelBooking(@PathVariable Long id) {
-        Long userId = SecurityUtil.getCurrentUserId(userService);
+        Long userId = SecurityUtil.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -7,7 +7,6 @@ import ru.itmo.itdrive.dto.DriverStatisticsResponse;
 import ru.itmo.itdrive.dto.UpdateDriverCarRequest;
 import ru.itmo.itdrive.model.Driver;
 import ru.itmo.itdrive.service.DriverService;
-import ru.itmo.itdrive.service.UserService;
 import ru.itmo.itdrive.util.SecurityUtil;
 
 @RestController
@@ -16,11 +15,10 @@ import ru.itmo.itdrive.util.SecurityUtil;
 public class DriverController {
 
     private final DriverService driverService;
-    private final UserService userService;
 
     @GetMapping("/car")
     public ResponseEntity<Driver> getDriverCar() {
-        Long userId = SecurityUtil.getCurrentUserId(userService);
+        Long userId = SecurityUtil.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
@@ -36,7 +34,7 @@ public class DriverController {
 
     @PutMapping("/car")
     public ResponseEntity<Driver> updateDriverCar(@RequestBody UpdateDriverCarRequest request) {
-        Long userId = SecurityUtil.getCurrentUserId(userService);
+        Long userId = SecurityUtil.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
@@ -46,7 +44,7 @@ public class DriverController {
 
     @GetMapping("/statistics")
     public ResponseEntity<DriverStatisticsResponse> getDriverStatistics() {
-        Long userId = SecurityUtil.getCurrentUserId(userService);
+        Long userId = SecurityUtil.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
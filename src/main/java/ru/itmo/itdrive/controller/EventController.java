@@ -0,0 +1,40 @@
+package ru.itmo.itdrive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.itmo.itdrive.dto.UserEventsResponse;
+import ru.itmo.itdrive.service.UserEventInbox;
+import ru.itmo.itdrive.util.SecurityUtil;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class EventController {
+
+    private final UserEventInbox userEventInbox;
+
+    @Value("${user-events.max-wait-seconds:60}")
+    private long maxWaitSeconds;
+
+    // Long-poll: after - курсор из предыдущего ответа (0 при первом запросе), wait - сколько ждать новых событий
+    @GetMapping
+    public DeferredResult<UserEventsResponse> pollEvents(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "25") long wait
+    ) {
+        Long userId = SecurityUtil.getCurrentUserId();
+        if (userId == null) {
+            throw new AuthenticationCredentialsNotFoundException("Требуется аутентификация");
+        }
+        if (after < 0 || wait < 0) {
+            throw new IllegalArgumentException("Некорректные параметры ожидания событий");
+        }
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(Math.min(wait, maxWaitSeconds));
+        return userEventInbox.poll(userId, after, timeoutMillis);
+    }
+}
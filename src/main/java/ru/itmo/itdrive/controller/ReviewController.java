@@ -8,7 +8,6 @@ import org.springframework.web.bind.annotation.*;
 import ru.itmo.itdrive.dto.CreateReviewRequest;
 import ru.itmo.itdrive.model.Review;
 import ru.itmo.itdrive.service.ReviewService;
-import ru.itmo.itdrive.service.UserService;
 import ru.itmo.itdrive.util.SecurityUtil;
 
 import java.util.List;
@@ -19,11 +18,10 @@ import java.util.List;
 public class ReviewController {
     
     private final ReviewService reviewService;
-    private final UserService userService;
 
     @PostMapping
     public ResponseEntity<Review> createReview(@Valid @RequestBody CreateReviewRequest request) {
-        Long reviewerId = SecurityUtil.getCurrentUserId(userService);
+        Long reviewerId = SecurityUtil.getCurrentUserId();
         if (reviewerId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -39,7 +37,7 @@ public class ReviewController {
 
     @GetMapping("/booking/{bookingId}/exists")
     public ResponseEntity<Boolean> checkReviewExists(@PathVariable Long bookingId) {
-        Long userId = SecurityUtil.getCurrentUserId(userService);
+        Long userId = SecurityUtil.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -2,16 +2,24 @@ package ru.itmo.itdrive.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.itmo.itdrive.dto.CreateTripRequest;
+import ru.itmo.itdrive.dto.NearbyTripResponse;
+import ru.itmo.itdrive.dto.TripMatchResponse;
+import ru.itmo.itdrive.dto.TripPageResponse;
+import ru.itmo.itdrive.dto.TripResponse;
 import ru.itmo.itdrive.dto.TripSearchRequest;
-import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.service.TripEventHub;
+import ru.itmo.itdrive.service.TripMatchingService;
 import ru.itmo.itdrive.service.TripService;
-import ru.itmo.itdrive.service.UserService;
 import ru.itmo.itdrive.util.SecurityUtil;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,39 +28,79 @@ import java.util.List;
 public class TripController {
     
     private final TripService tripService;
-    private final UserService userService;
+    private final TripMatchingService tripMatchingService;
+    private final TripEventHub tripEventHub;
 
     @PostMapping
-    public ResponseEntity<Trip> createTrip(@Valid @RequestBody CreateTripRequest request) {
-        Long driverId = SecurityUtil.getCurrentUserId(userService);
+    public ResponseEntity<TripResponse> createTrip(@Valid @RequestBody CreateTripRequest request) {
+        Long driverId = SecurityUtil.getCurrentUserId();
         if (driverId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        Trip trip = tripService.createTrip(request, driverId);
+        TripResponse trip = tripService.createTrip(request, driverId);
         return ResponseEntity.status(HttpStatus.CREATED).body(trip);
     }
 
     @GetMapping
-    public ResponseEntity<List<Trip>> searchTrips(@ModelAttribute TripSearchRequest request) {
-        List<Trip> trips = tripService.searchTrips(request);
+    public ResponseEntity<List<TripResponse>> searchTrips(@ModelAttribute TripSearchRequest request) {
+        List<TripResponse> trips = tripService.searchTrips(request);
+        return ResponseEntity.ok(trips);
+    }
+
+    // Поток изменений мест и статусов (SSE) для маршрута и/или списка поездок вместо повторного поиска
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTrips(
+            @RequestParam(required = false) Long fromBuildingId,
+            @RequestParam(required = false) Long toBuildingId,
+            @RequestParam(required = false) List<Long> tripIds
+    ) {
+        return tripEventHub.subscribe(fromBuildingId, toBuildingId, tripIds);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<TripPageResponse> searchTripsPage(@ModelAttribute TripSearchRequest request) {
+        TripPageResponse page = tripService.searchTripsPage(request);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyTripResponse>> findNearbyTrips(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer limit
+    ) {
+        List<NearbyTripResponse> trips = tripService.findNearbyTrips(latitude, longitude, radius, limit);
+        return ResponseEntity.ok(trips);
+    }
+
+    @GetMapping("/match")
+    public ResponseEntity<List<TripMatchResponse>> matchTrips(
+            @RequestParam Long fromBuildingId,
+            @RequestParam Long toBuildingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime departureTime,
+            @RequestParam(required = false) Double walkRadius,
+            @RequestParam(required = false) Integer limit
+    ) {
+        List<TripMatchResponse> trips = tripMatchingService.match(fromBuildingId, toBuildingId, departureTime, walkRadius, limit);
         return ResponseEntity.ok(trips);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Trip> getTrip(@PathVariable Long id) {
-        Trip trip = tripService.getTripById(id);
+    public ResponseEntity<TripResponse> getTrip(@PathVariable Long id) {
+        TripResponse trip = tripService.getTripResponse(id);
         return ResponseEntity.ok(trip);
     }
 
     @GetMapping("/driver/{driverId}")
-    public ResponseEntity<List<Trip>> getDriverTrips(@PathVariable Long driverId) {
-        List<Trip> trips = tripService.getTripsByDriver(driverId);
+    public ResponseEntity<List<TripResponse>> getDriverTrips(@PathVariable Long driverId) {
+        List<TripResponse> trips = tripService.getTripsByDriver(driverId);
         return ResponseEntity.ok(trips);
     }
 
     @PutMapping("/{id}/start")
     public ResponseEntity<Void> startTrip(@PathVariable Long id) {
-        Long driverId = SecurityUtil.getCurrentUserId(userService);
+        Long driverId = SecurityUtil.getCurrentUserId();
         if (driverId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -62,7 +110,7 @@ public class TripController {
 
     @PutMapping("/{id}/complete")
     public ResponseEntity<Void> completeTrip(@PathVariable Long id) {
-        Long driverId = SecurityUtil.getCurrentUserId(userService);
+        Long driverId = SecurityUtil.getCurrentUserId();
         if (driverId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -72,7 +120,7 @@ public class TripController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> cancelTrip(@PathVariable Long id) {
-        Long driverId = SecurityUtil.getCurrentUserId(userService);
+        Long driverId = SecurityUtil.getCurrentUserId();
         if (driverId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
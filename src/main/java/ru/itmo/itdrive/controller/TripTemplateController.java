@@ -0,0 +1,61 @@
+package ru.itmo.itdrive.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.itmo.itdrive.dto.TripTemplateRequest;
+import ru.itmo.itdrive.dto.TripTemplateResponse;
+import ru.itmo.itdrive.service.TripTemplateService;
+import ru.itmo.itdrive.util.SecurityUtil;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/trip-templates")
+@RequiredArgsConstructor
+public class TripTemplateController {
+
+    private final TripTemplateService tripTemplateService;
+
+    @PostMapping
+    public ResponseEntity<TripTemplateResponse> createTemplate(@Valid @RequestBody TripTemplateRequest request) {
+        Long driverId = SecurityUtil.getCurrentUserId();
+        if (driverId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        TripTemplateResponse template = tripTemplateService.createTemplate(request, driverId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(template);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TripTemplateResponse>> getMyTemplates() {
+        Long driverId = SecurityUtil.getCurrentUserId();
+        if (driverId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(tripTemplateService.getTemplatesByDriver(driverId));
+    }
+
+    // Изменения применяются к будущим поездкам шаблона без активных бронирований
+    @PutMapping("/{id}")
+    public ResponseEntity<TripTemplateResponse> updateTemplate(@PathVariable Long id,
+                                                               @Valid @RequestBody TripTemplateRequest request) {
+        Long driverId = SecurityUtil.getCurrentUserId();
+        if (driverId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(tripTemplateService.updateTemplate(id, request, driverId));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deactivateTemplate(@PathVariable Long id) {
+        Long driverId = SecurityUtil.getCurrentUserId();
+        if (driverId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        tripTemplateService.deactivateTemplate(id, driverId);
+        return ResponseEntity.ok().build();
+    }
+}
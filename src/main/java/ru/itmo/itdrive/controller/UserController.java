@@ -3,11 +3,15 @@ package ru.itmo.itdrive.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.itmo.itdrive.dto.UserResponse;
 import ru.itmo.itdrive.dto.UserStatisticsResponse;
 import ru.itmo.itdrive.model.User;
 import ru.itmo.itdrive.repository.UserRepository;
+import ru.itmo.itdrive.security.UserAuthorityCache;
+import ru.itmo.itdrive.service.ResponseMapper;
 import ru.itmo.itdrive.service.UserService;
 import ru.itmo.itdrive.util.SecurityUtil;
+import ru.itmo.itdrive.util.TransactionUtil;
 
 @RestController
 @RequestMapping("/api/users")
@@ -16,20 +20,23 @@ public class UserController {
     
     private final UserService userService;
     private final UserRepository userRepository;
+    private final UserAuthorityCache userAuthorityCache;
+    private final ResponseMapper responseMapper;
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUser(@PathVariable Long id) {
-        User user = userService.getUserById(id);
+    public ResponseEntity<UserResponse> getUser(@PathVariable Long id) {
+        UserResponse user = userService.getUserResponse(id);
         return ResponseEntity.ok(user);
     }
 
     @PutMapping("/{id}/role")
-    public ResponseEntity<User> changeRole(@PathVariable Long id, @RequestParam String role) {
+    public ResponseEntity<UserResponse> changeRole(@PathVariable Long id, @RequestParam String role) {
         User user = userService.getUserById(id);
         try {
             user.setRole(User.UserRole.valueOf(role.toUpperCase()));
             userRepository.save(user);
-            return ResponseEntity.ok(user);
+            TransactionUtil.afterCommit(() -> userAuthorityCache.evict(id));
+            return ResponseEntity.ok(responseMapper.toUserResponse(user));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -37,7 +44,7 @@ public class UserController {
 
     @GetMapping("/profile/statistics")
     public ResponseEntity<UserStatisticsResponse> getUserStatistics() {
-        Long userId = SecurityUtil.getCurrentUserId(userService);
+        Long userId = SecurityUtil.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
@@ -0,0 +1,16 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingBatchItemResponse {
+    private Integer index;
+    private Long tripId;
+    private Integer seats;
+    private BookingResponse booking;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingBatchResponse {
+    private Boolean success;
+    private List<BookingBatchItemResponse> items;
+}
@@ -0,0 +1,15 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingDecisionResult {
+    private Long bookingId;
+    private String decision;
+    private Boolean applied;
+    private String status;
+}
@@ -0,0 +1,16 @@
+package ru.itmo.itdrive.dto;
+
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BookingDecisionsRequest {
+    @Size(max = 50, message = "Не больше 50 бронирований за раз")
+    private List<@Positive(message = "ID бронирования должен быть положительным") Long> confirm;
+
+    @Size(max = 50, message = "Не больше 50 бронирований за раз")
+    private List<@Positive(message = "ID бронирования должен быть положительным") Long> cancel;
+}
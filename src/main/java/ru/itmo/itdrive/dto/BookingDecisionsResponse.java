@@ -0,0 +1,18 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingDecisionsResponse {
+    private Long tripId;
+    private Integer availableSeats;
+    private Integer confirmedSeats;
+    private Integer pendingSeats;
+    private List<BookingDecisionResult> results;
+}
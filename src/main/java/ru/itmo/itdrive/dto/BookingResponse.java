@@ -0,0 +1,24 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.itdrive.model.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingResponse {
+    private Long id;
+    private TripResponse trip;
+    private UserSummary passenger;
+    private Booking.BookingStatus status;
+    private BigDecimal price;
+    private Booking.PaymentMethod paymentMethod;
+    private Integer seats;
+    private LocalDateTime createdAt;
+    private LocalDateTime holdExpiresAt;
+}
@@ -0,0 +1,16 @@
+package ru.itmo.itdrive.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateBookingBatchRequest {
+    @NotEmpty(message = "Пакет бронирований пуст")
+    @Size(max = 20, message = "В пакете не больше 20 бронирований")
+    @Valid
+    private List<CreateBookingRequest> items;
+}
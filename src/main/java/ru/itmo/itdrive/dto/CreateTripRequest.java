@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 public class CreateTripRequest {
@@ -25,4 +26,7 @@ public class CreateTripRequest {
     private BigDecimal price;
 
     private String description;
+
+    // Необязательно: без него отправление через час после создания
+    private LocalDateTime departureTime;
 }
@@ -0,0 +1,13 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyTripResponse {
+    private TripResponse trip;
+    private Double distanceMeters;
+}
@@ -0,0 +1,16 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripMatchResponse {
+    private TripResponse trip;
+    private Double originWalkMeters;
+    private Double destinationWalkMeters;
+    private Long departureOffsetMinutes;
+    private Double score;
+}
@@ -0,0 +1,27 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.itdrive.model.Trip;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripResponse {
+    private Long id;
+    private UserSummary driver;
+    private BuildingSummary fromBuilding;
+    private BuildingSummary toBuilding;
+    private LocalDateTime departureTime;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Integer maxPassengers;
+    private Integer availableSeats;
+    private BigDecimal price;
+    private Trip.TripStatus status;
+    private String description;
+}
@@ -11,4 +11,6 @@ public class TripSearchRequest {
     private LocalDateTime departureTimeFrom;
     private LocalDateTime departureTimeTo;
     private Integer maxPrice;
+    private String cursor;
+    private Integer size;
 }
@@ -0,0 +1,17 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.itdrive.model.Trip;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripSeatEvent {
+    private Long tripId;
+    private Long fromBuildingId;
+    private Long toBuildingId;
+    private Integer availableSeats;
+    private Trip.TripStatus status;
+}
@@ -0,0 +1,38 @@
+package ru.itmo.itdrive.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Set;
+
+@Data
+public class TripTemplateRequest {
+    @NotNull(message = "Корпус отправления обязателен")
+    @Positive(message = "ID корпуса должен быть положительным")
+    private Long fromBuildingId;
+
+    @NotNull(message = "Корпус назначения обязателен")
+    @Positive(message = "ID корпуса должен быть положительным")
+    private Long toBuildingId;
+
+    @NotEmpty(message = "Дни недели обязательны")
+    private Set<DayOfWeek> daysOfWeek;
+
+    @NotNull(message = "Время отправления обязательно")
+    private LocalTime departureTime;
+
+    @NotNull(message = "Количество мест обязательно")
+    @Positive(message = "Количество мест должно быть положительным")
+    private Integer maxPassengers;
+
+    @NotNull(message = "Цена обязательна")
+    @Positive(message = "Цена должна быть положительной")
+    private BigDecimal price;
+
+    private String description;
+}
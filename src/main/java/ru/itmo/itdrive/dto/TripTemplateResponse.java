@@ -0,0 +1,25 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripTemplateResponse {
+    private Long id;
+    private BuildingSummary fromBuilding;
+    private BuildingSummary toBuilding;
+    private Set<DayOfWeek> daysOfWeek;
+    private LocalTime departureTime;
+    private Integer maxPassengers;
+    private BigDecimal price;
+    private String description;
+    private Boolean active;
+}
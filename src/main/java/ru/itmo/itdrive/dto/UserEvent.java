@@ -0,0 +1,22 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEvent {
+    private Long seq;
+    private Type type;
+    private Long tripId;
+    private Long bookingId;
+    private LocalDateTime createdAt;
+
+    public enum Type {
+        BOOKING_CONFIRMED, BOOKING_CANCELLED, TRIP_STARTED, TRIP_CANCELLED
+    }
+}
@@ -0,0 +1,18 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEventsResponse {
+    private List<UserEvent> events;
+    // Передается в следующий запрос как after
+    private Long cursor;
+    // Часть событий после after потеряна (переполнение или перезапуск): состояние нужно перечитать
+    private Boolean truncated;
+}
@@ -0,0 +1,24 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.itdrive.model.User;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserResponse {
+    private Long id;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private User.UserRole role;
+    private String phoneNumber;
+    private Double rating;
+    private Integer totalTrips;
+    private Boolean isBlocked;
+    private LocalDateTime createdAt;
+}
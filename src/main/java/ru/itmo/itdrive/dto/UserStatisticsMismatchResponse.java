@@ -0,0 +1,22 @@
+package ru.itmo.itdrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatisticsMismatchResponse {
+    private Long userId;
+    private Long expectedTotalBookings;
+    private Long actualTotalBookings;
+    private Long expectedCompletedBookings;
+    private Long actualCompletedBookings;
+    private Long expectedCancelledBookings;
+    private Long actualCancelledBookings;
+    private BigDecimal expectedTotalSpent;
+    private BigDecimal actualTotalSpent;
+}
@@ -0,0 +1,7 @@
+package ru.itmo.itdrive.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.itmo.itdrive.filter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import ru.itmo.itdrive.exception.ServiceOverloadedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Bulkhead перед обращениями к БД: число одновременно обрабатываемых запросов ограничено
+// справедливыми семафорами отдельно для чтения (GET/HEAD) и записи, в сумме по размеру пула Druid.
+// Эндпоинты входа исключены в WebConfig: их стоимость - BCrypt, а не запросы к БД.
+// Остальные запросы ждут разрешения в очереди семафора, а не соединения в пуле,
+// и при ожидании дольше max-wait-ms получают 503.
+// С виртуальными потоками ожидание дешево, поэтому тысячи клиентов не занимают потоки Tomcat.
+@Component
+@ConditionalOnProperty(name = "bulkhead.enabled", havingValue = "true")
+public class DatabaseBulkheadInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = DatabaseBulkheadInterceptor.class.getName() + ".permit";
+
+    private final Compartment read;
+    private final Compartment write;
+    private final long maxWaitMillis;
+
+    public DatabaseBulkheadInterceptor(MeterRegistry meterRegistry,
+                                       @Value("${bulkhead.read-permits:14}") int readPermits,
+                                       @Value("${bulkhead.write-permits:6}") int writePermits,
+                                       @Value("${bulkhead.max-wait-ms:2000}") long maxWaitMillis) {
+        this.read = new Compartment("read", readPermits, meterRegistry);
+        this.write = new Compartment("write", writePermits, meterRegistry);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws InterruptedException {
+        // Повторная диспетчеризация асинхронного запроса выполняется уже без разрешения
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Compartment compartment = isRead(request) ? read : write;
+        compartment.acquire(maxWaitMillis);
+        request.setAttribute(PERMIT_ATTRIBUTE, compartment);
+        return true;
+    }
+
+    // Асинхронный обработчик не держит разрешение, пока ждет результата
+    @Override
+    public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request,
+                                               @NonNull HttpServletResponse response,
+                                               @NonNull Object handler) {
+        release(request);
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        release(request);
+    }
+
+    private static void release(HttpServletRequest request) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Compartment compartment) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            compartment.semaphore.release();
+        }
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static class Compartment {
+
+        private final Semaphore semaphore;
+        private final Timer acquired;
+        private final Timer rejected;
+
+        Compartment(String name, int permits, MeterRegistry meterRegistry) {
+            this.semaphore = new Semaphore(permits, true);
+            this.acquired = Timer.builder("bulkhead.wait")
+                    .description("Ожидание разрешения bulkhead")
+                    .tag("class", name)
+                    .tag("outcome", "acquired")
+                    .register(meterRegistry);
+            this.rejected = Timer.builder("bulkhead.wait")
+                    .description("Ожидание разрешения bulkhead")
+                    .tag("class", name)
+                    .tag("outcome", "rejected")
+                    .register(meterRegistry);
+            Gauge.builder("bulkhead.available", semaphore, Semaphore::availablePermits)
+                    .description("Свободные разрешения bulkhead")
+                    .tag("class", name)
+                    .register(meterRegistry);
+            Gauge.builder("bulkhead.queued", semaphore, Semaphore::getQueueLength)
+                    .description("Запросы в очереди bulkhead")
+                    .tag("class", name)
+                    .register(meterRegistry);
+        }
+
+        void acquire(long maxWaitMillis) throws InterruptedException {
+            long start = System.nanoTime();
+            boolean permitted = semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+            (permitted ? acquired : rejected).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!permitted) {
+                throw new ServiceOverloadedException("Сервер перегружен, повторите запрос позже");
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ru.itmo.itdrive.filter;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,6 +15,8 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.itmo.itdrive.security.AuthenticatedUser;
+import ru.itmo.itdrive.security.UserAuthorityCache;
 import ru.itmo.itdrive.util.JwtUtil;
 
 import java.io.IOException;
@@ -22,10 +26,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final UserAuthorityCache userAuthorityCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, @Lazy UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, @Lazy UserDetailsService userDetailsService,
+                                   UserAuthorityCache userAuthorityCache) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.userAuthorityCache = userAuthorityCache;
     }
 
     @Override
@@ -36,7 +43,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
+        final Claims claims;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -44,12 +51,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtUtil.extractUsername(jwt);
+        try {
+            // Подпись и срок действия проверяются при разборе токена
+            claims = jwtUtil.extractAllClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
+        final String userEmail = claims.getSubject();
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            UserDetails userDetails = resolveUserDetails(claims, userEmail);
             
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -62,4 +76,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails resolveUserDetails(Claims claims, String userEmail) {
+        // Быстрый путь: userId из подписанного токена, роль и блокировка из кэша с коротким TTL
+        if (claims.get("userId") instanceof Number userId) {
+            UserAuthorityCache.UserAuthority authority = userAuthorityCache.get(userId.longValue());
+            if (authority == null || authority.blocked()) {
+                return null;
+            }
+            return new AuthenticatedUser(userId.longValue(), userEmail, null, authority.role(), false);
+        }
+
+        // Токены без userId проверяются по БД, как раньше
+        UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+        if (userDetails instanceof AuthenticatedUser user && user.isBlocked()) {
+            return null;
+        }
+        return userDetails;
+    }
 }
@@ -0,0 +1,87 @@
+package ru.itmo.itdrive.metrics;
+
+import com.alibaba.druid.filter.FilterAdapter;
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidPooledConnection;
+import com.alibaba.druid.proxy.jdbc.DataSourceProxy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// Метрики пула Druid: Actuator не знает этот пул, поэтому фильтр засекает получение соединения,
+// а счетчики пула публикуются как gauge. Druid стартер сам добавляет бины Filter в пул.
+@Component
+public class DruidPoolMetrics extends FilterAdapter implements MeterBinder {
+
+    private volatile DruidDataSource dataSource;
+    private volatile Timer acquireTimer;
+
+    @Override
+    public void init(DataSourceProxy dataSourceProxy) {
+        if (dataSourceProxy instanceof DruidDataSource druidDataSource) {
+            this.dataSource = druidDataSource;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        acquireTimer = Timer.builder("druid.connections.acquire")
+                .description("Время получения соединения из пула, включая ожидание свободного")
+                .register(registry);
+
+        gauge(registry, "druid.connections.active", "Соединения, выданные приложению", DruidDataSource::getActiveCount);
+        gauge(registry, "druid.connections.idle", "Свободные соединения в пуле", DruidDataSource::getPoolingCount);
+        gauge(registry, "druid.connections.max", "Максимальный размер пула", DruidDataSource::getMaxActive);
+        gauge(registry, "druid.connections.pending", "Потоки, ожидающие соединение", DruidDataSource::getWaitThreadCount);
+
+        FunctionCounter.builder("druid.connections.wait", this,
+                        metrics -> metrics.value(DruidDataSource::getNotEmptyWaitCount))
+                .description("Число ожиданий свободного соединения")
+                .register(registry);
+        FunctionCounter.builder("druid.connections.wait.time", this,
+                        metrics -> metrics.value(ds -> ds.getNotEmptyWaitNanos() / 1e9))
+                .description("Суммарное время ожидания свободного соединения")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("druid.connections.errors", this,
+                        metrics -> metrics.value(DruidDataSource::getConnectErrorCount))
+                .description("Ошибки установки соединения с БД")
+                .register(registry);
+    }
+
+    @Override
+    public DruidPooledConnection dataSource_getConnection(FilterChain chain, DruidDataSource dataSource,
+                                                          long maxWaitMillis) throws SQLException {
+        Timer timer = acquireTimer;
+        if (timer == null) {
+            return super.dataSource_getConnection(chain, dataSource, maxWaitMillis);
+        }
+        long start = System.nanoTime();
+        try {
+            return super.dataSource_getConnection(chain, dataSource, maxWaitMillis);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description,
+                       ToDoubleFunction<DruidDataSource> value) {
+        Gauge.builder(name, this, metrics -> metrics.value(value))
+                .description(description)
+                .register(registry);
+    }
+
+    // До инициализации пула значения неизвестны
+    private double value(ToDoubleFunction<DruidDataSource> value) {
+        DruidDataSource current = dataSource;
+        return current != null ? value.applyAsDouble(current) : Double.NaN;
+    }
+}
@@ -0,0 +1,92 @@
+package ru.itmo.itdrive.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Время, число вызовов и ошибки каждого метода репозиториев с тегами репозитория, метода,
+// вызываемой PL/PGSQL функции и исхода. Ошибки - это вызовы с outcome=error.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private static final String METRIC_NAME = "itdrive.repository.calls";
+
+    private static final Pattern STORED_FUNCTION = Pattern.compile("\\bpublic\\.(\\w+)\\s*\\(");
+
+    private final MeterRegistry meterRegistry;
+
+    // Ключ - класс прокси: у всех Spring Data репозиториев общий целевой класс SimpleJpaRepository
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+    private final Map<Method, String> functionNames = new ConcurrentHashMap<>();
+
+    // Spring Data репозитории (прокси) и собственные классы с @Repository, например StatisticsRepository.
+    // Только execution и @within: по this() Spring не может отсеять бины заранее и проксирует весь контекст
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..)) "
+            + "|| @within(org.springframework.stereotype.Repository)")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object proxy = joinPoint.getThis();
+        String repository = repositoryNames.computeIfAbsent(proxy.getClass(), type -> repositoryName(proxy));
+        String function = functionNames.computeIfAbsent(method, RepositoryMetricsAspect::functionName);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = "error";
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .description("Вызовы методов репозиториев и PL/PGSQL функций")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .tag("function", function)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+
+    // У прокси Spring Data берется интерфейс репозитория, а не SimpleJpaRepository
+    private static String repositoryName(Object proxy) {
+        for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(proxy)) {
+            if (type.getPackageName().startsWith("ru.itmo.itdrive")) {
+                return type.getSimpleName();
+            }
+        }
+        return AopProxyUtils.ultimateTargetClass(proxy).getSimpleName();
+    }
+
+    private static String functionName(Method method) {
+        StoredFunction storedFunction = method.getAnnotation(StoredFunction.class);
+        if (storedFunction != null) {
+            return storedFunction.value();
+        }
+        Query query = method.getAnnotation(Query.class);
+        if (query != null && query.nativeQuery()) {
+            Matcher matcher = STORED_FUNCTION.matcher(query.value());
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return "none";
+    }
+}
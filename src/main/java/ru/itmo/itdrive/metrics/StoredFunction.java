@@ -0,0 +1,14 @@
+package ru.itmo.itdrive.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Имя PL/PGSQL функции для метрик метода, который вызывает ее через EntityManager, а не через @Query
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StoredFunction {
+
+    String value();
+}
@@ -60,6 +60,10 @@ public class Trip {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Шаблон, по которому сгенерирована поездка (null для созданных вручную)
+    @Column(name = "template_id")
+    private Long templateId;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,71 @@
+package ru.itmo.itdrive.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "trip_templates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripTemplate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "driver_id", nullable = false)
+    private User driver;
+
+    @ManyToOne
+    @JoinColumn(name = "from_building_id", nullable = false)
+    private Building fromBuilding;
+
+    @ManyToOne
+    @JoinColumn(name = "to_building_id", nullable = false)
+    private Building toBuilding;
+
+    // Битовая маска дней недели: бит 0 - понедельник, бит 6 - воскресенье
+    @Column(name = "days_of_week", nullable = false)
+    private Integer daysOfWeek;
+
+    @Column(name = "departure_time", nullable = false)
+    private LocalTime departureTime;
+
+    @Column(name = "max_passengers", nullable = false)
+    private Integer maxPassengers;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    private String description;
+
+    @Column(nullable = false)
+    private Boolean active;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (active == null) {
+            active = true;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -7,27 +7,149 @@ import org.springframework.stereotype.Repository;
 import ru.itmo.itdrive.model.Booking;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByTripId(Long tripId);
-    
-    List<Booking> findByPassengerId(Long passengerId);
+    // Проекция для ответов API: поездка подставляется отдельным запросом TripRepository.TripView
+    String BOOKING_VIEW_SELECT = "SELECT b.id AS id, b.status AS status, b.price AS price, " +
+            "b.paymentMethod AS paymentMethod, b.seats AS seats, b.createdAt AS createdAt, " +
+            "b.holdExpiresAt AS holdExpiresAt, b.trip.id AS tripId, " +
+            "p.id AS passengerId, p.firstName AS passengerFirstName, p.lastName AS passengerLastName, " +
+            "p.phoneNumber AS passengerPhoneNumber, p.rating AS passengerRating " +
+            "FROM Booking b JOIN b.passenger p ";
     
     Optional<Booking> findByTripIdAndPassengerId(Long tripId, Long passengerId);
     
-    @Query(value = "SELECT public.create_booking(:p_trip_id, :p_passenger_id, CAST(:p_price AS NUMERIC(10,2)), CAST(:p_payment_method AS VARCHAR(50)), CAST(:p_seats AS INTEGER))", nativeQuery = true)
+    @Query(BOOKING_VIEW_SELECT + "WHERE p.id = :passengerId ORDER BY b.id")
+    List<BookingView> findViewsByPassengerId(@Param("passengerId") Long passengerId);
+    
+    @Query(BOOKING_VIEW_SELECT + "WHERE b.trip.id = :tripId ORDER BY b.id")
+    List<BookingView> findViewsByTripId(@Param("tripId") Long tripId);
+    
+    @Query(BOOKING_VIEW_SELECT + "WHERE b.id = :id")
+    Optional<BookingView> findViewById(@Param("id") Long id);
+    
+    @Query(value = "SELECT public.create_booking(:p_trip_id, :p_passenger_id, CAST(:p_price AS NUMERIC(10,2)), CAST(:p_payment_method AS VARCHAR(50)), CAST(:p_seats AS INTEGER), CAST(:p_hold_expires_at AS TIMESTAMP))", nativeQuery = true)
     Long createBooking(@Param("p_trip_id") Long tripId,
                       @Param("p_passenger_id") Long passengerId,
                       @Param("p_price") BigDecimal price,
                       @Param("p_payment_method") String paymentMethod,
-                      @Param("p_seats") Integer seats);
+                      @Param("p_seats") Integer seats,
+                      @Param("p_hold_expires_at") LocalDateTime holdExpiresAt);
+    
+    @Query(BOOKING_VIEW_SELECT + "WHERE b.id IN :ids ORDER BY b.id")
+    List<BookingView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // p_items - JSON массив элементов {trip_id, seats, payment_method}
+    @Query(value = "SELECT item_index AS \"itemIndex\", trip_id AS \"tripId\", booking_id AS \"bookingId\", " +
+            "seats AS \"seats\", available_seats AS \"availableSeats\", error AS \"error\" " +
+            "FROM public.create_bookings_batch(:p_passenger_id, CAST(:p_items AS JSONB), " +
+            "CAST(:p_hold_expires_at AS TIMESTAMP))", nativeQuery = true)
+    List<BookingBatchRow> createBookingsBatch(@Param("p_passenger_id") Long passengerId,
+                                              @Param("p_items") String items,
+                                              @Param("p_hold_expires_at") LocalDateTime holdExpiresAt);
+    
+    // Массивы id передаются литералами вида {1,2,3}
+    @Query(value = "SELECT booking_id AS \"bookingId\", decision AS \"decision\", applied AS \"applied\", " +
+            "status AS \"status\", available_seats AS \"availableSeats\", confirmed_seats AS \"confirmedSeats\", " +
+            "pending_seats AS \"pendingSeats\" " +
+            "FROM public.decide_bookings(:p_trip_id, CAST(:p_confirm_ids AS BIGINT[]), CAST(:p_cancel_ids AS BIGINT[]))",
+            nativeQuery = true)
+    List<BookingDecisionRow> decideBookings(@Param("p_trip_id") Long tripId,
+                                            @Param("p_confirm_ids") String confirmIds,
+                                            @Param("p_cancel_ids") String cancelIds);
+    
+    // Ожидающие бронирования для восстановления удержаний при запуске
+    @Query(value = "SELECT id AS \"id\", hold_expires_at AS \"holdExpiresAt\" FROM public.bookings " +
+            "WHERE status = 'PENDING' AND hold_expires_at IS NOT NULL", nativeQuery = true)
+    List<BookingHoldView> findPendingHolds();
+    
+    @Query(value = "SELECT trip_id AS \"tripId\", available_seats AS \"availableSeats\", " +
+            "expired_bookings AS \"expiredBookings\" " +
+            "FROM public.expire_booking_holds(CAST(:p_booking_ids AS BIGINT[]), CAST(:p_now AS TIMESTAMP))",
+            nativeQuery = true)
+    List<ExpiredHoldRow> expireHolds(@Param("p_booking_ids") String bookingIds,
+                                     @Param("p_now") LocalDateTime now);
+    
+    // Пассажиры бронирований для уведомлений
+    @Query("SELECT b.id AS bookingId, b.trip.id AS tripId, b.passenger.id AS passengerId " +
+            "FROM Booking b WHERE b.id IN :ids")
+    List<BookingParticipantView> findParticipantsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Активные бронирования поездок. Строки поездок блокируются до конца транзакции, поэтому
+    // новые бронирования не появятся до отмены или истечения поездки в этой же транзакции
+    @Query(value = "SELECT b.id AS \"bookingId\", b.trip_id AS \"tripId\", b.passenger_id AS \"passengerId\" " +
+            "FROM public.bookings b JOIN public.trips t ON t.id = b.trip_id " +
+            "WHERE b.trip_id IN (:tripIds) AND b.status IN ('PENDING', 'CONFIRMED') FOR UPDATE OF t",
+            nativeQuery = true)
+    List<BookingParticipantView> lockActiveParticipantsByTripIdIn(@Param("tripIds") Collection<Long> tripIds);
+    
+    // Удержания, которые истекут при вызове expireHolds с тем же now: строки блокируются до конца транзакции
+    @Query(value = "SELECT id AS \"bookingId\", trip_id AS \"tripId\", passenger_id AS \"passengerId\" " +
+            "FROM public.bookings WHERE id IN (:ids) AND status = 'PENDING' AND hold_expires_at <= :now FOR UPDATE",
+            nativeQuery = true)
+    List<BookingParticipantView> lockExpiredHolds(@Param("ids") Collection<Long> ids,
+                                                  @Param("now") LocalDateTime now);
     
     @Query(value = "SELECT public.confirm_booking(:p_booking_id)", nativeQuery = true)
     Boolean confirmBooking(@Param("p_booking_id") Long bookingId);
     
     @Query(value = "SELECT public.cancel_booking(:p_booking_id)", nativeQuery = true)
     Boolean cancelBooking(@Param("p_booking_id") Long bookingId);
+    
+    interface BookingBatchRow {
+        Integer getItemIndex();
+        Long getTripId();
+        Long getBookingId();
+        Integer getSeats();
+        Integer getAvailableSeats();
+        String getError();
+    }
+    
+    interface BookingDecisionRow {
+        Long getBookingId();
+        String getDecision();
+        Boolean getApplied();
+        String getStatus();
+        Integer getAvailableSeats();
+        Integer getConfirmedSeats();
+        Integer getPendingSeats();
+    }
+    
+    interface BookingHoldView {
+        Long getId();
+        LocalDateTime getHoldExpiresAt();
+    }
+    
+    interface BookingParticipantView {
+        Long getBookingId();
+        Long getTripId();
+        Long getPassengerId();
+    }
+    
+    interface ExpiredHoldRow {
+        Long getTripId();
+        Integer getAvailableSeats();
+        Integer getExpiredBookings();
+    }
+    
+    interface BookingView {
+        Long getId();
+        Booking.BookingStatus getStatus();
+        BigDecimal getPrice();
+        Booking.PaymentMethod getPaymentMethod();
+        Integer getSeats();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getHoldExpiresAt();
+        Long getTripId();
+        Long getPassengerId();
+        String getPassengerFirstName();
+        String getPassengerLastName();
+        String getPassengerPhoneNumber();
+        Double getPassengerRating();
+    }
 }
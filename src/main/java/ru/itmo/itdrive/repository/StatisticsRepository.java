@@ -4,9 +4,12 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import org.springframework.stereotype.Repository;
+import ru.itmo.itdrive.metrics.StoredFunction;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +19,7 @@ public class StatisticsRepository {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @StoredFunction("get_trip_statistics")
     public TripStatisticsResult getTripStatistics(LocalDate startDate, LocalDate endDate) {
         Query query = entityManager.createNativeQuery(
                 "SELECT * FROM get_trip_statistics(?1, ?2)"
@@ -48,26 +52,38 @@ public class StatisticsRepository {
         };
     }
 
+    @StoredFunction("rebuild_trip_daily_stats")
+    public Integer rebuildTripDailyStatistics(LocalDate startDate, LocalDate endDate) {
+        Query query = entityManager.createNativeQuery(
+                "SELECT public.rebuild_trip_daily_stats(CAST(?1 AS DATE), CAST(?2 AS DATE))"
+        );
+        query.setParameter(1, startDate);
+        query.setParameter(2, endDate);
+        return ((Number) query.getSingleResult()).intValue();
+    }
+
     @SuppressWarnings("unchecked")
-    public List<PopularRouteResult> getPopularRoutes(Integer limit) {
+    public List<RouteCountResult> getCompletedRouteCounts() {
         Query query = entityManager.createNativeQuery(
-                "SELECT * FROM get_popular_routes(?1)"
+                "SELECT t.from_building_id, t.to_building_id, COUNT(*) " +
+                "FROM public.trips t " +
+                "WHERE t.status = 'COMPLETED' " +
+                "GROUP BY t.from_building_id, t.to_building_id"
         );
-        query.setParameter(1, limit != null ? limit : 10);
         
         List<Object[]> results = query.getResultList();
-        List<PopularRouteResult> routes = new ArrayList<>();
+        List<RouteCountResult> routes = new ArrayList<>();
         
         for (Object[] row : results) {
-            routes.add(new PopularRouteResult() {
+            routes.add(new RouteCountResult() {
                 @Override
-                public String getFromBuildingName() {
-                    return (String) row[0];
+                public Long getFromBuildingId() {
+                    return ((Number) row[0]).longValue();
                 }
 
                 @Override
-                public String getToBuildingName() {
-                    return (String) row[1];
+                public Long getToBuildingId() {
+                    return ((Number) row[1]).longValue();
                 }
 
                 @Override
@@ -80,6 +96,235 @@ public class StatisticsRepository {
         return routes;
     }
     
+    @SuppressWarnings("unchecked")
+    public List<RouteCompletionResult> getCompletedRoutesSince(LocalDateTime since) {
+        Query query = entityManager.createNativeQuery(
+                "SELECT t.from_building_id, t.to_building_id, t.finished_at " +
+                "FROM public.trips t " +
+                "WHERE t.status = 'COMPLETED' AND t.finished_at >= ?1"
+        );
+        query.setParameter(1, since);
+        
+        List<Object[]> results = query.getResultList();
+        List<RouteCompletionResult> completions = new ArrayList<>();
+        
+        for (Object[] row : results) {
+            completions.add(new RouteCompletionResult() {
+                @Override
+                public Long getFromBuildingId() {
+                    return ((Number) row[0]).longValue();
+                }
+
+                @Override
+                public Long getToBuildingId() {
+                    return ((Number) row[1]).longValue();
+                }
+
+                @Override
+                public LocalDateTime getFinishedAt() {
+                    return row[2] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[2];
+                }
+            });
+        }
+        
+        return completions;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public DriverStatisticsResult getDriverStatistics(Long driverId) {
+        // Все показатели водителя считаются одним запросом вместо запроса бронирований по каждой поездке
+        Query query = entityManager.createNativeQuery(
+                "SELECT u.rating, u.total_trips, " +
+                "       ts.total_trips, ts.completed_trips, ts.cancelled_trips, " +
+                "       bs.total_passengers, bs.total_earnings " +
+                "FROM public.users u " +
+                "CROSS JOIN LATERAL ( " +
+                "    SELECT COUNT(*) AS total_trips, " +
+                "           COUNT(*) FILTER (WHERE t.status = 'COMPLETED') AS completed_trips, " +
+                "           COUNT(*) FILTER (WHERE t.status = 'CANCELLED') AS cancelled_trips " +
+                "    FROM public.trips t " +
+                "    WHERE t.driver_id = u.id " +
+                ") ts " +
+                "CROSS JOIN LATERAL ( " +
+                "    SELECT COUNT(DISTINCT b.passenger_id) AS total_passengers, " +
+                "           COALESCE(SUM(b.price) FILTER (WHERE t.status = 'COMPLETED'), 0) AS total_earnings " +
+                "    FROM public.trips t " +
+                "    JOIN public.bookings b ON b.trip_id = t.id " +
+                "    WHERE t.driver_id = u.id AND b.status = 'COMPLETED' " +
+                ") bs " +
+                "WHERE u.id = ?1"
+        );
+        query.setParameter(1, driverId);
+        
+        List<Object[]> results = query.getResultList();
+        if (results.isEmpty()) {
+            return null;
+        }
+        Object[] result = results.get(0);
+        
+        return new DriverStatisticsResult() {
+            @Override
+            public Double getAverageRating() {
+                return result[0] != null ? ((Number) result[0]).doubleValue() : null;
+            }
+
+            @Override
+            public Integer getTotalTripsCount() {
+                return result[1] != null ? ((Number) result[1]).intValue() : null;
+            }
+
+            @Override
+            public Long getTotalTrips() {
+                return ((Number) result[2]).longValue();
+            }
+
+            @Override
+            public Long getCompletedTrips() {
+                return ((Number) result[3]).longValue();
+            }
+
+            @Override
+            public Long getCancelledTrips() {
+                return ((Number) result[4]).longValue();
+            }
+
+            @Override
+            public Long getTotalPassengers() {
+                return ((Number) result[5]).longValue();
+            }
+
+            @Override
+            public BigDecimal getTotalEarnings() {
+                return (BigDecimal) result[6];
+            }
+        };
+    }
+    
+    @SuppressWarnings("unchecked")
+    public UserStatisticsResult getUserStatistics(Long userId) {
+        // Одна строка по первичному ключу: счетчики бронирований поддерживаются триггером в user_stats
+        Query query = entityManager.createNativeQuery(
+                "SELECT u.rating, u.total_trips, " +
+                "       COALESCE(s.total_bookings, 0), COALESCE(s.completed_bookings, 0), " +
+                "       COALESCE(s.cancelled_bookings, 0), COALESCE(s.total_spent, 0) " +
+                "FROM public.users u " +
+                "LEFT JOIN public.user_stats s ON s.user_id = u.id " +
+                "WHERE u.id = ?1"
+        );
+        query.setParameter(1, userId);
+        
+        List<Object[]> results = query.getResultList();
+        if (results.isEmpty()) {
+            return null;
+        }
+        Object[] result = results.get(0);
+        
+        return new UserStatisticsResult() {
+            @Override
+            public Double getAverageRating() {
+                return result[0] != null ? ((Number) result[0]).doubleValue() : null;
+            }
+
+            @Override
+            public Integer getTotalTrips() {
+                return result[1] != null ? ((Number) result[1]).intValue() : null;
+            }
+
+            @Override
+            public Long getTotalBookings() {
+                return ((Number) result[2]).longValue();
+            }
+
+            @Override
+            public Long getCompletedBookings() {
+                return ((Number) result[3]).longValue();
+            }
+
+            @Override
+            public Long getCancelledBookings() {
+                return ((Number) result[4]).longValue();
+            }
+
+            @Override
+            public BigDecimal getTotalSpent() {
+                return (BigDecimal) result[5];
+            }
+        };
+    }
+    
+    @StoredFunction("rebuild_user_stats")
+    public Integer rebuildUserStatistics(Long userId) {
+        Query query = entityManager.createNativeQuery(
+                userId != null ? "SELECT public.rebuild_user_stats(?1)" : "SELECT public.rebuild_user_stats()"
+        );
+        if (userId != null) {
+            query.setParameter(1, userId);
+        }
+        return ((Number) query.getSingleResult()).intValue();
+    }
+    
+    @StoredFunction("check_user_stats")
+    @SuppressWarnings("unchecked")
+    public List<UserStatisticsMismatchResult> checkUserStatistics() {
+        Query query = entityManager.createNativeQuery(
+                "SELECT * FROM public.check_user_stats()"
+        );
+        
+        List<Object[]> results = query.getResultList();
+        List<UserStatisticsMismatchResult> mismatches = new ArrayList<>();
+        
+        for (Object[] row : results) {
+            mismatches.add(new UserStatisticsMismatchResult() {
+                @Override
+                public Long getUserId() {
+                    return ((Number) row[0]).longValue();
+                }
+
+                @Override
+                public Long getExpectedTotalBookings() {
+                    return ((Number) row[1]).longValue();
+                }
+
+                @Override
+                public Long getActualTotalBookings() {
+                    return ((Number) row[2]).longValue();
+                }
+
+                @Override
+                public Long getExpectedCompletedBookings() {
+                    return ((Number) row[3]).longValue();
+                }
+
+                @Override
+                public Long getActualCompletedBookings() {
+                    return ((Number) row[4]).longValue();
+                }
+
+                @Override
+                public Long getExpectedCancelledBookings() {
+                    return ((Number) row[5]).longValue();
+                }
+
+                @Override
+                public Long getActualCancelledBookings() {
+                    return ((Number) row[6]).longValue();
+                }
+
+                @Override
+                public BigDecimal getExpectedTotalSpent() {
+                    return (BigDecimal) row[7];
+                }
+
+                @Override
+                public BigDecimal getActualTotalSpent() {
+                    return (BigDecimal) row[8];
+                }
+            });
+        }
+        
+        return mismatches;
+    }
+    
     public interface TripStatisticsResult {
         Long getTotalTrips();
         Long getCompletedTrips();
@@ -87,9 +332,46 @@ public class StatisticsRepository {
         BigDecimal getTotalRevenue();
     }
     
-    public interface PopularRouteResult {
-        String getFromBuildingName();
-        String getToBuildingName();
+    public interface RouteCountResult {
+        Long getFromBuildingId();
+        Long getToBuildingId();
         Long getTripCount();
     }
+    
+    public interface RouteCompletionResult {
+        Long getFromBuildingId();
+        Long getToBuildingId();
+        LocalDateTime getFinishedAt();
+    }
+    
+    public interface DriverStatisticsResult {
+        Double getAverageRating();
+        Integer getTotalTripsCount();
+        Long getTotalTrips();
+        Long getCompletedTrips();
+        Long getCancelledTrips();
+        Long getTotalPassengers();
+        BigDecimal getTotalEarnings();
+    }
+    
+    public interface UserStatisticsResult {
+        Double getAverageRating();
+        Integer getTotalTrips();
+        Long getTotalBookings();
+        Long getCompletedBookings();
+        Long getCancelledBookings();
+        BigDecimal getTotalSpent();
+    }
+    
+    public interface UserStatisticsMismatchResult {
+        Long getUserId();
+        Long getExpectedTotalBookings();
+        Long getActualTotalBookings();
+        Long getExpectedCompletedBookings();
+        Long getActualCompletedBookings();
+        Long getExpectedCancelledBookings();
+        Long getActualCancelledBookings();
+        BigDecimal getExpectedTotalSpent();
+        BigDecimal getActualTotalSpent();
+    }
 }
@@ -8,12 +8,32 @@ import ru.itmo.itdrive.model.Trip;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TripRepository extends JpaRepository<Trip, Long> {
+public interface TripRepository extends JpaRepository<Trip, Long>, TripSearchRepository {
+    // Проекция для ответов API: только нужные колонки поездки и водителя, корпуса берутся из BuildingCatalog
+    String TRIP_VIEW_SELECT = "SELECT t.id AS id, t.departureTime AS departureTime, t.startedAt AS startedAt, " +
+            "t.finishedAt AS finishedAt, t.maxPassengers AS maxPassengers, t.availableSeats AS availableSeats, " +
+            "t.price AS price, t.status AS status, t.description AS description, " +
+            "t.fromBuilding.id AS fromBuildingId, t.toBuilding.id AS toBuildingId, " +
+            "d.id AS driverId, d.firstName AS driverFirstName, d.lastName AS driverLastName, " +
+            "d.phoneNumber AS driverPhoneNumber, d.rating AS driverRating " +
+            "FROM Trip t JOIN t.driver d ";
+    
     List<Trip> findByDriverId(Long driverId);
     
+    @Query(TRIP_VIEW_SELECT + "WHERE d.id = :driverId ORDER BY t.id")
+    List<TripView> findViewsByDriverId(@Param("driverId") Long driverId);
+    
+    @Query(TRIP_VIEW_SELECT + "WHERE t.id = :id")
+    Optional<TripView> findViewById(@Param("id") Long id);
+    
+    @Query(TRIP_VIEW_SELECT + "WHERE t.id IN :ids")
+    List<TripView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
     @Query(value = "SELECT * FROM public.trips WHERE status = CAST(:status AS public.trip_status)", nativeQuery = true)
     List<Trip> findByStatus(@Param("status") String status);
     
@@ -22,6 +42,10 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
                                                     @Param("toId") Long toId,
                                                     @Param("status") String status);
     
+    @Query(value = "SELECT id AS \"id\", available_seats AS \"availableSeats\" FROM public.trips WHERE id IN (:ids)",
+            nativeQuery = true)
+    List<TripSeatsView> findSeatsByIdIn(@Param("ids") Collection<Long> ids);
+    
     @Query(value = "SELECT public.create_trip(:p_driver_id, :p_from_building_id, :p_to_building_id, CAST(:p_departure_time AS TIMESTAMP), :p_max_passengers, CAST(:p_price AS NUMERIC(10,2)), CAST(:p_description AS TEXT))", nativeQuery = true)
     Long createTrip(@Param("p_driver_id") Long driverId,
                     @Param("p_from_building_id") Long fromBuildingId,
@@ -39,4 +63,58 @@ public interface TripRepository extends JpaRepository<Trip, Long> {
     
     @Query(value = "SELECT public.cancel_trip(:p_trip_id)", nativeQuery = true)
     Boolean cancelTrip(@Param("p_trip_id") Long tripId);
+    
+    // Незавершенные поездки для восстановления планировщика жизненного цикла при запуске
+    @Query(value = "SELECT id AS \"id\", CAST(status AS TEXT) AS \"status\", departure_time AS \"departureTime\", " +
+            "started_at AS \"startedAt\" FROM public.trips WHERE status IN ('SCHEDULED', 'IN_PROGRESS')", nativeQuery = true)
+    List<LifecycleTripView> findLifecycleTrips();
+    
+    // p_trip_ids - литерал массива вида {1,2,3}
+    @Query(value = "SELECT trip_id FROM public.expire_trips(CAST(:p_trip_ids AS BIGINT[]), CAST(:p_departed_before AS TIMESTAMP))",
+            nativeQuery = true)
+    List<Long> expireTrips(@Param("p_trip_ids") String tripIds,
+                           @Param("p_departed_before") LocalDateTime departedBefore);
+    
+    @Query(value = "SELECT trip_id AS \"tripId\", from_building_id AS \"fromBuildingId\", to_building_id AS \"toBuildingId\" " +
+            "FROM public.auto_complete_trips(CAST(:p_trip_ids AS BIGINT[]), CAST(:p_started_before AS TIMESTAMP))",
+            nativeQuery = true)
+    List<CompletedTripRow> autoCompleteTrips(@Param("p_trip_ids") String tripIds,
+                                             @Param("p_started_before") LocalDateTime startedBefore);
+    
+    interface TripSeatsView {
+        Long getId();
+        Integer getAvailableSeats();
+    }
+    
+    interface LifecycleTripView {
+        Long getId();
+        String getStatus();
+        LocalDateTime getDepartureTime();
+        LocalDateTime getStartedAt();
+    }
+    
+    interface CompletedTripRow {
+        Long getTripId();
+        Long getFromBuildingId();
+        Long getToBuildingId();
+    }
+    
+    interface TripView {
+        Long getId();
+        LocalDateTime getDepartureTime();
+        LocalDateTime getStartedAt();
+        LocalDateTime getFinishedAt();
+        Integer getMaxPassengers();
+        Integer getAvailableSeats();
+        BigDecimal getPrice();
+        Trip.TripStatus getStatus();
+        String getDescription();
+        Long getFromBuildingId();
+        Long getToBuildingId();
+        Long getDriverId();
+        String getDriverFirstName();
+        String getDriverLastName();
+        String getDriverPhoneNumber();
+        Double getDriverRating();
+    }
 }
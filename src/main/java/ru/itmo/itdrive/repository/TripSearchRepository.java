@@ -0,0 +1,16 @@
+package ru.itmo.itdrive.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TripSearchRepository {
+    List<TripRepository.TripView> searchScheduledTrips(Long fromBuildingId,
+                                                      Long toBuildingId,
+                                                      LocalDateTime departureTimeFrom,
+                                                      LocalDateTime departureTimeTo,
+                                                      BigDecimal maxPrice,
+                                                      LocalDateTime afterDepartureTime,
+                                                      Long afterId,
+                                                      int limit);
+}
@@ -0,0 +1,170 @@
+package ru.itmo.itdrive.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import ru.itmo.itdrive.model.Trip;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TripSearchRepositoryImpl implements TripSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<TripRepository.TripView> searchScheduledTrips(Long fromBuildingId,
+                                                         Long toBuildingId,
+                                                         LocalDateTime departureTimeFrom,
+                                                         LocalDateTime departureTimeTo,
+                                                         BigDecimal maxPrice,
+                                                         LocalDateTime afterDepartureTime,
+                                                         Long afterId,
+                                                         int limit) {
+        // Условия добавляются только для заданных фильтров, чтобы не передавать NULL-параметры
+        // без типа и дать планировщику использовать idx_trips_departure_time
+        StringBuilder sql = new StringBuilder(
+                "SELECT t.id, t.departure_time, t.started_at, t.finished_at, t.max_passengers, t.available_seats, " +
+                "t.price, CAST(t.status AS TEXT), t.description, t.from_building_id, t.to_building_id, " +
+                "u.id, u.first_name, u.last_name, u.phone_number, u.rating " +
+                "FROM public.trips t JOIN public.users u ON u.id = t.driver_id " +
+                "WHERE t.status = CAST('SCHEDULED' AS public.trip_status)");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+
+        if (fromBuildingId != null) {
+            sql.append(" AND t.from_building_id = :fromId");
+            parameters.put("fromId", fromBuildingId);
+        }
+        if (toBuildingId != null) {
+            sql.append(" AND t.to_building_id = :toId");
+            parameters.put("toId", toBuildingId);
+        }
+        if (departureTimeFrom != null) {
+            sql.append(" AND t.departure_time >= :departureFrom");
+            parameters.put("departureFrom", departureTimeFrom);
+        }
+        if (departureTimeTo != null) {
+            sql.append(" AND t.departure_time <= :departureTo");
+            parameters.put("departureTo", departureTimeTo);
+        }
+        if (maxPrice != null) {
+            sql.append(" AND t.price <= :maxPrice");
+            parameters.put("maxPrice", maxPrice);
+        }
+        if (afterDepartureTime != null && afterId != null) {
+            sql.append(" AND (t.departure_time, t.id) > (:afterDepartureTime, :afterId)");
+            parameters.put("afterDepartureTime", afterDepartureTime);
+            parameters.put("afterId", afterId);
+        }
+        sql.append(" ORDER BY t.departure_time, t.id LIMIT :limit");
+        parameters.put("limit", limit);
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        parameters.forEach(query::setParameter);
+
+        List<Object[]> rows = query.getResultList();
+        List<TripRepository.TripView> trips = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            trips.add(toTripView(row));
+        }
+        return trips;
+    }
+
+    private static TripRepository.TripView toTripView(Object[] row) {
+        return new TripRepository.TripView() {
+            @Override
+            public Long getId() {
+                return ((Number) row[0]).longValue();
+            }
+
+            @Override
+            public LocalDateTime getDepartureTime() {
+                return toLocalDateTime(row[1]);
+            }
+
+            @Override
+            public LocalDateTime getStartedAt() {
+                return toLocalDateTime(row[2]);
+            }
+
+            @Override
+            public LocalDateTime getFinishedAt() {
+                return toLocalDateTime(row[3]);
+            }
+
+            @Override
+            public Integer getMaxPassengers() {
+                return ((Number) row[4]).intValue();
+            }
+
+            @Override
+            public Integer getAvailableSeats() {
+                return ((Number) row[5]).intValue();
+            }
+
+            @Override
+            public BigDecimal getPrice() {
+                return (BigDecimal) row[6];
+            }
+
+            @Override
+            public Trip.TripStatus getStatus() {
+                return Trip.TripStatus.valueOf((String) row[7]);
+            }
+
+            @Override
+            public String getDescription() {
+                return (String) row[8];
+            }
+
+            @Override
+            public Long getFromBuildingId() {
+                return ((Number) row[9]).longValue();
+            }
+
+            @Override
+            public Long getToBuildingId() {
+                return ((Number) row[10]).longValue();
+            }
+
+            @Override
+            public Long getDriverId() {
+                return ((Number) row[11]).longValue();
+            }
+
+            @Override
+            public String getDriverFirstName() {
+                return (String) row[12];
+            }
+
+            @Override
+            public String getDriverLastName() {
+                return (String) row[13];
+            }
+
+            @Override
+            public String getDriverPhoneNumber() {
+                return (String) row[14];
+            }
+
+            @Override
+            public Double getDriverRating() {
+                return row[15] != null ? ((Number) row[15]).doubleValue() : null;
+            }
+        };
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.itmo.itdrive.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.itmo.itdrive.model.TripTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TripTemplateRepository extends JpaRepository<TripTemplate, Long> {
+    
+    List<TripTemplate> findByDriverIdOrderById(Long driverId);
+    
+    // p_template_ids - литерал массива вида {1,2,3}
+    @Query(value = "SELECT trip_id AS \"tripId\", departure_time AS \"departureTime\" " +
+            "FROM public.generate_template_trips(CAST(:p_template_ids AS BIGINT[]), CAST(:p_from AS DATE), CAST(:p_until AS DATE))",
+            nativeQuery = true)
+    List<GeneratedTripRow> generateTrips(@Param("p_template_ids") String templateIds,
+                                         @Param("p_from") LocalDate from,
+                                         @Param("p_until") LocalDate until);
+    
+    // Генерация по всем активным шаблонам
+    @Query(value = "SELECT trip_id AS \"tripId\", departure_time AS \"departureTime\" " +
+            "FROM public.generate_template_trips(NULL, CAST(:p_from AS DATE), CAST(:p_until AS DATE))",
+            nativeQuery = true)
+    List<GeneratedTripRow> generateAllTrips(@Param("p_from") LocalDate from,
+                                            @Param("p_until") LocalDate until);
+    
+    @Query(value = "SELECT trip_id AS \"tripId\", action AS \"action\" FROM public.sync_template_trips(:p_template_id)",
+            nativeQuery = true)
+    List<SyncedTripRow> syncTrips(@Param("p_template_id") Long templateId);
+    
+    interface GeneratedTripRow {
+        Long getTripId();
+        LocalDateTime getDepartureTime();
+    }
+    
+    interface SyncedTripRow {
+        Long getTripId();
+        String getAction();
+    }
+}
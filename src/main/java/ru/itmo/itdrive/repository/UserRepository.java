@@ -8,12 +8,21 @@ import org.springframework.stereotype.Repository;
 import ru.itmo.itdrive.model.User;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     
+    @Query("SELECT u.role AS role, u.isBlocked AS isBlocked FROM User u WHERE u.id = :id")
+    Optional<AuthorityView> findAuthorityById(@Param("id") Long id);
+    
+    @Query("SELECT u.id AS id, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, " +
+           "u.role AS role, u.phoneNumber AS phoneNumber, u.rating AS rating, u.totalTrips AS totalTrips, " +
+           "u.isBlocked AS isBlocked, u.createdAt AS createdAt FROM User u WHERE u.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+    
     @Query(value = "SELECT public.create_user(:p_email, :p_password, :p_first_name, :p_last_name, :p_role, NULLIF(:p_phone_number, ''))", nativeQuery = true)
     Long createUser(@Param("p_email") String email,
                     @Param("p_password") String password,
@@ -28,4 +37,26 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Modifying
     @Query(value = "UPDATE public.users SET is_blocked = :p_is_blocked, updated_at = NOW() WHERE id = :p_user_id", nativeQuery = true)
     void updateUserBlockedStatus(@Param("p_user_id") Long userId, @Param("p_is_blocked") Boolean isBlocked);
+    
+    @Modifying
+    @Query(value = "UPDATE public.users SET password = :p_password, updated_at = NOW() WHERE id = :p_user_id", nativeQuery = true)
+    void updatePassword(@Param("p_user_id") Long userId, @Param("p_password") String password);
+    
+    interface AuthorityView {
+        User.UserRole getRole();
+        Boolean getIsBlocked();
+    }
+    
+    interface UserView {
+        Long getId();
+        String getEmail();
+        String getFirstName();
+        String getLastName();
+        User.UserRole getRole();
+        String getPhoneNumber();
+        Double getRating();
+        Integer getTotalTrips();
+        Boolean getIsBlocked();
+        LocalDateTime getCreatedAt();
+    }
 }
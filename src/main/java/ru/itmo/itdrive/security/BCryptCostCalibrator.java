@@ -0,0 +1,39 @@
+package ru.itmo.itdrive.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.Arrays;
+
+// Подбор стоимости BCrypt под целевое время хэширования на текущем хосте.
+// Замеряется одна стоимость, время остальных экстраполируется: каждая единица удваивает работу.
+public final class BCryptCostCalibrator {
+
+    private static final int PROBE_COST = 8;
+    private static final int PROBE_RUNS = 5;
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minCost, int maxCost) {
+        double probeMillis = measure(PROBE_COST);
+        int cost = minCost;
+        while (cost < maxCost && probeMillis * Math.pow(2, cost + 1 - PROBE_COST) <= targetMillis) {
+            cost++;
+        }
+        return cost;
+    }
+
+    // Медиана нескольких замеров после прогрева
+    private static double measure(int cost) {
+        String salt = BCrypt.gensalt(cost);
+        BCrypt.hashpw("calibration", salt);
+        long[] runs = new long[PROBE_RUNS];
+        for (int i = 0; i < PROBE_RUNS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            runs[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(runs);
+        return runs[PROBE_RUNS / 2] / 1e6;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.itmo.itdrive.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.itmo.itdrive.model.User;
+import ru.itmo.itdrive.repository.UserRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Небольшой кэш роли и признака блокировки пользователя с коротким TTL.
+// Позволяет JWT-фильтру не выполнять SELECT по users на каждый запрос.
+@Component
+public class UserAuthorityCache {
+
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public UserAuthorityCache(UserRepository userRepository,
+                              @Value("${jwt.user-cache.ttl:30000}") long ttlMillis,
+                              @Value("${jwt.user-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxSize = maxSize;
+    }
+
+    public UserAuthority get(Long userId) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(userId);
+        if (entry != null && now - entry.loadedAt() < ttlNanos) {
+            return entry.authority();
+        }
+
+        UserAuthority authority = userRepository.findAuthorityById(userId)
+                .map(view -> new UserAuthority(view.getRole(), Boolean.TRUE.equals(view.getIsBlocked())))
+                .orElse(null);
+        if (authority == null) {
+            entries.remove(userId);
+            return null;
+        }
+
+        if (entries.size() >= maxSize) {
+            evictExpired(now);
+            if (entries.size() >= maxSize) {
+                entries.clear();
+            }
+        }
+        entries.put(userId, new Entry(authority, now));
+        return authority;
+    }
+
+    public void evict(Long userId) {
+        entries.remove(userId);
+    }
+
+    private void evictExpired(long now) {
+        entries.entrySet().removeIf(e -> now - e.getValue().loadedAt() >= ttlNanos);
+    }
+
+    public record UserAuthority(User.UserRole role, boolean blocked) {
+    }
+
+    private record Entry(UserAuthority authority, long loadedAt) {
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.itmo.itdrive.dto.RouteStatisticsResponse;
 import ru.itmo.itdrive.dto.StatisticsResponse;
+import ru.itmo.itdrive.dto.UserStatisticsMismatchResponse;
+import ru.itmo.itdrive.model.Building;
 import ru.itmo.itdrive.model.Review;
 import ru.itmo.itdrive.model.User;
 import ru.itmo.itdrive.repository.ReviewRepository;
@@ -13,6 +15,7 @@ import ru.itmo.itdrive.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +26,8 @@ public class AdminService {
     private final UserRepository userRepository;
     private final UserService userService;
     private final ReviewRepository reviewRepository;
+    private final PopularRouteTracker popularRouteTracker;
+    private final BuildingCatalog buildingCatalog;
 
     @Transactional(readOnly = true)
     public StatisticsResponse getStatistics(LocalDate startDate, LocalDate endDate) {
@@ -37,16 +42,42 @@ public class AdminService {
         );
     }
 
-    @Transactional(readOnly = true)
-    public List<RouteStatisticsResponse> getPopularRoutes(Integer limit) {
-        List<StatisticsRepository.PopularRouteResult> results = 
-                statisticsRepository.getPopularRoutes(limit != null ? limit : 10);
+    @Transactional
+    public Integer rebuildStatistics(LocalDate startDate, LocalDate endDate) {
+        return statisticsRepository.rebuildTripDailyStatistics(startDate, endDate);
+    }
+
+    public List<RouteStatisticsResponse> getPopularRoutes(Integer limit, String window) {
+        PopularRouteTracker.Window trackerWindow = parseWindow(window);
+        Map<Long, Building> buildings = buildingCatalog.getSnapshot().byId();
         
-        return results.stream()
+        return popularRouteTracker.top(trackerWindow, limit != null ? limit : 10).stream()
                 .map(r -> new RouteStatisticsResponse(
-                        r.getFromBuildingName(),
-                        r.getToBuildingName(),
-                        r.getTripCount()
+                        buildingName(buildings, r.fromBuildingId()),
+                        buildingName(buildings, r.toBuildingId()),
+                        r.tripCount()
+                ))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public Integer rebuildUserStatistics(Long userId) {
+        return statisticsRepository.rebuildUserStatistics(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserStatisticsMismatchResponse> checkUserStatistics() {
+        return statisticsRepository.checkUserStatistics().stream()
+                .map(r -> new UserStatisticsMismatchResponse(
+                        r.getUserId(),
+                        r.getExpectedTotalBookings(),
+                        r.getActualTotalBookings(),
+                        r.getExpectedCompletedBookings(),
+                        r.getActualCompletedBookings(),
+                        r.getExpectedCancelledBookings(),
+                        r.getActualCancelledBookings(),
+                        r.getExpectedTotalSpent(),
+                        r.getActualTotalSpent()
                 ))
                 .collect(Collectors.toList());
     }
@@ -70,4 +101,20 @@ public class AdminService {
     public List<Review> getAllReviews() {
         return reviewRepository.findAll();
     }
+
+    private static PopularRouteTracker.Window parseWindow(String window) {
+        if (window == null || window.isBlank()) {
+            return PopularRouteTracker.Window.ALL;
+        }
+        try {
+            return PopularRouteTracker.Window.valueOf(window.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный период: " + window);
+        }
+    }
+
+    private static String buildingName(Map<Long, Building> buildings, Long buildingId) {
+        Building building = buildings.get(buildingId);
+        return building != null ? building.getName() : null;
+    }
 }
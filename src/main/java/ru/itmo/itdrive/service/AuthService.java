@@ -3,14 +3,15 @@ package ru.itmo.itdrive.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.itmo.itdrive.dto.AuthenticationRequest;
 import ru.itmo.itdrive.dto.AuthenticationResponse;
 import ru.itmo.itdrive.dto.RegisterRequest;
 import ru.itmo.itdrive.exception.UserBlockedException;
 import ru.itmo.itdrive.model.User;
+import ru.itmo.itdrive.security.AuthenticatedUser;
 import ru.itmo.itdrive.util.JwtUtil;
 
 import java.util.HashMap;
@@ -23,17 +24,18 @@ public class AuthService {
     private final UserService userService;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final PasswordEncoder passwordEncoder;
 
-    @Transactional
+    // Хэш вычисляется до транзакции: соединение из пула не ждет BCrypt
     public AuthenticationResponse register(RegisterRequest request) {
-        User user = userService.register(request);
+        String encodedPassword = passwordEncoder.encode(request.getPassword());
+        User user = userService.register(request, encodedPassword);
         
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", user.getId());
         claims.put("role", user.getRole().name());
         
-        UserDetails userDetails = userService.loadUserByUsername(user.getEmail());
-        String token = jwtUtil.generateToken(userDetails, claims);
+        String token = jwtUtil.generateToken(AuthenticatedUser.from(user), claims);
         
         return new AuthenticationResponse(
                 token,
@@ -43,19 +45,20 @@ public class AuthService {
         );
     }
 
-    @Transactional(readOnly = true)
+    // Без транзакции: пользователь загружается в своей короткой транзакции, и соединение
+    // не удерживается, пока пароль проверяется на пуле хэширования
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
-        authenticationManager.authenticate(
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getEmail(),
                         request.getPassword()
                 )
         );
         
-        UserDetails userDetails = userService.loadUserByUsername(request.getEmail());
-        User user = userService.getUserByEmail(request.getEmail());
+        // Принципал уже загружен провайдером аутентификации, повторные запросы к users не нужны
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
         
-        if (user.getIsBlocked()) {
+        if (user.isBlocked()) {
             throw new UserBlockedException("Ваш аккаунт заблокирован. Обратитесь к администратору по адресу admin@itdrive.ru");
         }
         
@@ -63,7 +66,7 @@ public class AuthService {
         claims.put("userId", user.getId());
         claims.put("role", user.getRole().name());
         
-        String token = jwtUtil.generateToken(userDetails, claims);
+        String token = jwtUtil.generateToken(user, claims);
         
         return new AuthenticationResponse(
                 token,
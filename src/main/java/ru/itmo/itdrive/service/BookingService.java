@@ -1,25 +1,58 @@
 package ru.itmo.itdrive.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.itmo.itdrive.dto.BookingBatchItemResponse;
+import ru.itmo.itdrive.dto.BookingBatchResponse;
+import ru.itmo.itdrive.dto.BookingDecisionResult;
+import ru.itmo.itdrive.dto.BookingDecisionsRequest;
+import ru.itmo.itdrive.dto.BookingDecisionsResponse;
+import ru.itmo.itdrive.dto.BookingResponse;
+import ru.itmo.itdrive.dto.CreateBookingBatchRequest;
 import ru.itmo.itdrive.dto.CreateBookingRequest;
+import ru.itmo.itdrive.dto.TripResponse;
+import ru.itmo.itdrive.dto.UserEvent;
 import ru.itmo.itdrive.model.Booking;
 import ru.itmo.itdrive.model.Trip;
 import ru.itmo.itdrive.repository.BookingRepository;
 import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.util.SqlArrayUtil;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
     
+    private static final int MAX_BATCH_SIZE = 20;
+    
     private final BookingRepository bookingRepository;
     private final TripRepository tripRepository;
+    private final TripSearchIndex tripSearchIndex;
+    private final ResponseMapper responseMapper;
+    private final ObjectMapper objectMapper;
+    private final TripLifecycleScheduler tripLifecycleScheduler;
+    private final UserEventInbox userEventInbox;
+
+    // Сколько PENDING бронирование удерживает места до подтверждения водителем
+    @Value("${booking.hold-minutes:30}")
+    private long holdMinutes;
 
     @Transactional
-    public Booking createBooking(CreateBookingRequest request, Long passengerId) {
+    public BookingResponse createBooking(CreateBookingRequest request, Long passengerId) {
         Trip trip = tripRepository.findById(request.getTripId())
                 .orElseThrow(() -> new IllegalArgumentException("Поездка не найдена"));
         
@@ -43,16 +76,98 @@ public class BookingService {
         // Убеждаемся, что seats всегда число, не NULL
         Integer seats = request.getSeats() != null && request.getSeats() > 0 ? request.getSeats() : 1;
         
-        Long bookingId = bookingRepository.createBooking(
-                request.getTripId(),
-                passengerId,
-                trip.getPrice().multiply(java.math.BigDecimal.valueOf(seats)),
-                request.getPaymentMethod(),
-                seats
-        );
-
-        return bookingRepository.findById(bookingId)
+        // Проверка мест выше лишь отсекает заведомо неудачные запросы: окончательное списание
+        // выполняется атомарно в create_booking, который отклоняет бронирование при гонке
+        LocalDateTime holdExpiresAt = LocalDateTime.now().plusMinutes(holdMinutes);
+        Long bookingId;
+        try {
+            bookingId = bookingRepository.createBooking(
+                    request.getTripId(),
+                    passengerId,
+                    trip.getPrice().multiply(java.math.BigDecimal.valueOf(seats)),
+                    request.getPaymentMethod(),
+                    seats,
+                    holdExpiresAt
+            );
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Недостаточно свободных мест");
+        }
+        tripSearchIndex.refreshSeats(request.getTripId());
+        tripLifecycleScheduler.bookingHeld(bookingId, holdExpiresAt);
+
+        // Проекции читают строки из БД, поэтому видят места, списанные функцией create_booking
+        BookingRepository.BookingView booking = bookingRepository.findViewById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Ошибка при создании бронирования"));
+        return responseMapper.toBookingResponse(booking, getTripResponse(request.getTripId()));
+    }
+
+    // Пакет бронируется целиком или не бронируется вовсе: create_bookings_batch проверяет все элементы
+    // и списывает места одним UPDATE и одним INSERT. При ошибке возвращаются ошибки по каждому элементу.
+    @Transactional
+    public BookingBatchResponse createBookings(CreateBookingBatchRequest request, Long passengerId) {
+        List<CreateBookingRequest> items = request.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Пакет бронирований пуст");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("В пакете не больше " + MAX_BATCH_SIZE + " бронирований");
+        }
+
+        List<Map<String, Object>> payload = items.stream()
+                .map(item -> {
+                    Map<String, Object> element = new LinkedHashMap<>();
+                    element.put("trip_id", item.getTripId());
+                    element.put("seats", item.getSeats() != null && item.getSeats() > 0 ? item.getSeats() : 1);
+                    element.put("payment_method", item.getPaymentMethod());
+                    return element;
+                })
+                .toList();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный пакет бронирований");
+        }
+
+        LocalDateTime holdExpiresAt = LocalDateTime.now().plusMinutes(holdMinutes);
+        List<BookingRepository.BookingBatchRow> rows;
+        try {
+            rows = bookingRepository.createBookingsBatch(passengerId, json, holdExpiresAt);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Недостаточно свободных мест");
+        }
+
+        boolean success = rows.stream().allMatch(row -> row.getError() == null);
+        if (!success) {
+            return new BookingBatchResponse(false, rows.stream()
+                    .map(row -> new BookingBatchItemResponse(row.getItemIndex(), row.getTripId(),
+                            row.getSeats(), null, row.getError()))
+                    .toList());
+        }
+
+        tripSearchIndex.refreshSeats(rows.stream()
+                .map(BookingRepository.BookingBatchRow::getTripId)
+                .collect(Collectors.toSet()));
+        rows.forEach(row -> tripLifecycleScheduler.bookingHeld(row.getBookingId(), holdExpiresAt));
+
+        // Поездки и бронирования пакета загружаются двумя запросами
+        Map<Long, TripResponse> trips = tripRepository.findViewsByIdIn(
+                        rows.stream().map(BookingRepository.BookingBatchRow::getTripId).collect(Collectors.toSet()))
+                .stream()
+                .map(responseMapper::toTripResponse)
+                .collect(Collectors.toMap(TripResponse::getId, Function.identity()));
+        Map<Long, BookingRepository.BookingView> bookings = bookingRepository.findViewsByIdIn(
+                        rows.stream().map(BookingRepository.BookingBatchRow::getBookingId).toList())
+                .stream()
+                .collect(Collectors.toMap(BookingRepository.BookingView::getId, Function.identity()));
+
+        return new BookingBatchResponse(true, rows.stream()
+                .map(row -> {
+                    BookingRepository.BookingView booking = bookings.get(row.getBookingId());
+                    return new BookingBatchItemResponse(row.getItemIndex(), row.getTripId(), row.getSeats(),
+                            responseMapper.toBookingResponse(booking, trips.get(row.getTripId())), null);
+                })
+                .toList());
     }
 
     @Transactional
@@ -69,6 +184,41 @@ public class BookingService {
         if (!result) {
             throw new RuntimeException("Ошибка при подтверждении бронирования");
         }
+        userEventInbox.publish(booking.getPassenger().getId(), UserEvent.Type.BOOKING_CONFIRMED, trip.getId(), bookingId);
+    }
+
+    // Решение водителя по нескольким бронированиям поездки одним вызовом decide_bookings.
+    // Бронирования других поездок и уже обработанные пропускаются (applied = false).
+    @Transactional
+    public BookingDecisionsResponse decideBookings(Long tripId, BookingDecisionsRequest request, Long driverId) {
+        Trip trip = tripRepository.findById(tripId)
+                .orElseThrow(() -> new IllegalArgumentException("Поездка не найдена"));
+        if (!trip.getDriver().getId().equals(driverId)) {
+            throw new IllegalArgumentException("Только водитель может подтверждать и отменять бронирования поездки");
+        }
+
+        Set<Long> confirm = request.getConfirm() != null ? new HashSet<>(request.getConfirm()) : Set.of();
+        Set<Long> cancel = request.getCancel() != null ? new HashSet<>(request.getCancel()) : Set.of();
+        if (confirm.isEmpty() && cancel.isEmpty()) {
+            throw new IllegalArgumentException("Не указаны бронирования");
+        }
+        if (!Collections.disjoint(confirm, cancel)) {
+            throw new IllegalArgumentException("Бронирование не может быть одновременно подтверждено и отменено");
+        }
+
+        List<BookingRepository.BookingDecisionRow> rows = bookingRepository.decideBookings(
+                tripId, SqlArrayUtil.toBigintArray(confirm), SqlArrayUtil.toBigintArray(cancel));
+        BookingRepository.BookingDecisionRow first = rows.get(0);
+        if (rows.stream().anyMatch(row -> row.getApplied() && "CANCEL".equals(row.getDecision()))) {
+            tripSearchIndex.refreshSeats(tripId);
+        }
+        notifyPassengers(rows);
+
+        return new BookingDecisionsResponse(tripId, first.getAvailableSeats(), first.getConfirmedSeats(),
+                first.getPendingSeats(), rows.stream()
+                .map(row -> new BookingDecisionResult(row.getBookingId(), row.getDecision(),
+                        row.getApplied(), row.getStatus()))
+                .toList());
     }
 
     @Transactional
@@ -81,20 +231,49 @@ public class BookingService {
             throw new IllegalArgumentException("Вы не можете отменить это бронирование");
         }
 
+        // FALSE - бронирование уже отменено или завершено, в том числе параллельным запросом
         Boolean result = bookingRepository.cancelBooking(bookingId);
         if (!result) {
-            throw new RuntimeException("Ошибка при отмене бронирования");
+            throw new IllegalArgumentException("Бронирование уже отменено или завершено");
         }
+        tripSearchIndex.refreshSeats(trip.getId());
+        // Уведомляется другая сторона: водитель об отмене пассажиром, пассажир об отмене водителем
+        Long recipientId = booking.getPassenger().getId().equals(userId)
+                ? trip.getDriver().getId()
+                : booking.getPassenger().getId();
+        userEventInbox.publish(recipientId, UserEvent.Type.BOOKING_CANCELLED, trip.getId(), bookingId);
     }
 
     @Transactional(readOnly = true)
-    public List<Booking> getBookingsByPassenger(Long passengerId) {
-        return bookingRepository.findByPassengerId(passengerId);
+    public List<BookingResponse> getBookingsByPassenger(Long passengerId) {
+        List<BookingRepository.BookingView> bookings = bookingRepository.findViewsByPassengerId(passengerId);
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        
+        // Поездки всех бронирований загружаются одним запросом
+        Map<Long, TripResponse> trips = tripRepository.findViewsByIdIn(
+                        bookings.stream().map(BookingRepository.BookingView::getTripId).collect(Collectors.toSet()))
+                .stream()
+                .map(responseMapper::toTripResponse)
+                .collect(Collectors.toMap(TripResponse::getId, Function.identity()));
+        
+        return bookings.stream()
+                .map(b -> responseMapper.toBookingResponse(b, trips.get(b.getTripId())))
+                .toList();
     }
 
     @Transactional(readOnly = true)
-    public List<Booking> getBookingsByTrip(Long tripId) {
-        return bookingRepository.findByTripId(tripId);
+    public List<BookingResponse> getBookingsByTrip(Long tripId) {
+        List<BookingRepository.BookingView> bookings = bookingRepository.findViewsByTripId(tripId);
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        
+        TripResponse trip = getTripResponse(tripId);
+        return bookings.stream()
+                .map(b -> responseMapper.toBookingResponse(b, trip))
+                .toList();
     }
 
     @Transactional(readOnly = true)
@@ -102,4 +281,27 @@ public class BookingService {
         return bookingRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Бронирование не найдено"));
     }
+
+    // Пассажиры узнают о примененных решениях водителя; пропущенные бронирования не уведомляются
+    private void notifyPassengers(List<BookingRepository.BookingDecisionRow> rows) {
+        Map<Long, String> applied = rows.stream()
+                .filter(BookingRepository.BookingDecisionRow::getApplied)
+                .collect(Collectors.toMap(BookingRepository.BookingDecisionRow::getBookingId,
+                        BookingRepository.BookingDecisionRow::getDecision));
+        if (applied.isEmpty()) {
+            return;
+        }
+        for (BookingRepository.BookingParticipantView participant : bookingRepository.findParticipantsByIdIn(applied.keySet())) {
+            UserEvent.Type type = "CONFIRM".equals(applied.get(participant.getBookingId()))
+                    ? UserEvent.Type.BOOKING_CONFIRMED
+                    : UserEvent.Type.BOOKING_CANCELLED;
+            userEventInbox.publish(participant.getPassengerId(), type, participant.getTripId(), participant.getBookingId());
+        }
+    }
+
+    private TripResponse getTripResponse(Long tripId) {
+        return tripRepository.findViewById(tripId)
+                .map(responseMapper::toTripResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Поездка не найдена"));
+    }
 }
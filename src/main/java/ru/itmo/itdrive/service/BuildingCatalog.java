@@ -0,0 +1,66 @@
+package ru.itmo.itdrive.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.repository.BuildingRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Неизменяемый снимок справочника корпусов в памяти.
+// Перечитывается из БД только после invalidate(), то есть при изменении корпусов.
+@Component
+@RequiredArgsConstructor
+public class BuildingCatalog {
+
+    private final BuildingRepository buildingRepository;
+
+    private volatile Snapshot snapshot;
+
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = reload();
+        }
+        return current;
+    }
+
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized Snapshot reload() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        List<Building> buildings = buildingRepository.findAll().stream()
+                .sorted(Comparator.comparing(Building::getId))
+                .toList();
+        Map<Long, Building> byId = buildings.stream()
+                .collect(Collectors.toUnmodifiableMap(Building::getId, Function.identity()));
+        Snapshot loaded = new Snapshot(buildings, byId, computeEtag(buildings));
+        snapshot = loaded;
+        return loaded;
+    }
+
+    private static String computeEtag(List<Building> buildings) {
+        StringBuilder content = new StringBuilder();
+        for (Building building : buildings) {
+            content.append(building.getId()).append('|')
+                    .append(building.getName()).append('|')
+                    .append(building.getAddress()).append('|')
+                    .append(building.getLatitude()).append('|')
+                    .append(building.getLongitude()).append('\n');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    public record Snapshot(List<Building> buildings, Map<Long, Building> byId, String etag) {
+    }
+}
@@ -0,0 +1,82 @@
+package ru.itmo.itdrive.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.itmo.itdrive.model.Building;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Предвычисленная таблица соседей: для каждого корпуса - корпуса в пределах пешей доступности
+// (matching.max-walk-meters), упорядоченные по расстоянию. Сам корпус идет первым с расстоянием 0.
+// Пересчитывается только при смене снимка BuildingCatalog, запросы геометрию не считают
+@Component
+public class BuildingNeighbourTable {
+
+    private final BuildingCatalog buildingCatalog;
+    private final BuildingSpatialIndex buildingSpatialIndex;
+    private final double maxWalkMeters;
+
+    private volatile TableState state;
+
+    public BuildingNeighbourTable(BuildingCatalog buildingCatalog,
+                                  BuildingSpatialIndex buildingSpatialIndex,
+                                  @Value("${matching.max-walk-meters:1500}") double maxWalkMeters) {
+        this.buildingCatalog = buildingCatalog;
+        this.buildingSpatialIndex = buildingSpatialIndex;
+        this.maxWalkMeters = maxWalkMeters;
+    }
+
+    public double getMaxWalkMeters() {
+        return maxWalkMeters;
+    }
+
+    // Соседи корпуса в пределах radiusMeters (не больше maxWalkMeters)
+    public List<Neighbour> neighbours(Long buildingId, double radiusMeters) {
+        List<Neighbour> all = currentTable().get(buildingId);
+        if (all == null) {
+            return List.of();
+        }
+        int end = 0;
+        while (end < all.size() && all.get(end).distanceMeters() <= radiusMeters) {
+            end++;
+        }
+        return all.subList(0, end);
+    }
+
+    private Map<Long, List<Neighbour>> currentTable() {
+        BuildingCatalog.Snapshot snapshot = buildingCatalog.getSnapshot();
+        TableState current = state;
+        if (current == null || current.snapshot() != snapshot) {
+            current = new TableState(snapshot, buildTable(snapshot));
+            state = current;
+        }
+        return current.neighbours();
+    }
+
+    private Map<Long, List<Neighbour>> buildTable(BuildingCatalog.Snapshot snapshot) {
+        Map<Long, List<Neighbour>> table = new HashMap<>();
+        for (Building building : snapshot.buildings()) {
+            List<Neighbour> neighbours = new ArrayList<>();
+            neighbours.add(new Neighbour(building.getId(), 0));
+            if (building.getLatitude() != null && building.getLongitude() != null) {
+                for (BuildingSpatialIndex.BuildingDistance nearby : buildingSpatialIndex.findWithinRadius(
+                        building.getLatitude(), building.getLongitude(), maxWalkMeters)) {
+                    if (!nearby.building().getId().equals(building.getId())) {
+                        neighbours.add(new Neighbour(nearby.building().getId(), nearby.distanceMeters()));
+                    }
+                }
+            }
+            table.put(building.getId(), List.copyOf(neighbours));
+        }
+        return Map.copyOf(table);
+    }
+
+    public record Neighbour(Long buildingId, double distanceMeters) {
+    }
+
+    private record TableState(BuildingCatalog.Snapshot snapshot, Map<Long, List<Neighbour>> neighbours) {
+    }
+}
@@ -0,0 +1,66 @@
+package ru.itmo.itdrive.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.util.GeoUtil;
+import ru.itmo.itdrive.util.KdTree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Пространственный индекс корпусов: k-d дерево по точкам на единичной сфере.
+// Перестраивается при смене снимка BuildingCatalog; корпуса без координат не индексируются
+@Component
+@RequiredArgsConstructor
+public class BuildingSpatialIndex {
+
+    private final BuildingCatalog buildingCatalog;
+
+    private volatile IndexState state;
+
+    public List<BuildingDistance> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        KdTree<Building> tree = currentTree();
+        double[] center = GeoUtil.toUnitVector(latitude, longitude);
+
+        List<BuildingDistance> result = new ArrayList<>();
+        for (Building building : tree.withinRadius(center, GeoUtil.chordLength(radiusMeters))) {
+            double distance = GeoUtil.haversineMeters(latitude, longitude,
+                    building.getLatitude(), building.getLongitude());
+            // Хорда и дуга согласованы, но граница проверяется повторно на случай погрешности округления
+            if (distance <= radiusMeters) {
+                result.add(new BuildingDistance(building, distance));
+            }
+        }
+        result.sort(Comparator.comparingDouble(BuildingDistance::distanceMeters));
+        return result;
+    }
+
+    private KdTree<Building> currentTree() {
+        BuildingCatalog.Snapshot snapshot = buildingCatalog.getSnapshot();
+        IndexState current = state;
+        if (current == null || current.snapshot() != snapshot) {
+            current = new IndexState(snapshot, buildTree(snapshot));
+            state = current;
+        }
+        return current.tree();
+    }
+
+    private static KdTree<Building> buildTree(BuildingCatalog.Snapshot snapshot) {
+        List<KdTree.Point<Building>> points = new ArrayList<>();
+        for (Building building : snapshot.buildings()) {
+            if (building.getLatitude() != null && building.getLongitude() != null) {
+                points.add(new KdTree.Point<>(
+                        GeoUtil.toUnitVector(building.getLatitude(), building.getLongitude()), building));
+            }
+        }
+        return new KdTree<>(3, points);
+    }
+
+    public record BuildingDistance(Building building, double distanceMeters) {
+    }
+
+    private record IndexState(BuildingCatalog.Snapshot snapshot, KdTree<Building> tree) {
+    }
+}
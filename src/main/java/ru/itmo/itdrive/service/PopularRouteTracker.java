@@ -0,0 +1,144 @@
+package ru.itmo.itdrive.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.itmo.itdrive.repository.StatisticsRepository;
+import ru.itmo.itdrive.util.SpaceSaving;
+import ru.itmo.itdrive.util.TransactionUtil;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Счетчик популярных маршрутов в памяти: завершенные поездки учитываются при завершении,
+// поэтому /api/admin/routes/popular не сканирует таблицу trips.
+// За все время используется Space-Saving, за последний час и сутки - кольцо точных счетчиков по минутам и часам
+@Component
+public class PopularRouteTracker {
+
+    public enum Window {
+        HOUR, DAY, ALL
+    }
+
+    private final StatisticsRepository statisticsRepository;
+    private final SpaceSaving<RouteKey> allTime;
+    private final SlidingCounter lastHour = new SlidingCounter(60, 60);
+    private final SlidingCounter lastDay = new SlidingCounter(24, 3600);
+
+    public PopularRouteTracker(StatisticsRepository statisticsRepository,
+                               @Value("${popular-routes.capacity:1000}") int capacity) {
+        this.statisticsRepository = statisticsRepository;
+        this.allTime = new SpaceSaving<>(capacity);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        allTime.clear();
+        lastHour.clear();
+        lastDay.clear();
+
+        for (StatisticsRepository.RouteCountResult route : statisticsRepository.getCompletedRouteCounts()) {
+            allTime.offer(new RouteKey(route.getFromBuildingId(), route.getToBuildingId()), route.getTripCount());
+        }
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        for (StatisticsRepository.RouteCompletionResult completion : statisticsRepository.getCompletedRoutesSince(since)) {
+            RouteKey route = new RouteKey(completion.getFromBuildingId(), completion.getToBuildingId());
+            lastHour.add(route, completion.getFinishedAt());
+            lastDay.add(route, completion.getFinishedAt());
+        }
+    }
+
+    public void recordCompletion(Long fromBuildingId, Long toBuildingId) {
+        RouteKey route = new RouteKey(fromBuildingId, toBuildingId);
+        TransactionUtil.afterCommit(() -> record(route, LocalDateTime.now()));
+    }
+
+    public synchronized List<RouteCount> top(Window window, int limit) {
+        if (window == Window.ALL) {
+            return allTime.top(limit).stream()
+                    .map(e -> new RouteCount(e.key().fromBuildingId(), e.key().toBuildingId(), e.count()))
+                    .toList();
+        }
+
+        SlidingCounter counter = window == Window.HOUR ? lastHour : lastDay;
+        return counter.counts(LocalDateTime.now()).entrySet().stream()
+                .sorted(Map.Entry.<RouteKey, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(e -> new RouteCount(e.getKey().fromBuildingId(), e.getKey().toBuildingId(), e.getValue()))
+                .toList();
+    }
+
+    private synchronized void record(RouteKey route, LocalDateTime finishedAt) {
+        allTime.offer(route, 1);
+        lastHour.add(route, finishedAt);
+        lastDay.add(route, finishedAt);
+    }
+
+    public record RouteCount(Long fromBuildingId, Long toBuildingId, long tripCount) {
+    }
+
+    private record RouteKey(Long fromBuildingId, Long toBuildingId) {
+    }
+
+    // Кольцо из size корзин длиной slotSeconds; корзина переиспользуется, когда ее слот устаревает
+    private static final class SlidingCounter {
+
+        private final int size;
+        private final long slotSeconds;
+        private final long[] slots;
+        private final List<Map<RouteKey, Long>> buckets;
+
+        private SlidingCounter(int size, long slotSeconds) {
+            this.size = size;
+            this.slotSeconds = slotSeconds;
+            this.slots = new long[size];
+            this.buckets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                buckets.add(new HashMap<>());
+            }
+            clear();
+        }
+
+        private void add(RouteKey route, LocalDateTime time) {
+            long slot = slotOf(time);
+            int index = (int) Math.floorMod(slot, (long) size);
+            if (slots[index] != slot) {
+                if (slots[index] > slot) {
+                    // Событие старше окна: корзина уже занята более новым слотом
+                    return;
+                }
+                slots[index] = slot;
+                buckets.get(index).clear();
+            }
+            buckets.get(index).merge(route, 1L, Long::sum);
+        }
+
+        private Map<RouteKey, Long> counts(LocalDateTime now) {
+            long current = slotOf(now);
+            Map<RouteKey, Long> result = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (slots[i] > current - size && slots[i] <= current) {
+                    buckets.get(i).forEach((route, count) -> result.merge(route, count, Long::sum));
+                }
+            }
+            return result;
+        }
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                slots[i] = Long.MIN_VALUE;
+                buckets.get(i).clear();
+            }
+        }
+
+        private long slotOf(LocalDateTime time) {
+            return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), slotSeconds);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ru.itmo.itdrive.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.itmo.itdrive.dto.BookingResponse;
+import ru.itmo.itdrive.dto.BuildingSummary;
+import ru.itmo.itdrive.dto.TripResponse;
+import ru.itmo.itdrive.dto.TripTemplateResponse;
+import ru.itmo.itdrive.dto.UserResponse;
+import ru.itmo.itdrive.dto.UserSummary;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.model.TripTemplate;
+import ru.itmo.itdrive.model.User;
+import ru.itmo.itdrive.repository.BookingRepository;
+import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.repository.UserRepository;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Преобразование сущностей и проекций в ответы API.
+// Корпуса подставляются из BuildingCatalog, поэтому запросы не соединяют таблицу buildings
+@Component
+@RequiredArgsConstructor
+public class ResponseMapper {
+
+    private final BuildingCatalog buildingCatalog;
+
+    public TripResponse toTripResponse(Trip trip) {
+        User driver = trip.getDriver();
+        return new TripResponse(
+                trip.getId(),
+                new UserSummary(driver.getId(), driver.getFirstName(), driver.getLastName(),
+                        driver.getPhoneNumber(), driver.getRating()),
+                toBuildingSummary(trip.getFromBuilding().getId()),
+                toBuildingSummary(trip.getToBuilding().getId()),
+                trip.getDepartureTime(),
+                trip.getStartedAt(),
+                trip.getFinishedAt(),
+                trip.getMaxPassengers(),
+                trip.getAvailableSeats(),
+                trip.getPrice(),
+                trip.getStatus(),
+                trip.getDescription()
+        );
+    }
+
+    public TripResponse toTripResponse(TripRepository.TripView trip) {
+        return new TripResponse(
+                trip.getId(),
+                new UserSummary(trip.getDriverId(), trip.getDriverFirstName(), trip.getDriverLastName(),
+                        trip.getDriverPhoneNumber(), trip.getDriverRating()),
+                toBuildingSummary(trip.getFromBuildingId()),
+                toBuildingSummary(trip.getToBuildingId()),
+                trip.getDepartureTime(),
+                trip.getStartedAt(),
+                trip.getFinishedAt(),
+                trip.getMaxPassengers(),
+                trip.getAvailableSeats(),
+                trip.getPrice(),
+                trip.getStatus(),
+                trip.getDescription()
+        );
+    }
+
+    public BookingResponse toBookingResponse(BookingRepository.BookingView booking, TripResponse trip) {
+        return new BookingResponse(
+                booking.getId(),
+                trip,
+                new UserSummary(booking.getPassengerId(), booking.getPassengerFirstName(),
+                        booking.getPassengerLastName(), booking.getPassengerPhoneNumber(),
+                        booking.getPassengerRating()),
+                booking.getStatus(),
+                booking.getPrice(),
+                booking.getPaymentMethod(),
+                booking.getSeats(),
+                booking.getCreatedAt(),
+                booking.getHoldExpiresAt()
+        );
+    }
+
+    public UserResponse toUserResponse(User user) {
+        return new UserResponse(
+                user.getId(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getRole(),
+                user.getPhoneNumber(),
+                user.getRating(),
+                user.getTotalTrips(),
+                user.getIsBlocked(),
+                user.getCreatedAt()
+        );
+    }
+
+    public UserResponse toUserResponse(UserRepository.UserView user) {
+        return new UserResponse(
+                user.getId(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getRole(),
+                user.getPhoneNumber(),
+                user.getRating(),
+                user.getTotalTrips(),
+                user.getIsBlocked(),
+                user.getCreatedAt()
+        );
+    }
+
+    public TripTemplateResponse toTripTemplateResponse(TripTemplate template) {
+        // Маска дней: бит 0 - понедельник
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((template.getDaysOfWeek() & (1 << (day.getValue() - 1))) != 0) {
+                days.add(day);
+            }
+        }
+        return new TripTemplateResponse(
+                template.getId(),
+                toBuildingSummary(template.getFromBuilding().getId()),
+                toBuildingSummary(template.getToBuilding().getId()),
+                days,
+                template.getDepartureTime(),
+                template.getMaxPassengers(),
+                template.getPrice(),
+                template.getDescription(),
+                template.getActive()
+        );
+    }
+
+    public BuildingSummary toBuildingSummary(Long buildingId) {
+        Building building = buildingCatalog.getSnapshot().byId().get(buildingId);
+        if (building == null) {
+            return new BuildingSummary(buildingId, null, null, null, null);
+        }
+        return new BuildingSummary(building.getId(), building.getName(), building.getAddress(),
+                building.getLatitude(), building.getLongitude());
+    }
+}
@@ -0,0 +1,360 @@
+package ru.itmo.itdrive.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.itmo.itdrive.dto.TripSeatEvent;
+import ru.itmo.itdrive.exception.ServiceOverloadedException;
+import ru.itmo.itdrive.model.Trip;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Рассылка изменений мест и статусов поездок подписчикам SSE. Изменения приходят из TripSearchIndex
+// после коммита и только ставятся в очередь; отдельный поток объединяет изменения одной поездки,
+// сериализует событие один раз и раскладывает его в очереди подписчиков маршрута и подписчиков поездки.
+// Запись в соединения выполняет пул отправки, по одной задаче на подписчика, поэтому медленный клиент
+// задерживает только свою очередь; переполнившего очередь подписчика hub отключает.
+// Простаивающий подписчик не занимает поток обработки запросов: SseEmitter держит асинхронный запрос
+@Component
+public class TripEventHub {
+
+    private static final String EVENT_NAME = "trip";
+    // Подписчик отдает поток отправки другим после стольких событий подряд
+    private static final int SEND_BATCH = 32;
+
+    private final TripSearchIndex tripSearchIndex;
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int maxTripIds;
+    private final long timeoutMillis;
+    private final int subscriberBuffer;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<RouteKey, Set<Subscriber>> byRoute = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byTrip = new ConcurrentHashMap<>();
+    // Последнее неотправленное изменение каждой поездки и очередь поездок на отправку
+    private final Map<Long, TripSearchIndex.TripChange> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private final ExecutorService sender;
+    private final ScheduledExecutorService heartbeat;
+
+    private final Counter delivered;
+    private final Counter disconnected;
+    private final Timer fanOut;
+
+    public TripEventHub(TripSearchIndex tripSearchIndex,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${trip-stream.max-subscribers:10000}") int maxSubscribers,
+                        @Value("${trip-stream.max-trip-ids:100}") int maxTripIds,
+                        @Value("${trip-stream.timeout-minutes:30}") long timeoutMinutes,
+                        @Value("${trip-stream.subscriber-buffer:256}") int subscriberBuffer,
+                        @Value("${trip-stream.send-threads:4}") int sendThreads,
+                        @Value("${trip-stream.heartbeat-ms:20000}") long heartbeatMillis) {
+        this.tripSearchIndex = tripSearchIndex;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.maxTripIds = maxTripIds;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.subscriberBuffer = subscriberBuffer;
+
+        this.delivered = Counter.builder("trip.stream.delivered")
+                .description("События, отправленные подписчикам")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("trip.stream.disconnected")
+                .description("Подписчики, отключенные из-за ошибки отправки или переполнения очереди")
+                .register(meterRegistry);
+        this.fanOut = Timer.builder("trip.stream.fan-out")
+                .description("Отправка одного изменения всем его подписчикам")
+                .register(meterRegistry);
+        Gauge.builder("trip.stream.subscribers", subscribers, Set::size)
+                .description("Открытые подписки SSE")
+                .register(meterRegistry);
+        Gauge.builder("trip.stream.pending", pending, Map::size)
+                .description("Поездки с неотправленными изменениями")
+                .register(meterRegistry);
+
+        AtomicInteger senderThreads = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(sendThreads,
+                r -> daemon(r, "trip-events-send-" + senderThreads.incrementAndGet()));
+        // Свой планировщик: общий планировщик Spring однопоточный, и его задачи не должны ждать рассылки
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "trip-events-heartbeat"));
+        this.heartbeat.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        tripSearchIndex.addChangeListener(this::enqueue);
+        this.dispatcher = daemon(this::dispatchLoop, "trip-events");
+        this.dispatcher.start();
+    }
+
+    // Подписка на маршрут (оба корпуса) и/или на список поездок
+    public SseEmitter subscribe(Long fromBuildingId, Long toBuildingId, List<Long> tripIds) {
+        if ((fromBuildingId == null) != (toBuildingId == null)) {
+            throw new IllegalArgumentException("Для подписки на маршрут нужны оба корпуса");
+        }
+        Set<Long> trips = tripIds != null ? new HashSet<>(tripIds) : Set.of();
+        if (fromBuildingId == null && trips.isEmpty()) {
+            throw new IllegalArgumentException("Укажите маршрут или поездки для подписки");
+        }
+        if (trips.size() > maxTripIds) {
+            throw new IllegalArgumentException("Не больше " + maxTripIds + " поездок в подписке");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceOverloadedException("Слишком много подписок, повторите позже");
+        }
+
+        RouteKey route = fromBuildingId != null ? new RouteKey(fromBuildingId, toBuildingId) : null;
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), route, trips);
+        subscriber.emitter().onCompletion(() -> unregister(subscriber));
+        subscriber.emitter().onTimeout(() -> unregister(subscriber));
+        subscriber.emitter().onError(e -> unregister(subscriber));
+        register(subscriber);
+
+        // Текущее состояние поездок маршрута и подписанных поездок: подписка зарегистрирована раньше,
+        // поэтому изменения между поиском клиента и подпиской не теряются
+        Map<Long, Trip> snapshot = new LinkedHashMap<>();
+        if (route != null) {
+            tripSearchIndex.search(fromBuildingId, toBuildingId, null, null, null)
+                    .forEach(trip -> snapshot.put(trip.getId(), trip));
+        }
+        for (Long tripId : trips) {
+            tripSearchIndex.find(tripId).ifPresent(trip -> snapshot.put(trip.getId(), trip));
+        }
+        for (Trip trip : snapshot.values()) {
+            send(subscriber, serialize(new TripSeatEvent(trip.getId(), trip.getFromBuilding().getId(),
+                    trip.getToBuilding().getId(), trip.getAvailableSeats(), trip.getStatus())));
+        }
+        return subscriber.emitter();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+    }
+
+    // Комментарий SSE раз в интервал: обнаруживает закрытые соединения и не дает прокси разорвать простаивающие
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, new Message(SseEmitter.event().comment("ping"), false));
+        }
+    }
+
+    private void enqueue(TripSearchIndex.TripChange change) {
+        if (pending.put(change.tripId(), change) == null) {
+            queue.offer(change.tripId());
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Long tripId;
+            try {
+                tripId = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            TripSearchIndex.TripChange change = pending.remove(tripId);
+            if (change != null) {
+                fanOut.record(() -> dispatch(change));
+            }
+        }
+    }
+
+    private void dispatch(TripSearchIndex.TripChange change) {
+        Set<Subscriber> routeSubscribers = byRoute.getOrDefault(
+                new RouteKey(change.fromBuildingId(), change.toBuildingId()), Set.of());
+        Set<Subscriber> tripSubscribers = byTrip.getOrDefault(change.tripId(), Set.of());
+        if (routeSubscribers.isEmpty() && tripSubscribers.isEmpty()) {
+            return;
+        }
+
+        String data = serialize(new TripSeatEvent(change.tripId(), change.fromBuildingId(), change.toBuildingId(),
+                change.availableSeats(), change.status()));
+        for (Subscriber subscriber : routeSubscribers) {
+            send(subscriber, data);
+        }
+        for (Subscriber subscriber : tripSubscribers) {
+            // Подписчик маршрута и поездки одновременно получает событие один раз
+            if (!routeSubscribers.contains(subscriber)) {
+                send(subscriber, data);
+            }
+        }
+    }
+
+    private String serialize(TripSeatEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void send(Subscriber subscriber, String data) {
+        offer(subscriber, new Message(SseEmitter.event().name(EVENT_NAME).data(data, MediaType.APPLICATION_JSON), true));
+    }
+
+    // Не блокируется: сообщение только ставится в очередь подписчика, запись выполняет пул отправки
+    private void offer(Subscriber subscriber, Message message) {
+        boolean overflow = false;
+        boolean schedule = false;
+        synchronized (subscriber) {
+            if (subscriber.outbox.size() >= subscriberBuffer) {
+                overflow = true;
+            } else {
+                subscriber.outbox.add(message);
+                schedule = !subscriber.sending;
+                subscriber.sending = true;
+            }
+        }
+        if (overflow) {
+            // Клиент не успевает читать: отключается и после переподключения получает снимок заново
+            drop(subscriber);
+        } else if (schedule) {
+            submitDrain(subscriber);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        for (int i = 0; i < SEND_BATCH; i++) {
+            Message message;
+            synchronized (subscriber) {
+                message = subscriber.outbox.poll();
+                if (message == null) {
+                    subscriber.sending = false;
+                    return;
+                }
+            }
+            try {
+                subscriber.emitter().send(message.event());
+                if (message.data()) {
+                    delivered.increment();
+                }
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber);
+                return;
+            }
+        }
+        submitDrain(subscriber);
+    }
+
+    private void submitDrain(Subscriber subscriber) {
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Hub останавливается
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        synchronized (subscriber) {
+            subscriber.outbox.clear();
+        }
+        if (unregister(subscriber)) {
+            disconnected.increment();
+            subscriber.emitter().completeWithError(new IOException("Подписчик отключен"));
+        }
+    }
+
+    private void register(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        // Добавление внутри compute: пустое множество не удалится параллельной отпиской между созданием и добавлением
+        if (subscriber.route() != null) {
+            byRoute.compute(subscriber.route(), (r, set) -> withSubscriber(set, subscriber));
+        }
+        for (Long tripId : subscriber.tripIds()) {
+            byTrip.compute(tripId, (t, set) -> withSubscriber(set, subscriber));
+        }
+    }
+
+    private boolean unregister(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return false;
+        }
+        if (subscriber.route() != null) {
+            byRoute.computeIfPresent(subscriber.route(), (r, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        for (Long tripId : subscriber.tripIds()) {
+            byTrip.computeIfPresent(tripId, (t, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        return true;
+    }
+
+    private static Set<Subscriber> withSubscriber(Set<Subscriber> set, Subscriber subscriber) {
+        Set<Subscriber> result = set != null ? set : ConcurrentHashMap.newKeySet();
+        result.add(subscriber);
+        return result;
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record RouteKey(Long fromBuildingId, Long toBuildingId) {
+    }
+
+    // data = false для служебных комментариев, которые не считаются доставленными событиями
+    private record Message(SseEmitter.SseEventBuilder event, boolean data) {
+    }
+
+    // Равенство по ссылке: каждая подписка уникальна
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final RouteKey route;
+        private final Set<Long> tripIds;
+        // Очередь отправки и признак запланированной задачи пула; изменяются под блокировкой подписчика
+        private final ArrayDeque<Message> outbox = new ArrayDeque<>();
+        private boolean sending;
+
+        Subscriber(SseEmitter emitter, RouteKey route, Set<Long> tripIds) {
+            this.emitter = emitter;
+            this.route = route;
+            this.tripIds = tripIds;
+        }
+
+        SseEmitter emitter() {
+            return emitter;
+        }
+
+        RouteKey route() {
+            return route;
+        }
+
+        Set<Long> tripIds() {
+            return tripIds;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package ru.itmo.itdrive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.itmo.itdrive.dto.UserEvent;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.repository.BookingRepository;
+import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.util.SqlArrayUtil;
+import ru.itmo.itdrive.util.TimingWheel;
+import ru.itmo.itdrive.util.TransactionUtil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Планировщик жизненного цикла поездок и бронирований на иерархическом колесе таймеров. Для каждой
+// незавершенной поездки в колесе лежит срок: отмена несостоявшейся (отправление + expire-after) или
+// автозавершение брошенной (начало + complete-after); для каждого PENDING бронирования - срок удержания мест.
+// Сроки, сработавшие за тик, обрабатываются пакетами через expire_trips / auto_complete_trips /
+// expire_booking_holds, таблицы не сканируются (кроме восстановления при запуске).
+// Функции перепроверяют статус и время, поэтому устаревшие сроки безопасно пропускаются
+@Slf4j
+@Component
+public class TripLifecycleScheduler {
+
+    public enum Action {
+        EXPIRE_TRIP, COMPLETE_TRIP, EXPIRE_HOLD
+    }
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final TripRepository tripRepository;
+    private final BookingRepository bookingRepository;
+    private final TripSearchIndex tripSearchIndex;
+    private final PopularRouteTracker popularRouteTracker;
+    private final UserEventInbox userEventInbox;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration expireAfter;
+    private final Duration completeAfter;
+    private final int batchSize;
+    private final TimingWheel<Task> wheel;
+    private final Map<Action, DistributionSummary> batchSizes = new EnumMap<>(Action.class);
+    private final Map<Action, Counter> transitions = new EnumMap<>(Action.class);
+    private final Map<Action, Counter> failures = new EnumMap<>(Action.class);
+    private final Map<Action, Timer> lag = new EnumMap<>(Action.class);
+
+    public TripLifecycleScheduler(TripRepository tripRepository,
+                                  BookingRepository bookingRepository,
+                                  TripSearchIndex tripSearchIndex,
+                                  PopularRouteTracker popularRouteTracker,
+                                  UserEventInbox userEventInbox,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${trip-lifecycle.enabled:true}") boolean enabled,
+                                  @Value("${trip-lifecycle.tick-ms:1000}") long tickMillis,
+                                  @Value("${trip-lifecycle.expire-after-minutes:30}") long expireAfterMinutes,
+                                  @Value("${trip-lifecycle.complete-after-hours:6}") long completeAfterHours,
+                                  @Value("${trip-lifecycle.batch-size:500}") int batchSize) {
+        this.tripRepository = tripRepository;
+        this.bookingRepository = bookingRepository;
+        this.tripSearchIndex = tripSearchIndex;
+        this.popularRouteTracker = popularRouteTracker;
+        this.userEventInbox = userEventInbox;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.expireAfter = Duration.ofMinutes(expireAfterMinutes);
+        this.completeAfter = Duration.ofHours(completeAfterHours);
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+
+        for (Action action : Action.values()) {
+            String tag = action.name().toLowerCase();
+            batchSizes.put(action, DistributionSummary.builder("trip.lifecycle.batch")
+                    .description("Размер пакета, переданного в одном вызове функции за тик")
+                    .tag("action", tag)
+                    .register(meterRegistry));
+            transitions.put(action, Counter.builder("trip.lifecycle.transitions")
+                    .description("Поездки и бронирования, фактически переведенные в новый статус")
+                    .tag("action", tag)
+                    .register(meterRegistry));
+            failures.put(action, Counter.builder("trip.lifecycle.failures")
+                    .description("Пакеты, отложенные на повтор из-за ошибки")
+                    .tag("action", tag)
+                    .register(meterRegistry));
+            lag.put(action, Timer.builder("trip.lifecycle.lag")
+                    .description("Задержка обработки относительно срока")
+                    .tag("action", tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("trip.lifecycle.pending", this, TripLifecycleScheduler::pending)
+                .description("Сроки, ожидающие в колесе таймеров")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        if (!enabled) {
+            return;
+        }
+        for (TripRepository.LifecycleTripView trip : tripRepository.findLifecycleTrips()) {
+            if ("SCHEDULED".equals(trip.getStatus())) {
+                schedule(Action.EXPIRE_TRIP, trip.getId(), trip.getDepartureTime().plus(expireAfter));
+            } else if (trip.getStartedAt() != null) {
+                schedule(Action.COMPLETE_TRIP, trip.getId(), trip.getStartedAt().plus(completeAfter));
+            }
+        }
+        for (BookingRepository.BookingHoldView hold : bookingRepository.findPendingHolds()) {
+            schedule(Action.EXPIRE_HOLD, hold.getId(), hold.getHoldExpiresAt());
+        }
+    }
+
+    public void tripScheduled(Long tripId, LocalDateTime departureTime) {
+        TransactionUtil.afterCommit(() -> schedule(Action.EXPIRE_TRIP, tripId, departureTime.plus(expireAfter)));
+    }
+
+    public void tripStarted(Long tripId, LocalDateTime startedAt) {
+        TransactionUtil.afterCommit(() -> schedule(Action.COMPLETE_TRIP, tripId, startedAt.plus(completeAfter)));
+    }
+
+    public void bookingHeld(Long bookingId, LocalDateTime holdExpiresAt) {
+        TransactionUtil.afterCommit(() -> schedule(Action.EXPIRE_HOLD, bookingId, holdExpiresAt));
+    }
+
+    @Scheduled(fixedDelayString = "${trip-lifecycle.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<TimingWheel.Expired<Task>> due;
+        synchronized (wheel) {
+            due = wheel.advance(now);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Map<Action, List<Long>> byAction = new EnumMap<>(Action.class);
+        for (TimingWheel.Expired<Task> expired : due) {
+            Task task = expired.item();
+            lag.get(task.action()).record(Math.max(0, now - expired.deadlineMillis()), TimeUnit.MILLISECONDS);
+            byAction.computeIfAbsent(task.action(), a -> new ArrayList<>()).add(task.id());
+        }
+        byAction.forEach((action, ids) -> {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                process(action, ids.subList(from, Math.min(from + batchSize, ids.size())));
+            }
+        });
+    }
+
+    private void process(Action action, List<Long> ids) {
+        batchSizes.get(action).record(ids.size());
+        try {
+            Integer applied = transactionTemplate.execute(status -> switch (action) {
+                case EXPIRE_TRIP -> expireTrips(ids);
+                case COMPLETE_TRIP -> completeTrips(ids);
+                case EXPIRE_HOLD -> expireHolds(ids);
+            });
+            transitions.get(action).increment(applied != null ? applied : 0);
+        } catch (RuntimeException e) {
+            // Пакет целиком откладывается: функции идемпотентны, повтор не изменит уже обработанные поездки
+            log.warn("Пакет {} из {} элементов отложен на повтор", action, ids.size(), e);
+            failures.get(action).increment();
+            long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            synchronized (wheel) {
+                ids.forEach(id -> wheel.schedule(new Task(action, id), retryAt));
+            }
+        }
+    }
+
+    private int expireTrips(List<Long> ids) {
+        // Пассажиры читаются до отмены и с блокировкой поездок; уведомляются только пассажиры истекших поездок
+        List<BookingRepository.BookingParticipantView> passengers = bookingRepository.lockActiveParticipantsByTripIdIn(ids);
+        List<Long> expired = tripRepository.expireTrips(
+                SqlArrayUtil.toBigintArray(ids), LocalDateTime.now().minus(expireAfter));
+        expired.forEach(tripId -> tripSearchIndex.remove(tripId, Trip.TripStatus.CANCELLED));
+        Set<Long> expiredIds = new HashSet<>(expired);
+        passengers.stream()
+                .filter(passenger -> expiredIds.contains(passenger.getTripId()))
+                .forEach(passenger -> userEventInbox.publish(passenger.getPassengerId(),
+                        UserEvent.Type.TRIP_CANCELLED, passenger.getTripId(), passenger.getBookingId()));
+        return expired.size();
+    }
+
+    private int completeTrips(List<Long> ids) {
+        List<TripRepository.CompletedTripRow> completed = tripRepository.autoCompleteTrips(
+                SqlArrayUtil.toBigintArray(ids), LocalDateTime.now().minus(completeAfter));
+        completed.forEach(trip -> popularRouteTracker.recordCompletion(trip.getFromBuildingId(), trip.getToBuildingId()));
+        return completed.size();
+    }
+
+    private int expireHolds(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        // Заблокированные строки - ровно те бронирования, которые отменит expire_booking_holds
+        List<BookingRepository.BookingParticipantView> expired = bookingRepository.lockExpiredHolds(ids, now);
+        List<BookingRepository.ExpiredHoldRow> released = bookingRepository.expireHolds(
+                SqlArrayUtil.toBigintArray(ids), now);
+        tripSearchIndex.refreshSeats(released.stream().map(BookingRepository.ExpiredHoldRow::getTripId).toList());
+        expired.forEach(booking -> userEventInbox.publish(booking.getPassengerId(),
+                UserEvent.Type.BOOKING_CANCELLED, booking.getTripId(), booking.getBookingId()));
+        return released.stream().mapToInt(BookingRepository.ExpiredHoldRow::getExpiredBookings).sum();
+    }
+
+    private void schedule(Action action, Long id, LocalDateTime deadline) {
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (wheel) {
+            wheel.schedule(new Task(action, id), deadlineMillis);
+        }
+    }
+
+    private int pending() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private record Task(Action action, Long id) {
+    }
+}
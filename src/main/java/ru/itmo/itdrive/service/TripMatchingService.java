@@ -0,0 +1,110 @@
+package ru.itmo.itdrive.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.itmo.itdrive.dto.TripMatchResponse;
+import ru.itmo.itdrive.model.Trip;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Подбор поездок с допуском на пешую доступность: отправление и назначение поездки могут быть
+// соседними корпусами в пределах заданного радиуса. Кандидаты берутся из TripSearchIndex
+// по таблице соседей, оценка - суммарная ходьба плюс отклонение времени отправления в метрах ходьбы
+@Service
+public class TripMatchingService {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final TripSearchIndex tripSearchIndex;
+    private final BuildingNeighbourTable buildingNeighbourTable;
+    private final ResponseMapper responseMapper;
+    private final double defaultWalkMeters;
+    private final long departureWindowMinutes;
+    private final double walkMetersPerMinute;
+
+    public TripMatchingService(TripSearchIndex tripSearchIndex,
+                               BuildingNeighbourTable buildingNeighbourTable,
+                               ResponseMapper responseMapper,
+                               @Value("${matching.default-walk-meters:500}") double defaultWalkMeters,
+                               @Value("${matching.departure-window-minutes:60}") long departureWindowMinutes,
+                               @Value("${matching.walk-meters-per-minute:80}") double walkMetersPerMinute) {
+        this.tripSearchIndex = tripSearchIndex;
+        this.buildingNeighbourTable = buildingNeighbourTable;
+        this.responseMapper = responseMapper;
+        this.defaultWalkMeters = defaultWalkMeters;
+        this.departureWindowMinutes = departureWindowMinutes;
+        this.walkMetersPerMinute = walkMetersPerMinute;
+    }
+
+    public List<TripMatchResponse> match(Long fromBuildingId, Long toBuildingId, LocalDateTime departureTime,
+                                         Double walkRadiusMeters, Integer limit) {
+        if (fromBuildingId == null || toBuildingId == null) {
+            throw new IllegalArgumentException("Необходимо указать корпуса отправления и назначения");
+        }
+        double walkRadius = walkRadiusMeters != null ? walkRadiusMeters : defaultWalkMeters;
+        if (walkRadius < 0 || walkRadius > buildingNeighbourTable.getMaxWalkMeters()) {
+            throw new IllegalArgumentException("Радиус ходьбы должен быть от 0 до "
+                    + (int) buildingNeighbourTable.getMaxWalkMeters() + " м");
+        }
+        int max = limit != null ? Math.min(Math.max(limit, 1), MAX_LIMIT) : DEFAULT_LIMIT;
+
+        // Без желаемого времени подбираются ближайшие отправления начиная с текущего момента
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime desired = departureTime != null ? departureTime : now;
+        LocalDateTime windowStart = desired.minusMinutes(departureWindowMinutes);
+        if (windowStart.isBefore(now)) {
+            windowStart = now;
+        }
+        LocalDateTime windowEnd = desired.plusMinutes(departureWindowMinutes);
+
+        Map<Long, Double> destinations = new HashMap<>();
+        for (BuildingNeighbourTable.Neighbour neighbour : buildingNeighbourTable.neighbours(toBuildingId, walkRadius)) {
+            destinations.put(neighbour.buildingId(), neighbour.distanceMeters());
+        }
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("Корпус назначения не найден");
+        }
+        List<BuildingNeighbourTable.Neighbour> origins = buildingNeighbourTable.neighbours(fromBuildingId, walkRadius);
+        if (origins.isEmpty()) {
+            throw new IllegalArgumentException("Корпус отправления не найден");
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (BuildingNeighbourTable.Neighbour origin : origins) {
+            for (Trip trip : tripSearchIndex.departingFrom(origin.buildingId(), windowStart, windowEnd)) {
+                Double destinationWalk = destinations.get(trip.getToBuilding().getId());
+                if (destinationWalk == null || trip.getAvailableSeats() <= 0) {
+                    continue;
+                }
+                long offsetMinutes = Duration.between(desired, trip.getDepartureTime()).toMinutes();
+                double score = origin.distanceMeters() + destinationWalk
+                        + Math.abs(offsetMinutes) * walkMetersPerMinute;
+                candidates.add(new Candidate(trip, origin.distanceMeters(), destinationWalk, offsetMinutes, score));
+            }
+        }
+
+        return candidates.stream()
+                .sorted(Comparator.comparingDouble(Candidate::score)
+                        .thenComparing(c -> c.trip().getDepartureTime()))
+                .limit(max)
+                .map(c -> new TripMatchResponse(
+                        responseMapper.toTripResponse(c.trip()),
+                        c.originWalkMeters(),
+                        c.destinationWalkMeters(),
+                        c.departureOffsetMinutes(),
+                        c.score()
+                ))
+                .toList();
+    }
+
+    private record Candidate(Trip trip, double originWalkMeters, double destinationWalkMeters,
+                             long departureOffsetMinutes, double score) {
+    }
+}
@@ -0,0 +1,269 @@
+package ru.itmo.itdrive.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.util.TransactionUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Индекс запланированных поездок в памяти: поездки сгруппированы по маршруту и упорядочены
+// по времени отправления, поэтому поиск не обращается к БД.
+// Изменения применяются только после коммита транзакции, после чего о них уведомляются слушатели.
+@Component
+@RequiredArgsConstructor
+public class TripSearchIndex {
+
+    private final TripRepository tripRepository;
+
+    private final ConcurrentSkipListMap<DepartureKey, Trip> byDeparture = new ConcurrentSkipListMap<>();
+    private final Map<RouteKey, ConcurrentSkipListMap<DepartureKey, Trip>> byRoute = new ConcurrentHashMap<>();
+    private final Map<Long, ConcurrentSkipListMap<DepartureKey, Trip>> byFromBuilding = new ConcurrentHashMap<>();
+    private final Map<Long, Trip> byId = new ConcurrentHashMap<>();
+    private final List<Consumer<TripChange>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong seatReads = new AtomicLong();
+    private final Map<Long, Long> appliedSeatReads = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        byDeparture.clear();
+        byRoute.clear();
+        byFromBuilding.clear();
+        byId.clear();
+        appliedSeatReads.clear();
+        tripRepository.findByStatus(Trip.TripStatus.SCHEDULED.name()).forEach(this::doPut);
+    }
+
+    public List<Trip> search(Long fromBuildingId, Long toBuildingId,
+                             LocalDateTime departureFrom, LocalDateTime departureTo,
+                             BigDecimal maxPrice) {
+        NavigableMap<DepartureKey, Trip> source;
+        if (fromBuildingId != null && toBuildingId != null) {
+            source = byRoute.get(new RouteKey(fromBuildingId, toBuildingId));
+            if (source == null) {
+                return List.of();
+            }
+        } else {
+            source = byDeparture;
+        }
+
+        NavigableMap<DepartureKey, Trip> range = source;
+        if (departureFrom != null && departureTo != null) {
+            if (departureFrom.isAfter(departureTo)) {
+                return List.of();
+            }
+            range = source.subMap(DepartureKey.lowest(departureFrom), true, DepartureKey.highest(departureTo), true);
+        } else if (departureFrom != null) {
+            range = source.tailMap(DepartureKey.lowest(departureFrom), true);
+        } else if (departureTo != null) {
+            range = source.headMap(DepartureKey.highest(departureTo), true);
+        }
+
+        List<Trip> result = new ArrayList<>();
+        for (Trip trip : range.values()) {
+            if (fromBuildingId != null && !fromBuildingId.equals(trip.getFromBuilding().getId())) {
+                continue;
+            }
+            if (toBuildingId != null && !toBuildingId.equals(trip.getToBuilding().getId())) {
+                continue;
+            }
+            if (maxPrice != null && trip.getPrice().compareTo(maxPrice) > 0) {
+                continue;
+            }
+            result.add(trip);
+        }
+        return result;
+    }
+
+    // Запланированные поездки из корпуса в порядке отправления в интервале [departureFrom, departureTo]
+    // (границы необязательны)
+    public List<Trip> departingFrom(Long fromBuildingId, LocalDateTime departureFrom, LocalDateTime departureTo) {
+        ConcurrentSkipListMap<DepartureKey, Trip> trips = byFromBuilding.get(fromBuildingId);
+        if (trips == null) {
+            return List.of();
+        }
+        NavigableMap<DepartureKey, Trip> range = trips;
+        if (departureFrom != null && departureTo != null) {
+            if (departureFrom.isAfter(departureTo)) {
+                return List.of();
+            }
+            range = trips.subMap(DepartureKey.lowest(departureFrom), true, DepartureKey.highest(departureTo), true);
+        } else if (departureFrom != null) {
+            range = trips.tailMap(DepartureKey.lowest(departureFrom), true);
+        } else if (departureTo != null) {
+            range = trips.headMap(DepartureKey.highest(departureTo), true);
+        }
+        return new ArrayList<>(range.values());
+    }
+
+    public Optional<Trip> find(Long tripId) {
+        return Optional.ofNullable(byId.get(tripId));
+    }
+
+    // Слушатель вызывается в потоке, применившем изменение, и не должен блокироваться
+    public void addChangeListener(Consumer<TripChange> listener) {
+        listeners.add(listener);
+    }
+
+    public void put(Trip trip) {
+        TransactionUtil.afterCommit(() -> {
+            doPut(trip);
+            notifyListeners(TripChange.of(trip, trip.getAvailableSeats(), trip.getStatus()));
+        });
+    }
+
+    // newStatus - статус, с которым поездка покидает индекс (для слушателей)
+    public void remove(Long tripId, Trip.TripStatus newStatus) {
+        TransactionUtil.afterCommit(() -> {
+            Trip removed = doRemove(tripId);
+            appliedSeatReads.remove(tripId);
+            if (removed != null) {
+                notifyListeners(TripChange.of(removed, null, newStatus));
+            }
+        });
+    }
+
+    public void refreshSeats(Long tripId) {
+        refreshSeats(List.of(tripId));
+    }
+
+    // Места перечитываются после коммита, а не берутся из транзакции: коллбеки двух коммитов одной поездки
+    // могут выполниться в обратном порядке. Номер чтения берется до запроса, и чтение с большим номером видит
+    // все коммиты, предшествовавшие чтениям с меньшими номерами, поэтому более старое чтение не применяется
+    public void refreshSeats(Collection<Long> tripIds) {
+        if (tripIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(tripIds);
+        TransactionUtil.afterCommit(() -> {
+            long read = seatReads.incrementAndGet();
+            for (TripRepository.TripSeatsView seats : tripRepository.findSeatsByIdIn(ids)) {
+                Trip updated = doUpdateSeats(seats.getId(), seats.getAvailableSeats(), read);
+                if (updated != null) {
+                    notifyListeners(TripChange.of(updated, seats.getAvailableSeats(), updated.getStatus()));
+                }
+            }
+        });
+    }
+
+    private synchronized void doPut(Trip trip) {
+        if (trip.getStatus() != Trip.TripStatus.SCHEDULED) {
+            doRemove(trip.getId());
+            return;
+        }
+        doRemove(trip.getId());
+        DepartureKey key = new DepartureKey(trip.getDepartureTime(), trip.getId());
+        RouteKey route = new RouteKey(trip.getFromBuilding().getId(), trip.getToBuilding().getId());
+        byId.put(trip.getId(), trip);
+        byDeparture.put(key, trip);
+        byRoute.computeIfAbsent(route, r -> new ConcurrentSkipListMap<>()).put(key, trip);
+        byFromBuilding.computeIfAbsent(route.fromBuildingId(), b -> new ConcurrentSkipListMap<>()).put(key, trip);
+    }
+
+    private synchronized Trip doRemove(Long tripId) {
+        Trip existing = byId.remove(tripId);
+        if (existing == null) {
+            return null;
+        }
+        DepartureKey key = new DepartureKey(existing.getDepartureTime(), existing.getId());
+        byDeparture.remove(key);
+        RouteKey route = new RouteKey(existing.getFromBuilding().getId(), existing.getToBuilding().getId());
+        ConcurrentSkipListMap<DepartureKey, Trip> routeTrips = byRoute.get(route);
+        if (routeTrips != null) {
+            routeTrips.remove(key);
+        }
+        ConcurrentSkipListMap<DepartureKey, Trip> fromTrips = byFromBuilding.get(route.fromBuildingId());
+        if (fromTrips != null) {
+            fromTrips.remove(key);
+        }
+        return existing;
+    }
+
+    private synchronized Trip doUpdateSeats(Long tripId, Integer availableSeats, long read) {
+        Trip existing = byId.get(tripId);
+        if (existing == null || read < appliedSeatReads.getOrDefault(tripId, 0L)) {
+            return null;
+        }
+        appliedSeatReads.put(tripId, read);
+        // Сущности в индексе не изменяются на месте: их могут сериализовать параллельные запросы
+        Trip updated = copyOf(existing);
+        updated.setAvailableSeats(availableSeats);
+        doPut(updated);
+        return updated;
+    }
+
+    private void notifyListeners(TripChange change) {
+        for (Consumer<TripChange> listener : listeners) {
+            listener.accept(change);
+        }
+    }
+
+    private static Trip copyOf(Trip trip) {
+        return new Trip(
+                trip.getId(),
+                trip.getDriver(),
+                trip.getFromBuilding(),
+                trip.getToBuilding(),
+                trip.getDepartureTime(),
+                trip.getStartedAt(),
+                trip.getFinishedAt(),
+                trip.getMaxPassengers(),
+                trip.getAvailableSeats(),
+                trip.getPrice(),
+                trip.getStatus(),
+                trip.getDescription(),
+                trip.getCreatedAt(),
+                trip.getUpdatedAt(),
+                trip.getTemplateId()
+        );
+    }
+
+    // Изменение поездки в индексе; availableSeats = null, если поездка покинула индекс
+    public record TripChange(Long tripId, Long fromBuildingId, Long toBuildingId,
+                             Integer availableSeats, Trip.TripStatus status) {
+
+        static TripChange of(Trip trip, Integer availableSeats, Trip.TripStatus status) {
+            return new TripChange(trip.getId(), trip.getFromBuilding().getId(), trip.getToBuilding().getId(),
+                    availableSeats, status);
+        }
+    }
+
+    private record RouteKey(Long fromBuildingId, Long toBuildingId) {
+    }
+
+    private record DepartureKey(LocalDateTime departureTime, Long tripId) implements Comparable<DepartureKey> {
+
+        private static final Comparator<DepartureKey> ORDER = Comparator
+                .comparing(DepartureKey::departureTime)
+                .thenComparing(DepartureKey::tripId);
+
+        static DepartureKey lowest(LocalDateTime time) {
+            return new DepartureKey(time, Long.MIN_VALUE);
+        }
+
+        static DepartureKey highest(LocalDateTime time) {
+            return new DepartureKey(time, Long.MAX_VALUE);
+        }
+
+        @Override
+        public int compareTo(DepartureKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -1,18 +1,29 @@
 package ru.itmo.itdrive.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.itmo.itdrive.dto.CreateTripRequest;
+import ru.itmo.itdrive.dto.NearbyTripResponse;
+import ru.itmo.itdrive.dto.TripPageResponse;
+import ru.itmo.itdrive.dto.TripResponse;
 import ru.itmo.itdrive.dto.TripSearchRequest;
+import ru.itmo.itdrive.dto.UserEvent;
 import ru.itmo.itdrive.model.Building;
 import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.repository.BookingRepository;
 import ru.itmo.itdrive.repository.BuildingRepository;
 import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.util.GeoUtil;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,9 +31,28 @@ public class TripService {
     
     private final TripRepository tripRepository;
     private final BuildingRepository buildingRepository;
+    private final TripSearchIndex tripSearchIndex;
+    private final PopularRouteTracker popularRouteTracker;
+    private final ResponseMapper responseMapper;
+    private final BuildingSpatialIndex buildingSpatialIndex;
+    private final TripLifecycleScheduler tripLifecycleScheduler;
+    private final BookingRepository bookingRepository;
+    private final UserEventInbox userEventInbox;
+
+    // На сколько дней вперед водитель может запланировать поездку вручную
+    @Value("${trip.max-advance-days:30}")
+    private long maxAdvanceDays;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String CURSOR_SEPARATOR = ";";
+    private static final double DEFAULT_NEARBY_RADIUS_METERS = 1000;
+    private static final double MAX_NEARBY_RADIUS_METERS = 20000;
+    private static final int DEFAULT_NEARBY_LIMIT = 50;
+    private static final int MAX_NEARBY_LIMIT = 200;
 
     @Transactional
-    public Trip createTrip(CreateTripRequest request, Long driverId) {
+    public TripResponse createTrip(CreateTripRequest request, Long driverId) {
         Building fromBuilding = buildingRepository.findById(request.getFromBuildingId())
                 .orElseThrow(() -> new IllegalArgumentException("Корпус отправления не найден"));
         
@@ -33,8 +63,17 @@ public class TripService {
             throw new IllegalArgumentException("Корпуса отправления и назначения не могут совпадать");
         }
 
-        // Время отправления устанавливается автоматически (текущее время + 1 час)
-        LocalDateTime departureTime = LocalDateTime.now().plusHours(1);
+        // Без явного времени отправление через час
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime departureTime = request.getDepartureTime() != null
+                ? request.getDepartureTime()
+                : now.plusHours(1);
+        if (!departureTime.isAfter(now)) {
+            throw new IllegalArgumentException("Время отправления должно быть в будущем");
+        }
+        if (departureTime.isAfter(now.plusDays(maxAdvanceDays))) {
+            throw new IllegalArgumentException("Поездку можно запланировать не более чем на " + maxAdvanceDays + " дней вперед");
+        }
 
         // Передаем пустую строку вместо null, чтобы PostgreSQL мог определить тип
         // Функция сама преобразует пустую строку в NULL
@@ -52,13 +91,25 @@ public class TripService {
                 description
         );
 
-        return tripRepository.findById(tripId)
+        Trip trip = tripRepository.findById(tripId)
                 .orElseThrow(() -> new RuntimeException("Ошибка при создании поездки"));
+        tripSearchIndex.put(trip);
+        tripLifecycleScheduler.tripScheduled(tripId, departureTime);
+        return responseMapper.toTripResponse(trip);
     }
 
     @Transactional(readOnly = true)
-    public List<Trip> getTripsByDriver(Long driverId) {
-        return tripRepository.findByDriverId(driverId);
+    public List<TripResponse> getTripsByDriver(Long driverId) {
+        return tripRepository.findViewsByDriverId(driverId).stream()
+                .map(responseMapper::toTripResponse)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public TripResponse getTripResponse(Long id) {
+        return tripRepository.findViewById(id)
+                .map(responseMapper::toTripResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Поездка не найдена"));
     }
 
     @Transactional(readOnly = true)
@@ -67,43 +118,76 @@ public class TripService {
                 .orElseThrow(() -> new IllegalArgumentException("Поездка не найдена"));
     }
 
-    @Transactional(readOnly = true)
-    public List<Trip> searchTrips(TripSearchRequest request) {
-        List<Trip> trips;
-        
-        if (request.getFromBuildingId() != null && request.getToBuildingId() != null) {
-            trips = tripRepository.findByFromBuildingIdAndToBuildingId(
-                    request.getFromBuildingId(),
-                    request.getToBuildingId(),
-                    Trip.TripStatus.SCHEDULED.name()
-            );
-        } else {
-            trips = tripRepository.findByStatus(Trip.TripStatus.SCHEDULED.name());
-        }
+    public List<TripResponse> searchTrips(TripSearchRequest request) {
+        // Поиск выполняется по индексу запланированных поездок в памяти, без обращения к БД
+        BigDecimal maxPrice = request.getMaxPrice() != null ? BigDecimal.valueOf(request.getMaxPrice()) : null;
+        return tripSearchIndex.search(
+                request.getFromBuildingId(),
+                request.getToBuildingId(),
+                request.getDepartureTimeFrom(),
+                request.getDepartureTimeTo(),
+                maxPrice
+        ).stream().map(responseMapper::toTripResponse).toList();
+    }
 
-        // Фильтрация по времени отправления
-        if (request.getDepartureTimeFrom() != null) {
-            LocalDateTime from = request.getDepartureTimeFrom();
-            trips = trips.stream()
-                    .filter(t -> !t.getDepartureTime().isBefore(from))
-                    .collect(Collectors.toList());
+    public List<NearbyTripResponse> findNearbyTrips(Double latitude, Double longitude, Double radiusMeters, Integer limit) {
+        GeoUtil.validateCoordinates(latitude, longitude);
+        double radius = radiusMeters != null ? radiusMeters : DEFAULT_NEARBY_RADIUS_METERS;
+        if (radius <= 0 || radius > MAX_NEARBY_RADIUS_METERS) {
+            throw new IllegalArgumentException("Радиус должен быть от 0 до " + (int) MAX_NEARBY_RADIUS_METERS + " м");
         }
+        int max = limit != null ? Math.min(Math.max(limit, 1), MAX_NEARBY_LIMIT) : DEFAULT_NEARBY_LIMIT;
 
-        if (request.getDepartureTimeTo() != null) {
-            LocalDateTime to = request.getDepartureTimeTo();
-            trips = trips.stream()
-                    .filter(t -> !t.getDepartureTime().isAfter(to))
-                    .collect(Collectors.toList());
+        // Корпуса в радиусе уже упорядочены по расстоянию, поездки каждого корпуса - по времени отправления,
+        // поэтому результат собирается без общей сортировки
+        List<NearbyTripResponse> result = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (BuildingSpatialIndex.BuildingDistance nearby
+                : buildingSpatialIndex.findWithinRadius(latitude, longitude, radius)) {
+            for (Trip trip : tripSearchIndex.departingFrom(nearby.building().getId(), now, null)) {
+                if (result.size() >= max) {
+                    return result;
+                }
+                result.add(new NearbyTripResponse(responseMapper.toTripResponse(trip), nearby.distanceMeters()));
+            }
         }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public TripPageResponse searchTripsPage(TripSearchRequest request) {
+        int size = request.getSize() != null
+                ? Math.min(Math.max(request.getSize(), 1), MAX_PAGE_SIZE)
+                : DEFAULT_PAGE_SIZE;
+        BigDecimal maxPrice = request.getMaxPrice() != null ? BigDecimal.valueOf(request.getMaxPrice()) : null;
 
-        // Фильтрация по цене
-        if (request.getMaxPrice() != null) {
-            trips = trips.stream()
-                    .filter(t -> t.getPrice().compareTo(java.math.BigDecimal.valueOf(request.getMaxPrice())) <= 0)
-                    .collect(Collectors.toList());
+        LocalDateTime afterDepartureTime = null;
+        Long afterId = null;
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            TripCursor cursor = decodeCursor(request.getCursor());
+            afterDepartureTime = cursor.departureTime();
+            afterId = cursor.tripId();
         }
 
-        return trips;
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<TripRepository.TripView> trips = tripRepository.searchScheduledTrips(
+                request.getFromBuildingId(),
+                request.getToBuildingId(),
+                request.getDepartureTimeFrom(),
+                request.getDepartureTimeTo(),
+                maxPrice,
+                afterDepartureTime,
+                afterId,
+                size + 1
+        );
+
+        String nextCursor = null;
+        if (trips.size() > size) {
+            trips = trips.subList(0, size);
+            TripRepository.TripView last = trips.get(size - 1);
+            nextCursor = encodeCursor(last.getDepartureTime(), last.getId());
+        }
+        return new TripPageResponse(trips.stream().map(responseMapper::toTripResponse).toList(), nextCursor);
     }
 
     @Transactional
@@ -122,6 +206,10 @@ public class TripService {
         if (!result) {
             throw new RuntimeException("Ошибка при начале поездки");
         }
+        tripSearchIndex.remove(tripId, Trip.TripStatus.IN_PROGRESS);
+        tripLifecycleScheduler.tripStarted(tripId, LocalDateTime.now());
+        // После start_trip все активные бронирования подтверждены, строка поездки заблокирована этой транзакцией
+        notifyPassengers(bookingRepository.lockActiveParticipantsByTripIdIn(List.of(tripId)), UserEvent.Type.TRIP_STARTED);
     }
 
     @Transactional
@@ -140,6 +228,8 @@ public class TripService {
         if (!result) {
             throw new RuntimeException("Ошибка при завершении поездки");
         }
+        tripSearchIndex.remove(tripId, Trip.TripStatus.COMPLETED);
+        popularRouteTracker.recordCompletion(trip.getFromBuilding().getId(), trip.getToBuilding().getId());
     }
 
     @Transactional
@@ -154,10 +244,42 @@ public class TripService {
             throw new IllegalArgumentException("Невозможно отменить завершенную или уже отмененную поездку");
         }
 
+        // Пассажиры читаются до отмены: после нее активных бронирований не останется
+        List<BookingRepository.BookingParticipantView> passengers =
+                bookingRepository.lockActiveParticipantsByTripIdIn(List.of(tripId));
+
         // Используем PL/PGSQL функцию для отмены поездки (она вернет места и отменит бронирования)
         Boolean result = tripRepository.cancelTrip(tripId);
         if (!result) {
             throw new RuntimeException("Ошибка при отмене поездки");
         }
+        tripSearchIndex.remove(tripId, Trip.TripStatus.CANCELLED);
+        notifyPassengers(passengers, UserEvent.Type.TRIP_CANCELLED);
+    }
+
+    private void notifyPassengers(List<BookingRepository.BookingParticipantView> passengers, UserEvent.Type type) {
+        passengers.forEach(passenger -> userEventInbox.publish(
+                passenger.getPassengerId(), type, passenger.getTripId(), passenger.getBookingId()));
+    }
+
+    private static String encodeCursor(LocalDateTime departureTime, Long tripId) {
+        String value = departureTime + CURSOR_SEPARATOR + tripId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TripCursor decodeCursor(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split(CURSOR_SEPARATOR);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+            return new TripCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор");
+        }
+    }
+
+    private record TripCursor(LocalDateTime departureTime, Long tripId) {
     }
 }
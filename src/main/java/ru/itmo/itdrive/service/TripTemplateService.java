@@ -0,0 +1,177 @@
+package ru.itmo.itdrive.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.itmo.itdrive.dto.TripTemplateRequest;
+import ru.itmo.itdrive.dto.TripTemplateResponse;
+import ru.itmo.itdrive.model.Building;
+import ru.itmo.itdrive.model.Trip;
+import ru.itmo.itdrive.model.TripTemplate;
+import ru.itmo.itdrive.repository.BuildingRepository;
+import ru.itmo.itdrive.repository.TripRepository;
+import ru.itmo.itdrive.repository.TripTemplateRepository;
+import ru.itmo.itdrive.repository.UserRepository;
+import ru.itmo.itdrive.util.SqlArrayUtil;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Шаблоны регулярных поездок. Поездки на горизонт horizon-days создаются функцией generate_template_trips
+// одним INSERT на все шаблоны: при создании шаблона, ежедневно и при запуске. Изменение шаблона переносится
+// на будущие поездки без активных бронирований функцией sync_template_trips, недостающие дни догенерируются.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TripTemplateService {
+
+    // Созданные и измененные поездки загружаются для индекса поиска пачками
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private final TripTemplateRepository tripTemplateRepository;
+    private final TripRepository tripRepository;
+    private final BuildingRepository buildingRepository;
+    private final UserRepository userRepository;
+    private final TripSearchIndex tripSearchIndex;
+    private final TripLifecycleScheduler tripLifecycleScheduler;
+    private final ResponseMapper responseMapper;
+
+    @Value("${trip-templates.horizon-days:14}")
+    private int horizonDays;
+
+    @Transactional
+    public TripTemplateResponse createTemplate(TripTemplateRequest request, Long driverId) {
+        TripTemplate template = new TripTemplate();
+        template.setDriver(userRepository.getReferenceById(driverId));
+        apply(template, request);
+        template = tripTemplateRepository.saveAndFlush(template);
+
+        LocalDate today = LocalDate.now();
+        registerGenerated(tripTemplateRepository.generateTrips(
+                SqlArrayUtil.toBigintArray(List.of(template.getId())), today, today.plusDays(horizonDays)));
+        return responseMapper.toTripTemplateResponse(template);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TripTemplateResponse> getTemplatesByDriver(Long driverId) {
+        return tripTemplateRepository.findByDriverIdOrderById(driverId).stream()
+                .map(responseMapper::toTripTemplateResponse)
+                .toList();
+    }
+
+    @Transactional
+    public TripTemplateResponse updateTemplate(Long templateId, TripTemplateRequest request, Long driverId) {
+        TripTemplate template = getOwnTemplate(templateId, driverId);
+        if (!template.getActive()) {
+            throw new IllegalArgumentException("Шаблон отключен");
+        }
+        apply(template, request);
+        template = tripTemplateRepository.saveAndFlush(template);
+
+        // Сначала переносятся изменения на существующие поездки, затем создаются поездки на добавленные дни
+        registerSynced(tripTemplateRepository.syncTrips(templateId));
+        LocalDate today = LocalDate.now();
+        registerGenerated(tripTemplateRepository.generateTrips(
+                SqlArrayUtil.toBigintArray(List.of(templateId)), today, today.plusDays(horizonDays)));
+        return responseMapper.toTripTemplateResponse(template);
+    }
+
+    // Отключение шаблона убирает его будущие поездки без бронирований; поездки с бронированиями остаются
+    @Transactional
+    public void deactivateTemplate(Long templateId, Long driverId) {
+        TripTemplate template = getOwnTemplate(templateId, driverId);
+        if (!template.getActive()) {
+            return;
+        }
+        template.setActive(false);
+        tripTemplateRepository.saveAndFlush(template);
+        registerSynced(tripTemplateRepository.syncTrips(templateId));
+    }
+
+    // Горизонт сдвигается на день: каждому активному шаблону добавляются поездки на новые даты
+    @Scheduled(cron = "${trip-templates.generate-cron:0 0 3 * * *}")
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void generateUpcoming() {
+        LocalDate today = LocalDate.now();
+        List<TripTemplateRepository.GeneratedTripRow> generated =
+                tripTemplateRepository.generateAllTrips(today, today.plusDays(horizonDays));
+        registerGenerated(generated);
+        if (!generated.isEmpty()) {
+            log.info("По шаблонам создано поездок: {}", generated.size());
+        }
+    }
+
+    private TripTemplate getOwnTemplate(Long templateId, Long driverId) {
+        TripTemplate template = tripTemplateRepository.findById(templateId)
+                .orElseThrow(() -> new IllegalArgumentException("Шаблон не найден"));
+        if (!template.getDriver().getId().equals(driverId)) {
+            throw new IllegalArgumentException("Только водитель может изменять свой шаблон");
+        }
+        return template;
+    }
+
+    private void apply(TripTemplate template, TripTemplateRequest request) {
+        Building fromBuilding = buildingRepository.findById(request.getFromBuildingId())
+                .orElseThrow(() -> new IllegalArgumentException("Корпус отправления не найден"));
+
+        Building toBuilding = buildingRepository.findById(request.getToBuildingId())
+                .orElseThrow(() -> new IllegalArgumentException("Корпус назначения не найден"));
+
+        if (fromBuilding.getId().equals(toBuilding.getId())) {
+            throw new IllegalArgumentException("Корпуса отправления и назначения не могут совпадать");
+        }
+
+        // Маска дней: бит 0 - понедельник, как ISODOW - 1 в generate_template_trips
+        int daysOfWeek = 0;
+        for (DayOfWeek day : request.getDaysOfWeek()) {
+            daysOfWeek |= 1 << (day.getValue() - 1);
+        }
+
+        template.setFromBuilding(fromBuilding);
+        template.setToBuilding(toBuilding);
+        template.setDaysOfWeek(daysOfWeek);
+        template.setDepartureTime(request.getDepartureTime().withSecond(0).withNano(0));
+        template.setMaxPassengers(request.getMaxPassengers());
+        template.setPrice(request.getPrice());
+        template.setDescription(request.getDescription() != null && !request.getDescription().trim().isEmpty()
+                ? request.getDescription().trim()
+                : null);
+    }
+
+    private void registerGenerated(List<TripTemplateRepository.GeneratedTripRow> rows) {
+        rows.forEach(row -> tripLifecycleScheduler.tripScheduled(row.getTripId(), row.getDepartureTime()));
+        putIntoIndex(rows.stream().map(TripTemplateRepository.GeneratedTripRow::getTripId).toList());
+    }
+
+    private void registerSynced(List<TripTemplateRepository.SyncedTripRow> rows) {
+        List<Long> updated = new ArrayList<>();
+        for (TripTemplateRepository.SyncedTripRow row : rows) {
+            if ("UPDATED".equals(row.getAction())) {
+                updated.add(row.getTripId());
+            } else {
+                tripSearchIndex.remove(row.getTripId(), Trip.TripStatus.CANCELLED);
+            }
+        }
+        // Для перенесенной поездки в колесе остается и старый срок: expire_trips перепроверит время отправления
+        for (Trip trip : putIntoIndex(updated)) {
+            tripLifecycleScheduler.tripScheduled(trip.getId(), trip.getDepartureTime());
+        }
+    }
+
+    private List<Trip> putIntoIndex(List<Long> tripIds) {
+        List<Trip> trips = new ArrayList<>();
+        for (int from = 0; from < tripIds.size(); from += LOAD_BATCH_SIZE) {
+            trips.addAll(tripRepository.findAllById(tripIds.subList(from, Math.min(from + LOAD_BATCH_SIZE, tripIds.size()))));
+        }
+        trips.forEach(tripSearchIndex::put);
+        return trips;
+    }
+}
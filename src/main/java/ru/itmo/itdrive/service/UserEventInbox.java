@@ -0,0 +1,190 @@
+package ru.itmo.itdrive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.itmo.itdrive.dto.UserEvent;
+import ru.itmo.itdrive.dto.UserEventsResponse;
+import ru.itmo.itdrive.exception.ServiceOverloadedException;
+import ru.itmo.itdrive.util.TransactionUtil;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограниченные ящики событий пользователей в памяти с выдачей через long-poll.
+// Сервисы публикуют события после коммита; клиент передает курсор (seq последнего полученного события)
+// и либо сразу получает более новые события, либо ждет их до таймаута, не занимая поток обработки запросов.
+// При переполнении ящика старые события вытесняются, и клиент узнает об этом по флагу truncated.
+// Ящик без ожидающих запросов и без активности дольше idle-minutes удаляется.
+@Component
+public class UserEventInbox {
+
+    private final int capacity;
+    private final int maxWaitersPerUser;
+    private final int maxWaiters;
+    private final long idleMillis;
+
+    // Общая последовательность начинается с текущего времени в микросекундах: после перезапуска
+    // новые события получают номера больше курсоров, выданных прежним процессом
+    private final AtomicLong sequence = new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    private final Map<Long, Inbox> inboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final Counter published;
+    private final Counter dropped;
+
+    public UserEventInbox(MeterRegistry meterRegistry,
+                          @Value("${user-events.capacity:100}") int capacity,
+                          @Value("${user-events.max-waiters-per-user:4}") int maxWaitersPerUser,
+                          @Value("${user-events.max-waiters:10000}") int maxWaiters,
+                          @Value("${user-events.idle-minutes:60}") long idleMinutes) {
+        this.capacity = capacity;
+        this.maxWaitersPerUser = maxWaitersPerUser;
+        this.maxWaiters = maxWaiters;
+        this.idleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+
+        this.published = Counter.builder("user.events.published")
+                .description("События, добавленные в ящики пользователей")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("user.events.dropped")
+                .description("События, вытесненные из переполненных ящиков")
+                .register(meterRegistry);
+        Gauge.builder("user.events.inboxes", inboxes, Map::size)
+                .description("Ящики событий в памяти")
+                .register(meterRegistry);
+        Gauge.builder("user.events.waiters", waiters, AtomicInteger::get)
+                .description("Ожидающие long-poll запросы")
+                .register(meterRegistry);
+    }
+
+    // Событие попадает в ящик только после коммита транзакции, изменившей состояние
+    public void publish(Long userId, UserEvent.Type type, Long tripId, Long bookingId) {
+        TransactionUtil.afterCommit(() -> append(userId, type, tripId, bookingId));
+    }
+
+    // События пользователя после курсора after; если их нет, ответ откладывается до нового события или таймаута.
+    // timeoutMillis = 0 - ответить сразу без ожидания (DeferredResult с таймаутом 0 ждал бы бессрочно)
+    public DeferredResult<UserEventsResponse> poll(Long userId, long after, long timeoutMillis) {
+        DeferredResult<UserEventsResponse> result = new DeferredResult<>(Math.max(timeoutMillis, 1));
+        Waiter waiter = new Waiter(after, result);
+        UserEventsResponse[] ready = new UserEventsResponse[1];
+
+        inboxes.compute(userId, (id, inbox) -> {
+            Inbox current = inbox != null ? inbox : new Inbox(sequence.get());
+            current.touch();
+            UserEventsResponse response = current.read(after);
+            if (!response.getEvents().isEmpty() || response.getTruncated() || timeoutMillis <= 0) {
+                ready[0] = response;
+                return current;
+            }
+            if (current.waiters.size() >= maxWaitersPerUser) {
+                throw new ServiceOverloadedException("Слишком много ожидающих запросов событий");
+            }
+            if (waiters.incrementAndGet() > maxWaiters) {
+                waiters.decrementAndGet();
+                throw new ServiceOverloadedException("Слишком много ожидающих запросов событий, повторите позже");
+            }
+            current.waiters.add(waiter);
+            return current;
+        });
+
+        if (ready[0] != null) {
+            result.setResult(ready[0]);
+            return result;
+        }
+        result.onTimeout(() -> result.setResult(new UserEventsResponse(List.of(), after, false)));
+        result.onCompletion(() -> removeWaiter(userId, waiter));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${user-events.cleanup-ms:60000}")
+    public void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - idleMillis;
+        for (Long userId : inboxes.keySet()) {
+            inboxes.computeIfPresent(userId, (id, inbox) ->
+                    inbox.waiters.isEmpty() && inbox.lastAccess < idleBefore ? null : inbox);
+        }
+    }
+
+    private void append(Long userId, UserEvent.Type type, Long tripId, Long bookingId) {
+        Map<Waiter, UserEventsResponse> woken = new HashMap<>();
+
+        inboxes.compute(userId, (id, inbox) -> {
+            // Номер выдается под блокировкой ящика, поэтому события пользователя лежат по возрастанию seq
+            UserEvent event = new UserEvent(sequence.incrementAndGet(), type, tripId, bookingId, LocalDateTime.now());
+            Inbox current = inbox != null ? inbox : new Inbox(event.getSeq() - 1);
+            current.touch();
+            if (current.events.size() >= capacity) {
+                current.floor = current.events.poll().getSeq();
+                dropped.increment();
+            }
+            current.events.add(event);
+            // Каждый ожидающий получает события после своего курсора
+            for (Waiter waiter : current.waiters) {
+                woken.put(waiter, current.read(waiter.after()));
+            }
+            waiters.addAndGet(-current.waiters.size());
+            current.waiters.clear();
+            return current;
+        });
+        published.increment();
+
+        // Ответы отправляются вне блокировки ящика
+        woken.forEach((waiter, response) -> waiter.result().setResult(response));
+    }
+
+    private void removeWaiter(Long userId, Waiter waiter) {
+        inboxes.computeIfPresent(userId, (id, inbox) -> {
+            if (inbox.waiters.remove(waiter)) {
+                waiters.decrementAndGet();
+            }
+            return inbox;
+        });
+    }
+
+    private record Waiter(long after, DeferredResult<UserEventsResponse> result) {
+    }
+
+    // Читается и изменяется только внутри compute по ключу пользователя
+    private static final class Inbox {
+
+        private final ArrayDeque<UserEvent> events = new ArrayDeque<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+        // Номер последнего события, которого в ящике уже нет
+        private long floor;
+        private long lastAccess;
+
+        Inbox(long floor) {
+            this.floor = floor;
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        UserEventsResponse read(long after) {
+            List<UserEvent> result = new ArrayList<>();
+            for (UserEvent event : events) {
+                if (event.getSeq() > after) {
+                    result.add(event);
+                }
+            }
+            // Курсор 0 - первый запрос клиента, потерянных для него событий нет
+            boolean truncated = after > 0 && after < floor;
+            long cursor = !result.isEmpty() ? result.get(result.size() - 1).getSeq() : Math.max(after, floor);
+            return new UserEventsResponse(result, cursor, truncated);
+        }
+    }
+}
@@ -1,34 +1,38 @@
 package ru.itmo.itdrive.service;
 
-import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.itmo.itdrive.dto.RegisterRequest;
+import ru.itmo.itdrive.dto.UserResponse;
 import ru.itmo.itdrive.dto.UserStatisticsResponse;
-import ru.itmo.itdrive.model.Booking;
 import ru.itmo.itdrive.model.User;
-import ru.itmo.itdrive.repository.BookingRepository;
+import ru.itmo.itdrive.repository.StatisticsRepository;
 import ru.itmo.itdrive.repository.UserRepository;
+import ru.itmo.itdrive.security.AuthenticatedUser;
+import ru.itmo.itdrive.security.UserAuthorityCache;
+import ru.itmo.itdrive.util.TransactionUtil;
 
 import java.math.BigDecimal;
-import java.util.List;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final BookingRepository bookingRepository;
+    private final StatisticsRepository statisticsRepository;
+    private final UserAuthorityCache userAuthorityCache;
+    private final ResponseMapper responseMapper;
 
-    public UserService(UserRepository userRepository, @Lazy PasswordEncoder passwordEncoder,
-                      BookingRepository bookingRepository) {
+    public UserService(UserRepository userRepository,
+                      StatisticsRepository statisticsRepository, UserAuthorityCache userAuthorityCache,
+                      ResponseMapper responseMapper) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
-        this.bookingRepository = bookingRepository;
+        this.statisticsRepository = statisticsRepository;
+        this.userAuthorityCache = userAuthorityCache;
+        this.responseMapper = responseMapper;
     }
 
     @Override
@@ -37,21 +41,30 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + email));
         
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getEmail())
-                .password(user.getPassword())
-                .authorities(user.getRole().name())
-                .build();
+        return AuthenticatedUser.from(user);
     }
 
+    // Вызывается провайдером аутентификации после успешного входа, если хэш посчитан с устаревшей стоимостью
+    @Override
     @Transactional
-    public User register(RegisterRequest request) {
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) user;
+        userRepository.updatePassword(authenticatedUser.getId(), newPassword);
+        return new AuthenticatedUser(
+                authenticatedUser.getId(),
+                authenticatedUser.getEmail(),
+                newPassword,
+                authenticatedUser.getRole(),
+                authenticatedUser.isBlocked()
+        );
+    }
+
+    @Transactional
+    public User register(RegisterRequest request, String encodedPassword) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
             throw new IllegalArgumentException("Пользователь с таким email уже существует");
         }
 
-        String encodedPassword = passwordEncoder.encode(request.getPassword());
-        
         // Преобразуем пустую строку в null для phoneNumber
         String phoneNumber = request.getPhoneNumber();
         if (phoneNumber != null && phoneNumber.trim().isEmpty()) {
@@ -77,6 +90,13 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
     }
 
+    @Transactional(readOnly = true)
+    public UserResponse getUserResponse(Long id) {
+        return userRepository.findViewById(id)
+                .map(responseMapper::toUserResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Пользователь не найден"));
+    }
+
     @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
@@ -94,6 +114,8 @@ public class UserService implements UserDetailsService {
         getUserById(userId); // Проверяем существование пользователя
         // Используем нативный SQL для обновления только is_blocked, чтобы избежать проблем с ENUM
         userRepository.updateUserBlockedStatus(userId, true);
+        // До коммита параллельный запрос мог бы снова закэшировать старый статус
+        TransactionUtil.afterCommit(() -> userAuthorityCache.evict(userId));
     }
 
     @Transactional
@@ -101,36 +123,25 @@ public class UserService implements UserDetailsService {
         getUserById(userId); // Проверяем существование пользователя
         // Используем нативный SQL для обновления только is_blocked, чтобы избежать проблем с ENUM
         userRepository.updateUserBlockedStatus(userId, false);
+        TransactionUtil.afterCommit(() -> userAuthorityCache.evict(userId));
     }
 
     @Transactional(readOnly = true)
     public UserStatisticsResponse getUserStatistics(Long userId) {
-        User user = getUserById(userId);
-        List<Booking> bookings = bookingRepository.findByPassengerId(userId);
-        
-        long totalBookings = bookings.size();
-        long completedBookings = bookings.stream()
-                .filter(b -> b.getStatus() == Booking.BookingStatus.COMPLETED)
-                .count();
-        long cancelledBookings = bookings.stream()
-                .filter(b -> b.getStatus() == Booking.BookingStatus.CANCELLED)
-                .count();
-        
-        BigDecimal totalSpent = bookings.stream()
-                .filter(b -> b.getStatus() == Booking.BookingStatus.COMPLETED)
-                .map(Booking::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        Double averageRating = user.getRating();
-        Integer totalTrips = user.getTotalTrips();
+        // Счетчики читаются из проекции user_stats, которую триггер на bookings обновляет
+        // в той же транзакции, что и переходы состояний бронирований
+        StatisticsRepository.UserStatisticsResult result = statisticsRepository.getUserStatistics(userId);
+        if (result == null) {
+            throw new IllegalArgumentException("Пользователь не найден");
+        }
         
         return new UserStatisticsResponse(
-                totalBookings,
-                completedBookings,
-                cancelledBookings,
-                totalSpent,
-                averageRating,
-                totalTrips
+                result.getTotalBookings(),
+                result.getCompletedBookings(),
+                result.getCancelledBookings(),
+                result.getTotalSpent(),
+                result.getAverageRating(),
+                result.getTotalTrips()
         );
     }
 }
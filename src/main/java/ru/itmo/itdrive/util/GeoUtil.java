@@ -0,0 +1,39 @@
+package ru.itmo.itdrive.util;
+
+public class GeoUtil {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    // Расстояние по большому кругу (формула гаверсинусов), в метрах
+    public static double haversineMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double deltaPhi = Math.toRadians(latitude2 - latitude1);
+        double deltaLambda = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2)
+                + Math.cos(phi1) * Math.cos(phi2) * Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Точка на единичной сфере: евклидово расстояние (хорда) монотонно по расстоянию по большому кругу,
+    // поэтому поиск по радиусу можно вести в декартовых координатах
+    public static double[] toUnitVector(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        double cosPhi = Math.cos(phi);
+        return new double[]{cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    // Длина хорды единичной сферы, соответствующая расстоянию по поверхности Земли
+    public static double chordLength(double distanceMeters) {
+        double angle = Math.min(Math.PI, distanceMeters / EARTH_RADIUS_METERS);
+        return 2 * Math.sin(angle / 2);
+    }
+
+    public static void validateCoordinates(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null
+                || latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Некорректные координаты");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.itmo.itdrive.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Неизменяемое k-d дерево по точкам фиксированной размерности с поиском в радиусе.
+// Строится один раз по списку точек (медиана по чередующимся осям), поиск O(log n + k)
+public class KdTree<T> {
+
+    private final int dimensions;
+    private final Node<T> root;
+    private final int size;
+
+    public KdTree(int dimensions, List<Point<T>> points) {
+        this.dimensions = dimensions;
+        this.size = points.size();
+        this.root = build(new ArrayList<>(points), 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Все элементы, евклидово расстояние до которых не превышает radius
+    public List<T> withinRadius(double[] center, double radius) {
+        List<T> result = new ArrayList<>();
+        search(root, center, radius, radius * radius, result);
+        return result;
+    }
+
+    private Node<T> build(List<Point<T>> points, int depth) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        int axis = depth % dimensions;
+        points.sort(Comparator.comparingDouble(p -> p.coordinates()[axis]));
+        int median = points.size() / 2;
+        Point<T> point = points.get(median);
+        return new Node<>(
+                point,
+                axis,
+                build(new ArrayList<>(points.subList(0, median)), depth + 1),
+                build(new ArrayList<>(points.subList(median + 1, points.size())), depth + 1)
+        );
+    }
+
+    private void search(Node<T> node, double[] center, double radius, double radiusSquared, List<T> result) {
+        if (node == null) {
+            return;
+        }
+        double[] coordinates = node.point.coordinates();
+        double distanceSquared = 0;
+        for (int i = 0; i < dimensions; i++) {
+            double delta = coordinates[i] - center[i];
+            distanceSquared += delta * delta;
+        }
+        if (distanceSquared <= radiusSquared) {
+            result.add(node.point.value());
+        }
+
+        double delta = center[node.axis] - coordinates[node.axis];
+        Node<T> near = delta < 0 ? node.left : node.right;
+        Node<T> far = delta < 0 ? node.right : node.left;
+        search(near, center, radius, radiusSquared, result);
+        if (Math.abs(delta) <= radius) {
+            search(far, center, radius, radiusSquared, result);
+        }
+    }
+
+    public record Point<T>(double[] coordinates, T value) {
+    }
+
+    private record Node<T>(Point<T> point, int axis, Node<T> left, Node<T> right) {
+    }
+}
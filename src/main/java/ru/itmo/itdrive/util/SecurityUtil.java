@@ -3,25 +3,28 @@ package ru.itmo.itdrive.util;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import ru.itmo.itdrive.service.UserService;
+import ru.itmo.itdrive.security.AuthenticatedUser;
 
 public class SecurityUtil {
     
-    public static Long getCurrentUserId(UserService userService) {
+    public static AuthenticatedUser getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             return null;
         }
         
-        Object principal = authentication.getPrincipal();
-        if (principal instanceof UserDetails) {
-            String email = ((UserDetails) principal).getUsername();
-            return userService.getUserByEmail(email).getId();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
         }
         
         return null;
     }
     
+    public static Long getCurrentUserId() {
+        AuthenticatedUser user = getCurrentUser();
+        return user != null ? user.getId() : null;
+    }
+    
     public static String getCurrentUserEmail() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -0,0 +1,85 @@
+package ru.itmo.itdrive.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Алгоритм Space-Saving: приближенный top-K по потоку ключей в памяти O(capacity).
+// Пока различных ключей не больше capacity, счетчики точные; иначе вытесняется ключ
+// с минимальным счетчиком, а его значение записывается новому ключу как погрешность.
+// Не потокобезопасен: синхронизация на вызывающей стороне
+public class SpaceSaving<K> {
+
+    private final int capacity;
+    private final Map<K, Counter<K>> counters = new HashMap<>();
+    private final TreeSet<Counter<K>> ordered = new TreeSet<>(Counter.ORDER);
+    private long sequence;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер должен быть положительным");
+        }
+        this.capacity = capacity;
+    }
+
+    public void offer(K key, long increment) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            ordered.remove(counter);
+            counter.count += increment;
+            ordered.add(counter);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counter = new Counter<>(key, increment, 0, sequence++);
+        } else {
+            Counter<K> evicted = ordered.pollFirst();
+            counters.remove(evicted.key);
+            counter = new Counter<>(key, evicted.count + increment, evicted.count, sequence++);
+        }
+        counters.put(key, counter);
+        ordered.add(counter);
+    }
+
+    public List<Entry<K>> top(int limit) {
+        List<Entry<K>> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter<K>> iterator = ordered.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Counter<K> counter = iterator.next();
+            result.add(new Entry<>(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    public void clear() {
+        counters.clear();
+        ordered.clear();
+    }
+
+    public record Entry<K>(K key, long count, long error) {
+    }
+
+    private static final class Counter<K> {
+
+        private static final Comparator<Counter<?>> ORDER = Comparator
+                .<Counter<?>>comparingLong(c -> c.count)
+                .thenComparingLong(c -> c.sequence);
+
+        private final K key;
+        private final long error;
+        private final long sequence;
+        private long count;
+
+        private Counter(K key, long count, long error, long sequence) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+    }
+}
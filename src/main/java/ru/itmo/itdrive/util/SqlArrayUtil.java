@@ -0,0 +1,12 @@
+package ru.itmo.itdrive.util;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+public class SqlArrayUtil {
+
+    // Литерал массива PostgreSQL вида {1,2,3} для параметров CAST(:ids AS BIGINT[])
+    public static String toBigintArray(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+}
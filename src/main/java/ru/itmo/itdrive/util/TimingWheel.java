@@ -0,0 +1,120 @@
+package ru.itmo.itdrive.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Иерархическое колесо таймеров: уровень i состоит из wheelSize корзин по tickMillis * wheelSize^i мс.
+// Добавление и срабатывание - O(1) на элемент: когда время доходит до корзины верхнего уровня,
+// ее элементы переносятся на нижние уровни, на нулевом уровне - срабатывают.
+// Сроки дальше верхнего уровня кладутся в его корзину по модулю и перекладываются при каждом обороте.
+// Не потокобезопасен: синхронизация на вызывающей стороне
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelTickMillis;
+    private final List<ArrayDeque<Entry<T>>[]> levels = new ArrayList<>();
+    private final List<Entry<T>> overdue = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Некорректные параметры колеса таймеров");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelTickMillis = new long[levelCount];
+        long levelTick = tickMillis;
+        for (int level = 0; level < levelCount; level++) {
+            levelTickMillis[level] = levelTick;
+            @SuppressWarnings("unchecked")
+            ArrayDeque<Entry<T>>[] buckets = (ArrayDeque<Entry<T>>[]) new ArrayDeque<?>[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+            levels.add(buckets);
+            levelTick = Math.multiplyExact(levelTick, wheelSize);
+        }
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    // Срок в прошлом или в текущем тике срабатывает при ближайшем вызове advance
+    public void schedule(T item, long deadlineMillis) {
+        place(new Entry<>(item, deadlineMillis));
+        size++;
+    }
+
+    // Продвигает время до nowMillis и возвращает сработавшие элементы в порядке тиков
+    public List<Expired<T>> advance(long nowMillis) {
+        List<Expired<T>> expired = new ArrayList<>();
+        for (Entry<T> entry : overdue) {
+            expired.add(new Expired<>(entry.item(), entry.deadline()));
+        }
+        overdue.clear();
+
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            // Сначала верхние уровни: перенесенные элементы могут сработать в этом же тике
+            for (int level = levelTickMillis.length - 1; level > 0; level--) {
+                if (currentTime % levelTickMillis[level] == 0) {
+                    ArrayDeque<Entry<T>> bucket = bucket(level, currentTime);
+                    int count = bucket.size();
+                    for (int i = 0; i < count; i++) {
+                        Entry<T> entry = bucket.poll();
+                        if (entry.deadline() < currentTime + tickMillis) {
+                            expired.add(new Expired<>(entry.item(), entry.deadline()));
+                        } else {
+                            place(entry);
+                        }
+                    }
+                }
+            }
+            ArrayDeque<Entry<T>> bucket = bucket(0, currentTime);
+            while (!bucket.isEmpty()) {
+                Entry<T> entry = bucket.poll();
+                expired.add(new Expired<>(entry.item(), entry.deadline()));
+            }
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long currentTime() {
+        return currentTime;
+    }
+
+    private void place(Entry<T> entry) {
+        if (entry.deadline() < currentTime + tickMillis) {
+            overdue.add(entry);
+            return;
+        }
+        int top = levelTickMillis.length - 1;
+        for (int level = 0; level <= top; level++) {
+            // Самый нижний уровень, на котором корзина срока наступит не позже чем через оборот.
+            // Корзина текущего тика уровня уже пройдена, но такой срок всегда помещается ниже
+            long slot = Math.floorDiv(entry.deadline(), levelTickMillis[level]);
+            long currentSlot = Math.floorDiv(currentTime, levelTickMillis[level]);
+            if (level == top || slot - currentSlot < wheelSize) {
+                bucket(level, entry.deadline()).add(entry);
+                return;
+            }
+        }
+    }
+
+    private ArrayDeque<Entry<T>> bucket(int level, long time) {
+        long slot = Math.floorDiv(time, levelTickMillis[level]);
+        return levels.get(level)[(int) Math.floorMod(slot, (long) wheelSize)];
+    }
+
+    private record Entry<T>(T item, long deadline) {
+    }
+
+    public record Expired<T>(T item, long deadlineMillis) {
+    }
+}
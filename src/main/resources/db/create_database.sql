@@ -84,6 +84,23 @@ CREATE TABLE IF NOT EXISTS public.drivers (
     updated_at TIMESTAMP NOT NULL
 );
 
+-- Шаблоны регулярных поездок водителя: по ним генерируются поездки на дни недели days_of_week
+-- (битовая маска: бит 0 - понедельник, бит 6 - воскресенье) на горизонт trip-templates.horizon-days
+CREATE TABLE IF NOT EXISTS public.trip_templates (
+    id BIGSERIAL PRIMARY KEY,
+    driver_id BIGINT NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    from_building_id BIGINT NOT NULL REFERENCES public.buildings(id),
+    to_building_id BIGINT NOT NULL REFERENCES public.buildings(id),
+    days_of_week INTEGER NOT NULL CHECK (days_of_week BETWEEN 1 AND 127),
+    departure_time TIME NOT NULL,
+    max_passengers INTEGER NOT NULL,
+    price NUMERIC(10,2) NOT NULL,
+    description TEXT,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
 -- Таблица поездок
 CREATE TABLE IF NOT EXISTS public.trips (
     id BIGSERIAL PRIMARY KEY,
@@ -100,6 +117,8 @@ CREATE TABLE IF NOT EXISTS public.trips (
     description TEXT,
     created_at TIMESTAMP NOT NULL,
     updated_at TIMESTAMP NOT NULL,
+    -- Шаблон, по которому сгенерирована поездка
+    template_id BIGINT REFERENCES public.trip_templates(id) ON DELETE SET NULL,
     CONSTRAINT chk_trip_times CHECK (
         (started_at IS NULL AND finished_at IS NULL) OR
         (started_at IS NOT NULL AND finished_at IS NULL) OR
@@ -117,7 +136,9 @@ CREATE TABLE IF NOT EXISTS public.bookings (
     payment_method public.booking_payment_method NOT NULL,
     seats INTEGER DEFAULT 1,
     created_at TIMESTAMP NOT NULL,
-    updated_at TIMESTAMP NOT NULL
+    updated_at TIMESTAMP NOT NULL,
+    -- Срок удержания мест PENDING бронирования: после него бронирование отменяется, места возвращаются
+    hold_expires_at TIMESTAMP
 );
 
 -- Таблица отзывов
@@ -143,6 +164,31 @@ CREATE TABLE IF NOT EXISTS public.payments (
     created_at TIMESTAMP NOT NULL
 );
 
+-- Проекция статистики пассажира (поддерживается триггером на bookings)
+CREATE TABLE IF NOT EXISTS public.user_stats (
+    user_id BIGINT PRIMARY KEY REFERENCES public.users(id) ON DELETE CASCADE,
+    total_bookings BIGINT NOT NULL DEFAULT 0,
+    completed_bookings BIGINT NOT NULL DEFAULT 0,
+    cancelled_bookings BIGINT NOT NULL DEFAULT 0,
+    total_spent NUMERIC(12,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Дневная сводка по поездкам для статистики администратора (поддерживается триггерами на trips и bookings).
+-- Поездка относится к дню DATE(created_at) и к строке дня slot = id поездки % 16: создание поездок за один
+-- день распределяется по 16 строкам, а не ждет блокировки одной. passenger_sketch - битовая карта
+-- линейного счетчика уникальных пассажиров завершенных бронирований, объединяется через BIT_OR
+CREATE TABLE IF NOT EXISTS public.trip_daily_stats (
+    stat_date DATE NOT NULL,
+    slot SMALLINT NOT NULL,
+    total_trips BIGINT NOT NULL DEFAULT 0,
+    completed_trips BIGINT NOT NULL DEFAULT 0,
+    total_revenue NUMERIC(14,2) NOT NULL DEFAULT 0,
+    passenger_sketch BIT(16384) NOT NULL DEFAULT B'0'::BIT(16384),
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (stat_date, slot)
+);
+
 -- ============================================================================
 -- 3. ДОПОЛНИТЕЛЬНЫЕ ТАБЛИЦЫ ИЗ init.sql (для соответствия оригинальной модели)
 -- ============================================================================
@@ -229,9 +275,14 @@ CREATE INDEX IF NOT EXISTS idx_trips_driver_id ON public.trips(driver_id);
 CREATE INDEX IF NOT EXISTS idx_trips_status ON public.trips(status);
 CREATE INDEX IF NOT EXISTS idx_trips_departure_time ON public.trips(departure_time);
 CREATE INDEX IF NOT EXISTS idx_trips_started_at ON public.trips(started_at);
+-- Не больше одной поездки шаблона в день: генерация пропускает уже созданные дни
+CREATE UNIQUE INDEX IF NOT EXISTS uq_trips_template_day ON public.trips(template_id, (CAST(departure_time AS DATE)))
+    WHERE template_id IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_trip_templates_driver_id ON public.trip_templates(driver_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_trip_id ON public.bookings(trip_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_passenger_id ON public.bookings(passenger_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_status ON public.bookings(status);
+CREATE INDEX IF NOT EXISTS idx_bookings_pending_hold ON public.bookings(hold_expires_at) WHERE status = 'PENDING';
 CREATE INDEX IF NOT EXISTS idx_reviews_reviewed_id ON public.reviews(reviewed_id);
 CREATE INDEX IF NOT EXISTS idx_reviews_reviewer_id ON public.reviews(reviewer_id);
 CREATE INDEX IF NOT EXISTS idx_reviews_trip_id ON public.reviews(trip_id);
@@ -330,17 +381,18 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
--- Функция создания бронирования
+-- Функция создания бронирования. p_hold_expires_at - срок удержания мест до подтверждения водителем
+DROP FUNCTION IF EXISTS public.create_booking(BIGINT, BIGINT, NUMERIC, VARCHAR, INTEGER);
 CREATE OR REPLACE FUNCTION public.create_booking(
     p_trip_id BIGINT,
     p_passenger_id BIGINT,
     p_price NUMERIC(10,2),
     p_payment_method VARCHAR(50),
-    p_seats INTEGER DEFAULT 1
+    p_seats INTEGER DEFAULT 1,
+    p_hold_expires_at TIMESTAMP DEFAULT NULL
 ) RETURNS BIGINT AS $$
 DECLARE
     v_booking_id BIGINT;
-    v_available_seats INTEGER;
     v_seats INTEGER;
 BEGIN
     -- Убеждаемся, что seats не NULL
@@ -350,29 +402,28 @@ BEGIN
         v_seats := p_seats;
     END IF;
     
-    -- Проверка доступности мест
-    SELECT available_seats INTO v_available_seats
-    FROM public.trips
-    WHERE id = p_trip_id AND status = 'SCHEDULED';
-    
-    IF v_available_seats IS NULL THEN
-        RAISE EXCEPTION 'Поездка не найдена или уже началась';
-    END IF;
+    -- Атомарное условное списание мест: UPDATE блокирует строку поездки и перепроверяет
+    -- условие после ожидания блокировки, поэтому параллельные бронирования не продают места дважды
+    UPDATE public.trips
+    SET available_seats = available_seats - v_seats, updated_at = NOW()
+    WHERE id = p_trip_id AND status = 'SCHEDULED' AND available_seats >= v_seats;
     
-    IF v_available_seats < v_seats THEN
-        RAISE EXCEPTION 'Недостаточно свободных мест';
+    IF NOT FOUND THEN
+        IF NOT EXISTS (
+            SELECT 1 FROM public.trips WHERE id = p_trip_id AND status = 'SCHEDULED'
+        ) THEN
+            RAISE EXCEPTION 'Поездка не найдена или уже началась';
+        END IF;
+        RAISE EXCEPTION 'Недостаточно свободных мест' USING ERRCODE = 'check_violation';
     END IF;
     
     -- Создание бронирования
-    INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at)
-    VALUES (p_trip_id, p_passenger_id, 'PENDING', p_price, p_payment_method::public.booking_payment_method, v_seats, NOW(), NOW())
+    INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at,
+                                 hold_expires_at)
+    VALUES (p_trip_id, p_passenger_id, 'PENDING', p_price, p_payment_method::public.booking_payment_method, v_seats, NOW(), NOW(),
+            p_hold_expires_at)
     RETURNING id INTO v_booking_id;
     
-    -- Обновление доступных мест
-    UPDATE public.trips
-    SET available_seats = available_seats - p_seats, updated_at = NOW()
-    WHERE id = p_trip_id;
-    
     RETURN v_booking_id;
 END;
 $$ LANGUAGE plpgsql;
@@ -404,28 +455,21 @@ CREATE OR REPLACE FUNCTION public.cancel_booking(
 DECLARE
     v_trip_id BIGINT;
     v_seats INTEGER;
-    v_old_status VARCHAR(50);
 BEGIN
-    -- Получаем информацию о бронировании
-    SELECT trip_id, seats, status INTO v_trip_id, v_seats, v_old_status
-    FROM public.bookings
-    WHERE id = p_booking_id;
+    -- Отменяем только активное бронирование: повторная отмена не возвращает места второй раз
+    UPDATE public.bookings
+    SET status = 'CANCELLED', updated_at = NOW()
+    WHERE id = p_booking_id AND status IN ('PENDING', 'CONFIRMED')
+    RETURNING trip_id, seats INTO v_trip_id, v_seats;
     
     IF v_trip_id IS NULL THEN
         RETURN FALSE;
     END IF;
     
-    -- Отменяем бронирование
-    UPDATE public.bookings
-    SET status = 'CANCELLED', updated_at = NOW()
-    WHERE id = p_booking_id;
-    
-    -- Возвращаем места обратно в поездку (если было подтверждено)
-    IF v_old_status = 'CONFIRMED' THEN
-        UPDATE public.trips
-        SET available_seats = available_seats + v_seats, updated_at = NOW()
-        WHERE id = v_trip_id;
-    END IF;
+    -- Места списываются уже при создании бронирования (PENDING), поэтому возвращаем их в любом случае
+    UPDATE public.trips
+    SET available_seats = available_seats + COALESCE(v_seats, 1), updated_at = NOW()
+    WHERE id = v_trip_id;
     
     RETURN TRUE;
 END;
@@ -569,7 +613,7 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
--- Функция получения статистики поездок
+-- Функция получения статистики поездок (суммирует строки дневной сводки trip_daily_stats по всем slot)
 CREATE OR REPLACE FUNCTION public.get_trip_statistics(
     p_start_date DATE DEFAULT NULL,
     p_end_date DATE DEFAULT NULL
@@ -582,14 +626,13 @@ CREATE OR REPLACE FUNCTION public.get_trip_statistics(
 BEGIN
     RETURN QUERY
     SELECT 
-        COUNT(*)::BIGINT as total_trips,
-        COUNT(*) FILTER (WHERE t.status = 'COMPLETED')::BIGINT as completed_trips,
-        COALESCE(COUNT(DISTINCT b.passenger_id) FILTER (WHERE b.status = 'COMPLETED'), 0)::BIGINT as total_passengers,
-        COALESCE(SUM(b.price) FILTER (WHERE b.status = 'COMPLETED'), 0) as total_revenue
-    FROM public.trips t
-    LEFT JOIN public.bookings b ON t.id = b.trip_id
-    WHERE (p_start_date IS NULL OR DATE(t.created_at) >= p_start_date)
-      AND (p_end_date IS NULL OR DATE(t.created_at) <= p_end_date);
+        COALESCE(SUM(s.total_trips), 0)::BIGINT as total_trips,
+        COALESCE(SUM(s.completed_trips), 0)::BIGINT as completed_trips,
+        public.estimate_passenger_count(BIT_OR(s.passenger_sketch)) as total_passengers,
+        COALESCE(SUM(s.total_revenue), 0)::NUMERIC as total_revenue
+    FROM public.trip_daily_stats s
+    WHERE (p_start_date IS NULL OR s.stat_date >= p_start_date)
+      AND (p_end_date IS NULL OR s.stat_date <= p_end_date);
 END;
 $$ LANGUAGE plpgsql;
 
@@ -617,6 +660,626 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
+-- Функция применения приращений к статистике пассажира
+CREATE OR REPLACE FUNCTION public.apply_user_stats_delta(
+    p_user_id BIGINT,
+    p_total BIGINT,
+    p_completed BIGINT,
+    p_cancelled BIGINT,
+    p_spent NUMERIC
+) RETURNS VOID AS $$
+BEGIN
+    INSERT INTO public.user_stats (user_id, total_bookings, completed_bookings, cancelled_bookings, total_spent, updated_at)
+    VALUES (p_user_id, p_total, p_completed, p_cancelled, p_spent, NOW())
+    ON CONFLICT (user_id) DO UPDATE
+    SET total_bookings = public.user_stats.total_bookings + EXCLUDED.total_bookings,
+        completed_bookings = public.user_stats.completed_bookings + EXCLUDED.completed_bookings,
+        cancelled_bookings = public.user_stats.cancelled_bookings + EXCLUDED.cancelled_bookings,
+        total_spent = public.user_stats.total_spent + EXCLUDED.total_spent,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция полного пересчета статистики пассажиров (для одного пользователя или для всех)
+CREATE OR REPLACE FUNCTION public.rebuild_user_stats(
+    p_user_id BIGINT DEFAULT NULL
+) RETURNS INTEGER AS $$
+DECLARE
+    v_count INTEGER;
+BEGIN
+    -- Блокировка не дает триггеру применить приращение между удалением и пересчетом
+    LOCK TABLE public.user_stats IN SHARE ROW EXCLUSIVE MODE;
+    
+    DELETE FROM public.user_stats
+    WHERE p_user_id IS NULL OR user_id = p_user_id;
+    
+    INSERT INTO public.user_stats (user_id, total_bookings, completed_bookings, cancelled_bookings, total_spent, updated_at)
+    SELECT b.passenger_id,
+           COUNT(*),
+           COUNT(*) FILTER (WHERE b.status = 'COMPLETED'),
+           COUNT(*) FILTER (WHERE b.status = 'CANCELLED'),
+           COALESCE(SUM(b.price) FILTER (WHERE b.status = 'COMPLETED'), 0),
+           NOW()
+    FROM public.bookings b
+    WHERE p_user_id IS NULL OR b.passenger_id = p_user_id
+    GROUP BY b.passenger_id;
+    
+    GET DIAGNOSTICS v_count = ROW_COUNT;
+    RETURN v_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция проверки согласованности статистики пассажиров с таблицей bookings
+CREATE OR REPLACE FUNCTION public.check_user_stats()
+RETURNS TABLE(
+    user_id BIGINT,
+    expected_total BIGINT,
+    actual_total BIGINT,
+    expected_completed BIGINT,
+    actual_completed BIGINT,
+    expected_cancelled BIGINT,
+    actual_cancelled BIGINT,
+    expected_spent NUMERIC,
+    actual_spent NUMERIC
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH expected AS (
+        SELECT b.passenger_id AS user_id,
+               COUNT(*)::BIGINT AS total,
+               COUNT(*) FILTER (WHERE b.status = 'COMPLETED')::BIGINT AS completed,
+               COUNT(*) FILTER (WHERE b.status = 'CANCELLED')::BIGINT AS cancelled,
+               COALESCE(SUM(b.price) FILTER (WHERE b.status = 'COMPLETED'), 0)::NUMERIC AS spent
+        FROM public.bookings b
+        GROUP BY b.passenger_id
+    )
+    SELECT COALESCE(e.user_id, s.user_id),
+           COALESCE(e.total, 0), COALESCE(s.total_bookings, 0),
+           COALESCE(e.completed, 0), COALESCE(s.completed_bookings, 0),
+           COALESCE(e.cancelled, 0), COALESCE(s.cancelled_bookings, 0),
+           COALESCE(e.spent, 0), COALESCE(s.total_spent, 0)::NUMERIC
+    FROM expected e
+    FULL JOIN public.user_stats s ON s.user_id = e.user_id
+    WHERE COALESCE(e.total, 0) <> COALESCE(s.total_bookings, 0)
+       OR COALESCE(e.completed, 0) <> COALESCE(s.completed_bookings, 0)
+       OR COALESCE(e.cancelled, 0) <> COALESCE(s.cancelled_bookings, 0)
+       OR COALESCE(e.spent, 0) <> COALESCE(s.total_spent, 0);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция получения бита пассажира в битовой карте дневной сводки
+CREATE OR REPLACE FUNCTION public.passenger_sketch_bit(
+    p_passenger_id BIGINT
+) RETURNS BIT(16384) AS $$
+    SELECT set_bit(B'0'::BIT(16384), hashint8(p_passenger_id) & 16383, 1)::BIT(16384);
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Функция оценки числа уникальных пассажиров по битовой карте (линейный счетчик)
+CREATE OR REPLACE FUNCTION public.estimate_passenger_count(
+    p_sketch BIT(16384)
+) RETURNS BIGINT AS $$
+DECLARE
+    v_size CONSTANT INTEGER := 16384;
+    v_empty BIGINT;
+BEGIN
+    IF p_sketch IS NULL THEN
+        RETURN 0;
+    END IF;
+    
+    v_empty := v_size - bit_count(p_sketch);
+    IF v_empty = 0 THEN
+        -- Карта заполнена: возвращаем оценку для одного свободного бита
+        v_empty := 1;
+    END IF;
+    
+    RETURN ROUND(-v_size * LN(v_empty::NUMERIC / v_size))::BIGINT;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Функция номера строки дневной сводки для поездки
+CREATE OR REPLACE FUNCTION public.trip_daily_stats_slot(
+    p_trip_id BIGINT
+) RETURNS SMALLINT AS $$
+    SELECT (p_trip_id % 16)::SMALLINT;
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Функция применения приращений к строке дневной сводки, к которой относится поездка
+CREATE OR REPLACE FUNCTION public.apply_trip_daily_stats_delta(
+    p_stat_date DATE,
+    p_trip_id BIGINT,
+    p_total_trips BIGINT,
+    p_completed_trips BIGINT,
+    p_revenue NUMERIC,
+    p_passenger_id BIGINT DEFAULT NULL
+) RETURNS VOID AS $$
+DECLARE
+    v_sketch BIT(16384) := B'0'::BIT(16384);
+BEGIN
+    IF p_passenger_id IS NOT NULL THEN
+        v_sketch := public.passenger_sketch_bit(p_passenger_id);
+    END IF;
+    
+    INSERT INTO public.trip_daily_stats (stat_date, slot, total_trips, completed_trips, total_revenue,
+                                         passenger_sketch, updated_at)
+    VALUES (p_stat_date, public.trip_daily_stats_slot(p_trip_id), p_total_trips, p_completed_trips, p_revenue,
+            v_sketch, NOW())
+    ON CONFLICT (stat_date, slot) DO UPDATE
+    SET total_trips = public.trip_daily_stats.total_trips + EXCLUDED.total_trips,
+        completed_trips = public.trip_daily_stats.completed_trips + EXCLUDED.completed_trips,
+        total_revenue = public.trip_daily_stats.total_revenue + EXCLUDED.total_revenue,
+        passenger_sketch = public.trip_daily_stats.passenger_sketch | EXCLUDED.passenger_sketch,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пересчета дневной сводки по поездкам за период (без границ - за всю историю).
+-- Нужна после удаления завершенных бронирований: битовая карта не поддерживает вычитание
+CREATE OR REPLACE FUNCTION public.rebuild_trip_daily_stats(
+    p_start_date DATE DEFAULT NULL,
+    p_end_date DATE DEFAULT NULL
+) RETURNS INTEGER AS $$
+DECLARE
+    v_count INTEGER;
+BEGIN
+    -- Блокировка не дает триггерам применить приращение между удалением и пересчетом
+    LOCK TABLE public.trip_daily_stats IN SHARE ROW EXCLUSIVE MODE;
+    
+    DELETE FROM public.trip_daily_stats
+    WHERE (p_start_date IS NULL OR stat_date >= p_start_date)
+      AND (p_end_date IS NULL OR stat_date <= p_end_date);
+    
+    INSERT INTO public.trip_daily_stats (stat_date, slot, total_trips, completed_trips, total_revenue,
+                                         passenger_sketch, updated_at)
+    SELECT d.stat_date,
+           d.slot,
+           d.total_trips,
+           d.completed_trips,
+           COALESCE(p.total_revenue, 0),
+           COALESCE(p.passenger_sketch, B'0'::BIT(16384)),
+           NOW()
+    FROM (
+        SELECT DATE(t.created_at) AS stat_date,
+               public.trip_daily_stats_slot(t.id) AS slot,
+               COUNT(*) AS total_trips,
+               COUNT(*) FILTER (WHERE t.status = 'COMPLETED') AS completed_trips
+        FROM public.trips t
+        WHERE (p_start_date IS NULL OR t.created_at >= p_start_date)
+          AND (p_end_date IS NULL OR t.created_at < p_end_date + 1)
+        GROUP BY 1, 2
+    ) d
+    LEFT JOIN (
+        SELECT DATE(t.created_at) AS stat_date,
+               public.trip_daily_stats_slot(t.id) AS slot,
+               SUM(b.price) AS total_revenue,
+               BIT_OR(public.passenger_sketch_bit(b.passenger_id)) AS passenger_sketch
+        FROM public.trips t
+        JOIN public.bookings b ON b.trip_id = t.id
+        WHERE b.status = 'COMPLETED'
+          AND (p_start_date IS NULL OR t.created_at >= p_start_date)
+          AND (p_end_date IS NULL OR t.created_at < p_end_date + 1)
+        GROUP BY 1, 2
+    ) p ON p.stat_date = d.stat_date AND p.slot = d.slot;
+    
+    GET DIAGNOSTICS v_count = ROW_COUNT;
+    RETURN v_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция проверки пакета бронирований: по строке результата на каждый элемент пакета,
+-- error заполнен, если элемент не может быть забронирован
+CREATE OR REPLACE FUNCTION public.validate_booking_batch(
+    p_passenger_id BIGINT,
+    p_items JSONB
+) RETURNS TABLE (
+    item_index INTEGER,
+    trip_id BIGINT,
+    seats INTEGER,
+    payment_method TEXT,
+    price NUMERIC(10,2),
+    error TEXT
+) AS $$
+    WITH items AS (
+        SELECT (e.ordinality - 1)::INTEGER AS item_index,
+               (e.item->>'trip_id')::BIGINT AS trip_id,
+               GREATEST(COALESCE((e.item->>'seats')::INTEGER, 1), 1) AS seats,
+               e.item->>'payment_method' AS payment_method
+        FROM jsonb_array_elements(p_items) WITH ORDINALITY AS e(item, ordinality)
+    ),
+    checked AS (
+        SELECT i.item_index,
+               i.trip_id,
+               i.seats,
+               i.payment_method,
+               t.price * i.seats AS price,
+               CASE
+                   WHEN t.id IS NULL THEN 'Поездка не найдена'
+                   WHEN t.status <> 'SCHEDULED' THEN 'Невозможно забронировать место в поездке, которая уже началась'
+                   WHEN t.driver_id = p_passenger_id THEN 'Водитель не может забронировать место в своей поездке'
+                   WHEN i.payment_method IS NULL OR i.payment_method NOT IN ('CARD', 'CASH') THEN 'Некорректный способ оплаты'
+                   WHEN COUNT(*) OVER (PARTITION BY i.trip_id) > 1 THEN 'Поездка повторяется в пакете'
+                   WHEN EXISTS (
+                       SELECT 1 FROM public.bookings b
+                       WHERE b.trip_id = i.trip_id AND b.passenger_id = p_passenger_id
+                   ) THEN 'Вы уже забронировали место в этой поездке'
+                   WHEN t.available_seats < i.seats THEN 'Недостаточно свободных мест'
+               END AS error
+        FROM items i
+        LEFT JOIN public.trips t ON t.id = i.trip_id
+    )
+    SELECT item_index, trip_id, seats, payment_method, price, error
+    FROM checked
+    ORDER BY item_index;
+$$ LANGUAGE sql STABLE;
+
+-- Функция пакетного бронирования: все элементы бронируются в одной транзакции или ни один.
+-- Строки поездок блокируются в порядке id, затем пакет проверяется целиком; при любой ошибке
+-- возвращаются результаты проверки без изменений, иначе места списываются одним UPDATE,
+-- а бронирования создаются одним INSERT
+DROP FUNCTION IF EXISTS public.create_bookings_batch(BIGINT, JSONB);
+CREATE OR REPLACE FUNCTION public.create_bookings_batch(
+    p_passenger_id BIGINT,
+    p_items JSONB,
+    p_hold_expires_at TIMESTAMP DEFAULT NULL
+) RETURNS TABLE (
+    item_index INTEGER,
+    trip_id BIGINT,
+    booking_id BIGINT,
+    seats INTEGER,
+    available_seats INTEGER,
+    error TEXT
+) AS $$
+BEGIN
+    -- Одинаковый порядок блокировок исключает взаимоблокировку параллельных пакетов
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.id IN (SELECT (x->>'trip_id')::BIGINT FROM jsonb_array_elements(p_items) x)
+    ORDER BY t.id
+    FOR UPDATE;
+
+    IF EXISTS (
+        SELECT 1 FROM public.validate_booking_batch(p_passenger_id, p_items) v WHERE v.error IS NOT NULL
+    ) THEN
+        RETURN QUERY
+        SELECT v.item_index, v.trip_id, NULL::BIGINT, v.seats, NULL::INTEGER, v.error
+        FROM public.validate_booking_batch(p_passenger_id, p_items) v;
+        RETURN;
+    END IF;
+
+    RETURN QUERY
+    WITH items AS (
+        SELECT * FROM public.validate_booking_batch(p_passenger_id, p_items)
+    ),
+    reserved AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats - i.seats, updated_at = NOW()
+        FROM items i
+        WHERE t.id = i.trip_id
+        RETURNING t.id, t.available_seats
+    ),
+    created AS (
+        INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at,
+                                     hold_expires_at)
+        SELECT i.trip_id, p_passenger_id, 'PENDING', i.price, i.payment_method::public.booking_payment_method,
+               i.seats, NOW(), NOW(), p_hold_expires_at
+        FROM items i
+        ORDER BY i.item_index
+        RETURNING id, bookings.trip_id
+    )
+    SELECT i.item_index, i.trip_id, c.id, i.seats, r.available_seats, NULL::TEXT
+    FROM items i
+    JOIN created c ON c.trip_id = i.trip_id
+    JOIN reserved r ON r.id = i.trip_id
+    ORDER BY i.item_index;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного решения водителя по бронированиям поездки: подтверждение и отмена списков
+-- бронирований одним оператором. Бронирования других поездок и в неподходящем статусе пропускаются
+-- (applied = FALSE). Возвращает строку на каждое бронирование из запроса и итоговые места поездки.
+CREATE OR REPLACE FUNCTION public.decide_bookings(
+    p_trip_id BIGINT,
+    p_confirm_ids BIGINT[],
+    p_cancel_ids BIGINT[]
+) RETURNS TABLE (
+    booking_id BIGINT,
+    decision TEXT,
+    applied BOOLEAN,
+    status TEXT,
+    available_seats INTEGER,
+    confirmed_seats INTEGER,
+    pending_seats INTEGER
+) AS $$
+DECLARE
+    v_applied BIGINT[];
+BEGIN
+    IF COALESCE(p_confirm_ids, '{}') && COALESCE(p_cancel_ids, '{}') THEN
+        RAISE EXCEPTION 'Бронирование не может быть одновременно подтверждено и отменено';
+    END IF;
+
+    -- Обе операции и возврат мест выполняются одним оператором. Подзапрос с изменением
+    -- данных (released) выполняется, даже если на него нет ссылок
+    WITH confirmed AS (
+        UPDATE public.bookings b
+        SET status = 'CONFIRMED', updated_at = NOW()
+        WHERE b.trip_id = p_trip_id AND b.id = ANY(p_confirm_ids) AND b.status = 'PENDING'
+        RETURNING b.id
+    ),
+    cancelled AS (
+        UPDATE public.bookings b
+        SET status = 'CANCELLED', updated_at = NOW()
+        WHERE b.trip_id = p_trip_id AND b.id = ANY(p_cancel_ids) AND b.status IN ('PENDING', 'CONFIRMED')
+        RETURNING b.id, COALESCE(b.seats, 1) AS seats
+    ),
+    released AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats + (SELECT SUM(c.seats) FROM cancelled c), updated_at = NOW()
+        WHERE t.id = p_trip_id AND EXISTS (SELECT 1 FROM cancelled)
+    )
+    SELECT array_agg(a.id) INTO v_applied
+    FROM (
+        SELECT c.id FROM confirmed c
+        UNION ALL
+        SELECT c.id FROM cancelled c
+    ) a;
+
+    RETURN QUERY
+    WITH requested AS (
+        SELECT x.id, 'CONFIRM'::TEXT AS decision FROM unnest(p_confirm_ids) AS x(id)
+        UNION
+        SELECT x.id, 'CANCEL'::TEXT FROM unnest(p_cancel_ids) AS x(id)
+    ),
+    seats AS (
+        SELECT COALESCE(SUM(COALESCE(b.seats, 1)) FILTER (WHERE b.status = 'CONFIRMED'), 0)::INTEGER AS confirmed_seats,
+               COALESCE(SUM(COALESCE(b.seats, 1)) FILTER (WHERE b.status = 'PENDING'), 0)::INTEGER AS pending_seats
+        FROM public.bookings b
+        WHERE b.trip_id = p_trip_id
+    )
+    SELECT r.id, r.decision, r.id = ANY(COALESCE(v_applied, '{}')), b.status::TEXT,
+           t.available_seats, s.confirmed_seats, s.pending_seats
+    FROM requested r
+    CROSS JOIN seats s
+    LEFT JOIN public.trips t ON t.id = p_trip_id
+    LEFT JOIN public.bookings b ON b.id = r.id AND b.trip_id = p_trip_id
+    ORDER BY r.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного истечения поездок: запланированные поездки из списка, время отправления которых
+-- не позже p_departed_before, отменяются, их бронирования отменяются, а места возвращаются.
+-- Условия перепроверяются, поэтому устаревшие id (поездка уже начата или перенесена) пропускаются
+CREATE OR REPLACE FUNCTION public.expire_trips(
+    p_trip_ids BIGINT[],
+    p_departed_before TIMESTAMP
+) RETURNS TABLE (
+    trip_id BIGINT
+) AS $$
+BEGIN
+    -- Сначала поездки блокируются по порядку id, как в create_bookings_batch. Следующий запрос берет новый
+    -- снимок и видит бронирования, закоммиченные до блокировки, поэтому их места возвращаются, а сами
+    -- они отменяются. В одном запросе сумма мест считалась бы по снимку до ожидания блокировки строки поездки
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.id = ANY(p_trip_ids) AND t.status = 'SCHEDULED'
+    ORDER BY t.id
+    FOR UPDATE;
+
+    RETURN QUERY
+    WITH expired AS (
+        UPDATE public.trips t
+        SET status = 'CANCELLED',
+            available_seats = t.available_seats + (
+                SELECT COALESCE(SUM(COALESCE(b.seats, 1)), 0)
+                FROM public.bookings b
+                WHERE b.trip_id = t.id AND b.status IN ('PENDING', 'CONFIRMED')
+            ),
+            updated_at = NOW()
+        WHERE t.id = ANY(p_trip_ids) AND t.status = 'SCHEDULED' AND t.departure_time <= p_departed_before
+        RETURNING t.id
+    ),
+    released AS (
+        UPDATE public.bookings b
+        SET status = 'CANCELLED', updated_at = NOW()
+        FROM expired e
+        WHERE b.trip_id = e.id AND b.status IN ('PENDING', 'CONFIRMED')
+    )
+    SELECT e.id FROM expired e ORDER BY e.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного завершения брошенных поездок: поездки в процессе, начатые не позже p_started_before,
+-- завершаются так же, как complete_trip, но одним оператором для всего списка
+CREATE OR REPLACE FUNCTION public.auto_complete_trips(
+    p_trip_ids BIGINT[],
+    p_started_before TIMESTAMP
+) RETURNS TABLE (
+    trip_id BIGINT,
+    from_building_id BIGINT,
+    to_building_id BIGINT
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH completed AS (
+        UPDATE public.trips t
+        SET status = 'COMPLETED', finished_at = NOW(), updated_at = NOW()
+        WHERE t.id = ANY(p_trip_ids) AND t.status = 'IN_PROGRESS' AND t.started_at <= p_started_before
+        RETURNING t.id, t.driver_id, t.from_building_id, t.to_building_id
+    ),
+    finished AS (
+        UPDATE public.bookings b
+        SET status = 'COMPLETED', updated_at = NOW()
+        FROM completed c
+        WHERE b.trip_id = c.id AND b.status IN ('CONFIRMED', 'PENDING')
+        RETURNING b.passenger_id
+    ),
+    -- Счетчик поездок водителя и пассажиров, как в complete_trip
+    counted AS (
+        UPDATE public.users u
+        SET total_trips = u.total_trips + p.trips, updated_at = NOW()
+        FROM (
+            SELECT x.user_id, COUNT(*) AS trips
+            FROM (
+                SELECT c.driver_id AS user_id FROM completed c
+                UNION ALL
+                SELECT f.passenger_id FROM finished f
+            ) x
+            GROUP BY x.user_id
+        ) p
+        WHERE u.id = p.user_id
+    )
+    SELECT c.id, c.from_building_id, c.to_building_id FROM completed c ORDER BY c.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного истечения удержаний: PENDING бронирования из списка с истекшим сроком удержания
+-- отменяются, места возвращаются поездкам. Условия перепроверяются, поэтому подтвержденные
+-- и отмененные к этому моменту бронирования пропускаются. Возвращает итоговые места затронутых поездок
+CREATE OR REPLACE FUNCTION public.expire_booking_holds(
+    p_booking_ids BIGINT[],
+    p_now TIMESTAMP
+) RETURNS TABLE (
+    trip_id BIGINT,
+    available_seats INTEGER,
+    expired_bookings INTEGER
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH expired AS (
+        UPDATE public.bookings b
+        SET status = 'CANCELLED', updated_at = NOW()
+        WHERE b.id = ANY(p_booking_ids) AND b.status = 'PENDING' AND b.hold_expires_at <= p_now
+        RETURNING b.trip_id, COALESCE(b.seats, 1) AS seats
+    ),
+    released AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats + r.seats, updated_at = NOW()
+        FROM (
+            SELECT e.trip_id, SUM(e.seats)::INTEGER AS seats, COUNT(*)::INTEGER AS bookings
+            FROM expired e
+            GROUP BY e.trip_id
+        ) r
+        WHERE t.id = r.trip_id
+        RETURNING t.id, t.available_seats, r.bookings
+    )
+    SELECT r.id, r.available_seats, r.bookings FROM released r ORDER BY r.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция генерации поездок по шаблонам: для активных шаблонов из списка (NULL - все активные) одним INSERT
+-- создает поездки на дни недели шаблона в диапазоне дат. Дни, на которые поездка шаблона уже есть
+-- (в том числе отмененная водителем), пропускаются по уникальному индексу, поэтому повторный вызов безопасен.
+-- Возвращает созданные поездки
+CREATE OR REPLACE FUNCTION public.generate_template_trips(
+    p_template_ids BIGINT[],
+    p_from DATE,
+    p_until DATE
+) RETURNS TABLE (
+    trip_id BIGINT,
+    departure_time TIMESTAMP
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH created AS (
+        INSERT INTO public.trips AS t (driver_id, from_building_id, to_building_id, departure_time,
+                                       max_passengers, available_seats, price, status, description,
+                                       template_id, created_at, updated_at)
+        SELECT tt.driver_id, tt.from_building_id, tt.to_building_id, d.day + tt.departure_time,
+               tt.max_passengers, tt.max_passengers, tt.price, 'SCHEDULED', tt.description,
+               tt.id, NOW(), NOW()
+        FROM public.trip_templates tt
+        CROSS JOIN LATERAL generate_series(p_from::TIMESTAMP, p_until::TIMESTAMP, INTERVAL '1 day') AS d(day)
+        WHERE tt.active
+          AND (p_template_ids IS NULL OR tt.id = ANY(p_template_ids))
+          -- Бит 0 маски - понедельник (ISODOW = 1), бит 6 - воскресенье
+          AND (tt.days_of_week & (1 << (EXTRACT(ISODOW FROM d.day)::INTEGER - 1))) <> 0
+          AND d.day + tt.departure_time > NOW()
+        ON CONFLICT DO NOTHING
+        RETURNING t.id, t.departure_time
+    )
+    SELECT c.id, c.departure_time FROM created c ORDER BY c.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция переноса изменений шаблона на будущие поездки без активных бронирований. Поездки на дни,
+-- оставшиеся в шаблоне, получают новые время, маршрут, места и цену; поездки на исключенные дни
+-- (для неактивного шаблона - на все дни) удаляются, а если у них есть история бронирований - отменяются.
+-- Места пересчитываются относительно текущих, поэтому бронирование, успевшее списать места, не теряется.
+-- Возвращает затронутые поездки и действие: UPDATED, DELETED или CANCELLED
+CREATE OR REPLACE FUNCTION public.sync_template_trips(
+    p_template_id BIGINT
+) RETURNS TABLE (
+    trip_id BIGINT,
+    action TEXT
+) AS $$
+BEGIN
+    -- Сначала блокируются будущие поездки шаблона. Бронирование списывает места UPDATE строки поездки,
+    -- поэтому после блокировки новых бронирований на них не появится, а следующий запрос со своим снимком
+    -- видит все бронирования, закоммиченные до блокировки. В одном запросе проверка бронирований
+    -- выполнялась бы по снимку до ожидания блокировки и пропустила бы параллельное бронирование
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.template_id = p_template_id
+      AND t.status = 'SCHEDULED'
+      AND t.departure_time > NOW()
+    ORDER BY t.id
+    FOR UPDATE;
+
+    RETURN QUERY
+    WITH candidates AS (
+        SELECT t.id, CAST(t.departure_time AS DATE) AS day,
+               EXISTS (SELECT 1 FROM public.bookings b WHERE b.trip_id = t.id) AS has_bookings
+        FROM public.trips t
+        WHERE t.template_id = p_template_id
+          AND t.status = 'SCHEDULED'
+          AND t.departure_time > NOW()
+          AND NOT EXISTS (
+              SELECT 1 FROM public.bookings b
+              WHERE b.trip_id = t.id AND b.status IN ('PENDING', 'CONFIRMED')
+          )
+        FOR UPDATE OF t
+    ),
+    planned AS (
+        SELECT c.id, c.has_bookings, c.day + tt.departure_time AS departure,
+               tt.active AND (tt.days_of_week & (1 << (EXTRACT(ISODOW FROM c.day)::INTEGER - 1))) <> 0 AS keep
+        FROM candidates c
+        CROSS JOIN public.trip_templates tt
+        WHERE tt.id = p_template_id
+    ),
+    updated AS (
+        UPDATE public.trips t
+        SET from_building_id = tt.from_building_id,
+            to_building_id = tt.to_building_id,
+            departure_time = p.departure,
+            available_seats = GREATEST(t.available_seats + tt.max_passengers - t.max_passengers, 0),
+            max_passengers = tt.max_passengers,
+            price = tt.price,
+            description = tt.description,
+            updated_at = NOW()
+        FROM planned p, public.trip_templates tt
+        -- Новое время сегодняшней поездки может оказаться в прошлом: такая поездка не меняется
+        WHERE t.id = p.id AND tt.id = p_template_id AND p.keep AND p.departure > NOW()
+        RETURNING t.id
+    ),
+    deleted AS (
+        DELETE FROM public.trips t
+        USING planned p
+        WHERE t.id = p.id AND NOT p.keep AND NOT p.has_bookings
+        RETURNING t.id
+    ),
+    cancelled AS (
+        UPDATE public.trips t
+        SET status = 'CANCELLED', updated_at = NOW()
+        FROM planned p
+        WHERE t.id = p.id AND NOT p.keep AND p.has_bookings
+        RETURNING t.id
+    )
+    SELECT u.id, 'UPDATED'::TEXT FROM updated u
+    UNION ALL
+    SELECT d.id, 'DELETED'::TEXT FROM deleted d
+    UNION ALL
+    SELECT c.id, 'CANCELLED'::TEXT FROM cancelled c;
+END;
+$$ LANGUAGE plpgsql;
+
 -- ============================================================================
 -- 6. ТРИГГЕРЫ
 -- ============================================================================
@@ -664,6 +1327,144 @@ BEGIN
     END IF;
 END $$;
 
+-- Триггер поддержки статистики пассажиров: каждое изменение бронирования
+-- (create_booking, cancel_booking, complete_trip, cancel_trip и т.д.) применяется в той же транзакции
+CREATE OR REPLACE FUNCTION fn_bookings_user_stats()
+RETURNS trigger LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        IF TG_OP = 'DELETE' THEN
+            -- При каскадном удалении пользователя строку статистики не создаем заново
+            UPDATE public.user_stats
+            SET total_bookings = total_bookings - 1,
+                completed_bookings = completed_bookings - (OLD.status = 'COMPLETED')::INTEGER,
+                cancelled_bookings = cancelled_bookings - (OLD.status = 'CANCELLED')::INTEGER,
+                total_spent = total_spent - CASE WHEN OLD.status = 'COMPLETED' THEN OLD.price ELSE 0 END,
+                updated_at = NOW()
+            WHERE user_id = OLD.passenger_id;
+            RETURN OLD;
+        END IF;
+        
+        IF NEW.status IS NOT DISTINCT FROM OLD.status
+           AND NEW.price IS NOT DISTINCT FROM OLD.price
+           AND NEW.passenger_id IS NOT DISTINCT FROM OLD.passenger_id THEN
+            RETURN NEW;
+        END IF;
+        
+        PERFORM public.apply_user_stats_delta(
+            OLD.passenger_id,
+            -1,
+            -(OLD.status = 'COMPLETED')::INTEGER,
+            -(OLD.status = 'CANCELLED')::INTEGER,
+            -CASE WHEN OLD.status = 'COMPLETED' THEN OLD.price ELSE 0 END
+        );
+    END IF;
+    
+    PERFORM public.apply_user_stats_delta(
+        NEW.passenger_id,
+        1,
+        (NEW.status = 'COMPLETED')::INTEGER,
+        (NEW.status = 'CANCELLED')::INTEGER,
+        CASE WHEN NEW.status = 'COMPLETED' THEN NEW.price ELSE 0 END
+    );
+    RETURN NEW;
+END;
+$$;
+
+-- Создаем триггер только если его еще нет
+DO $$ 
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_trigger WHERE tgname = 'trg_bookings_user_stats'
+    ) THEN
+        CREATE TRIGGER trg_bookings_user_stats
+        AFTER INSERT OR DELETE OR UPDATE OF status, price, passenger_id ON public.bookings
+        FOR EACH ROW EXECUTE FUNCTION fn_bookings_user_stats();
+    END IF;
+END $$;
+
+-- Триггеры поддержки дневной сводки по поездкам
+CREATE OR REPLACE FUNCTION fn_trips_daily_stats()
+RETURNS trigger LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM public.apply_trip_daily_stats_delta(
+            DATE(NEW.created_at), NEW.id, 1, (NEW.status = 'COMPLETED')::INTEGER, 0
+        );
+        RETURN NEW;
+    ELSIF TG_OP = 'DELETE' THEN
+        PERFORM public.apply_trip_daily_stats_delta(
+            DATE(OLD.created_at), OLD.id, -1, -(OLD.status = 'COMPLETED')::INTEGER, 0
+        );
+        RETURN OLD;
+    END IF;
+    
+    -- Переходы, не затрагивающие COMPLETED (SCHEDULED -> IN_PROGRESS, отмена), сводку не меняют:
+    -- без этой проверки каждый из них блокировал бы общую строку дня
+    IF (NEW.status = 'COMPLETED') IS DISTINCT FROM (OLD.status = 'COMPLETED') THEN
+        PERFORM public.apply_trip_daily_stats_delta(
+            DATE(NEW.created_at),
+            NEW.id,
+            0,
+            (NEW.status = 'COMPLETED')::INTEGER - (OLD.status = 'COMPLETED')::INTEGER,
+            0
+        );
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION fn_bookings_daily_stats()
+RETURNS trigger LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_stat_date DATE;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 'COMPLETED' THEN
+        -- При каскадном удалении поездки ее строка уже недоступна: сводку исправляет rebuild_trip_daily_stats
+        SELECT DATE(created_at) INTO v_stat_date FROM public.trips WHERE id = OLD.trip_id;
+        IF FOUND THEN
+            PERFORM public.apply_trip_daily_stats_delta(v_stat_date, OLD.trip_id, 0, 0, -OLD.price);
+        END IF;
+    END IF;
+    
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 'COMPLETED' THEN
+        SELECT DATE(created_at) INTO v_stat_date FROM public.trips WHERE id = NEW.trip_id;
+        IF FOUND THEN
+            PERFORM public.apply_trip_daily_stats_delta(v_stat_date, NEW.trip_id, 0, 0, NEW.price,
+                                                       NEW.passenger_id);
+        END IF;
+    END IF;
+    
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+-- Создаем триггеры только если их еще нет
+DO $$ 
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_trigger WHERE tgname = 'trg_trips_daily_stats'
+    ) THEN
+        CREATE TRIGGER trg_trips_daily_stats
+        AFTER INSERT OR DELETE OR UPDATE OF status ON public.trips
+        FOR EACH ROW EXECUTE FUNCTION fn_trips_daily_stats();
+    END IF;
+    
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_trigger WHERE tgname = 'trg_bookings_daily_stats'
+    ) THEN
+        CREATE TRIGGER trg_bookings_daily_stats
+        AFTER INSERT OR DELETE OR UPDATE OF status, price ON public.bookings
+        FOR EACH ROW EXECUTE FUNCTION fn_bookings_daily_stats();
+    END IF;
+END $$;
+
 -- ============================================================================
 -- 7. ПРЕДСТАВЛЕНИЯ (VIEWS)
 -- ============================================================================
@@ -0,0 +1,151 @@
+-- Миграция: срок удержания мест PENDING бронирований
+-- create_booking и create_bookings_batch принимают срок удержания, expire_booking_holds отменяет
+-- просроченные удержания пакетом и возвращает места
+
+ALTER TABLE public.bookings ADD COLUMN IF NOT EXISTS hold_expires_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_bookings_pending_hold ON public.bookings(hold_expires_at) WHERE status = 'PENDING';
+
+-- Уже существующие ожидающие бронирования получают срок по умолчанию (booking.hold-minutes) от момента создания
+UPDATE public.bookings
+SET hold_expires_at = created_at + INTERVAL '30 minutes'
+WHERE status = 'PENDING' AND hold_expires_at IS NULL;
+
+-- Функция создания бронирования: новый параметр меняет сигнатуру, поэтому старая удаляется
+DROP FUNCTION IF EXISTS public.create_booking(BIGINT, BIGINT, NUMERIC, VARCHAR, INTEGER);
+CREATE OR REPLACE FUNCTION public.create_booking(
+    p_trip_id BIGINT,
+    p_passenger_id BIGINT,
+    p_price NUMERIC(10,2),
+    p_payment_method VARCHAR(50),
+    p_seats INTEGER DEFAULT 1,
+    p_hold_expires_at TIMESTAMP DEFAULT NULL
+) RETURNS BIGINT AS $$
+DECLARE
+    v_booking_id BIGINT;
+    v_seats INTEGER;
+BEGIN
+    -- Убеждаемся, что seats не NULL
+    IF p_seats IS NULL OR p_seats < 1 THEN
+        v_seats := 1;
+    ELSE
+        v_seats := p_seats;
+    END IF;
+    
+    -- Атомарное условное списание мест: UPDATE блокирует строку поездки и перепроверяет
+    -- условие после ожидания блокировки, поэтому параллельные бронирования не продают места дважды
+    UPDATE public.trips
+    SET available_seats = available_seats - v_seats, updated_at = NOW()
+    WHERE id = p_trip_id AND status = 'SCHEDULED' AND available_seats >= v_seats;
+    
+    IF NOT FOUND THEN
+        IF NOT EXISTS (
+            SELECT 1 FROM public.trips WHERE id = p_trip_id AND status = 'SCHEDULED'
+        ) THEN
+            RAISE EXCEPTION 'Поездка не найдена или уже началась';
+        END IF;
+        RAISE EXCEPTION 'Недостаточно свободных мест' USING ERRCODE = 'check_violation';
+    END IF;
+    
+    -- Создание бронирования
+    INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at,
+                                 hold_expires_at)
+    VALUES (p_trip_id, p_passenger_id, 'PENDING', p_price, p_payment_method::public.booking_payment_method, v_seats, NOW(), NOW(),
+            p_hold_expires_at)
+    RETURNING id INTO v_booking_id;
+    
+    RETURN v_booking_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного бронирования: все бронирования пакета получают один срок удержания
+DROP FUNCTION IF EXISTS public.create_bookings_batch(BIGINT, JSONB);
+CREATE OR REPLACE FUNCTION public.create_bookings_batch(
+    p_passenger_id BIGINT,
+    p_items JSONB,
+    p_hold_expires_at TIMESTAMP DEFAULT NULL
+) RETURNS TABLE (
+    item_index INTEGER,
+    trip_id BIGINT,
+    booking_id BIGINT,
+    seats INTEGER,
+    available_seats INTEGER,
+    error TEXT
+) AS $$
+BEGIN
+    -- Одинаковый порядок блокировок исключает взаимоблокировку параллельных пакетов
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.id IN (SELECT (x->>'trip_id')::BIGINT FROM jsonb_array_elements(p_items) x)
+    ORDER BY t.id
+    FOR UPDATE;
+
+    IF EXISTS (
+        SELECT 1 FROM public.validate_booking_batch(p_passenger_id, p_items) v WHERE v.error IS NOT NULL
+    ) THEN
+        RETURN QUERY
+        SELECT v.item_index, v.trip_id, NULL::BIGINT, v.seats, NULL::INTEGER, v.error
+        FROM public.validate_booking_batch(p_passenger_id, p_items) v;
+        RETURN;
+    END IF;
+
+    RETURN QUERY
+    WITH items AS (
+        SELECT * FROM public.validate_booking_batch(p_passenger_id, p_items)
+    ),
+    reserved AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats - i.seats, updated_at = NOW()
+        FROM items i
+        WHERE t.id = i.trip_id
+        RETURNING t.id, t.available_seats
+    ),
+    created AS (
+        INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at,
+                                     hold_expires_at)
+        SELECT i.trip_id, p_passenger_id, 'PENDING', i.price, i.payment_method::public.booking_payment_method,
+               i.seats, NOW(), NOW(), p_hold_expires_at
+        FROM items i
+        ORDER BY i.item_index
+        RETURNING id, bookings.trip_id
+    )
+    SELECT i.item_index, i.trip_id, c.id, i.seats, r.available_seats, NULL::TEXT
+    FROM items i
+    JOIN created c ON c.trip_id = i.trip_id
+    JOIN reserved r ON r.id = i.trip_id
+    ORDER BY i.item_index;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного истечения удержаний: PENDING бронирования из списка с истекшим сроком удержания
+-- отменяются, места возвращаются поездкам. Условия перепроверяются, поэтому подтвержденные
+-- и отмененные к этому моменту бронирования пропускаются. Возвращает итоговые места затронутых поездок
+CREATE OR REPLACE FUNCTION public.expire_booking_holds(
+    p_booking_ids BIGINT[],
+    p_now TIMESTAMP
+) RETURNS TABLE (
+    trip_id BIGINT,
+    available_seats INTEGER,
+    expired_bookings INTEGER
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH expired AS (
+        UPDATE public.bookings b
+        SET status = 'CANCELLED', updated_at = NOW()
+        WHERE b.id = ANY(p_booking_ids) AND b.status = 'PENDING' AND b.hold_expires_at <= p_now
+        RETURNING b.trip_id, COALESCE(b.seats, 1) AS seats
+    ),
+    released AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats + r.seats, updated_at = NOW()
+        FROM (
+            SELECT e.trip_id, SUM(e.seats)::INTEGER AS seats, COUNT(*)::INTEGER AS bookings
+            FROM expired e
+            GROUP BY e.trip_id
+        ) r
+        WHERE t.id = r.trip_id
+        RETURNING t.id, t.available_seats, r.bookings
+    )
+    SELECT r.id, r.available_seats, r.bookings FROM released r ORDER BY r.id;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,139 @@
+-- Миграция: шаблоны регулярных поездок
+-- generate_template_trips создает поездки по шаблонам одним INSERT, sync_template_trips переносит
+-- изменения шаблона на будущие поездки без бронирований
+
+CREATE TABLE IF NOT EXISTS public.trip_templates (
+    id BIGSERIAL PRIMARY KEY,
+    driver_id BIGINT NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    from_building_id BIGINT NOT NULL REFERENCES public.buildings(id),
+    to_building_id BIGINT NOT NULL REFERENCES public.buildings(id),
+    days_of_week INTEGER NOT NULL CHECK (days_of_week BETWEEN 1 AND 127),
+    departure_time TIME NOT NULL,
+    max_passengers INTEGER NOT NULL,
+    price NUMERIC(10,2) NOT NULL,
+    description TEXT,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_trip_templates_driver_id ON public.trip_templates(driver_id);
+
+ALTER TABLE public.trips ADD COLUMN IF NOT EXISTS template_id BIGINT REFERENCES public.trip_templates(id) ON DELETE SET NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_trips_template_day ON public.trips(template_id, (CAST(departure_time AS DATE)))
+    WHERE template_id IS NOT NULL;
+
+-- Функция генерации поездок по шаблонам: для активных шаблонов из списка (NULL - все активные) одним INSERT
+-- создает поездки на дни недели шаблона в диапазоне дат. Дни, на которые поездка шаблона уже есть
+-- (в том числе отмененная водителем), пропускаются по уникальному индексу, поэтому повторный вызов безопасен.
+-- Возвращает созданные поездки
+CREATE OR REPLACE FUNCTION public.generate_template_trips(
+    p_template_ids BIGINT[],
+    p_from DATE,
+    p_until DATE
+) RETURNS TABLE (
+    trip_id BIGINT,
+    departure_time TIMESTAMP
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH created AS (
+        INSERT INTO public.trips AS t (driver_id, from_building_id, to_building_id, departure_time,
+                                       max_passengers, available_seats, price, status, description,
+                                       template_id, created_at, updated_at)
+        SELECT tt.driver_id, tt.from_building_id, tt.to_building_id, d.day + tt.departure_time,
+               tt.max_passengers, tt.max_passengers, tt.price, 'SCHEDULED', tt.description,
+               tt.id, NOW(), NOW()
+        FROM public.trip_templates tt
+        CROSS JOIN LATERAL generate_series(p_from::TIMESTAMP, p_until::TIMESTAMP, INTERVAL '1 day') AS d(day)
+        WHERE tt.active
+          AND (p_template_ids IS NULL OR tt.id = ANY(p_template_ids))
+          -- Бит 0 маски - понедельник (ISODOW = 1), бит 6 - воскресенье
+          AND (tt.days_of_week & (1 << (EXTRACT(ISODOW FROM d.day)::INTEGER - 1))) <> 0
+          AND d.day + tt.departure_time > NOW()
+        ON CONFLICT DO NOTHING
+        RETURNING t.id, t.departure_time
+    )
+    SELECT c.id, c.departure_time FROM created c ORDER BY c.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция переноса изменений шаблона на будущие поездки без активных бронирований. Поездки на дни,
+-- оставшиеся в шаблоне, получают новые время, маршрут, места и цену; поездки на исключенные дни
+-- (для неактивного шаблона - на все дни) удаляются, а если у них есть история бронирований - отменяются.
+-- Места пересчитываются относительно текущих, поэтому бронирование, успевшее списать места, не теряется.
+-- Возвращает затронутые поездки и действие: UPDATED, DELETED или CANCELLED
+CREATE OR REPLACE FUNCTION public.sync_template_trips(
+    p_template_id BIGINT
+) RETURNS TABLE (
+    trip_id BIGINT,
+    action TEXT
+) AS $$
+BEGIN
+    -- Сначала блокируются будущие поездки шаблона. Бронирование списывает места UPDATE строки поездки,
+    -- поэтому после блокировки новых бронирований на них не появится, а следующий запрос со своим снимком
+    -- видит все бронирования, закоммиченные до блокировки. В одном запросе проверка бронирований
+    -- выполнялась бы по снимку до ожидания блокировки и пропустила бы параллельное бронирование
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.template_id = p_template_id
+      AND t.status = 'SCHEDULED'
+      AND t.departure_time > NOW()
+    ORDER BY t.id
+    FOR UPDATE;
+
+    RETURN QUERY
+    WITH candidates AS (
+        SELECT t.id, CAST(t.departure_time AS DATE) AS day,
+               EXISTS (SELECT 1 FROM public.bookings b WHERE b.trip_id = t.id) AS has_bookings
+        FROM public.trips t
+        WHERE t.template_id = p_template_id
+          AND t.status = 'SCHEDULED'
+          AND t.departure_time > NOW()
+          AND NOT EXISTS (
+              SELECT 1 FROM public.bookings b
+              WHERE b.trip_id = t.id AND b.status IN ('PENDING', 'CONFIRMED')
+          )
+        FOR UPDATE OF t
+    ),
+    planned AS (
+        SELECT c.id, c.has_bookings, c.day + tt.departure_time AS departure,
+               tt.active AND (tt.days_of_week & (1 << (EXTRACT(ISODOW FROM c.day)::INTEGER - 1))) <> 0 AS keep
+        FROM candidates c
+        CROSS JOIN public.trip_templates tt
+        WHERE tt.id = p_template_id
+    ),
+    updated AS (
+        UPDATE public.trips t
+        SET from_building_id = tt.from_building_id,
+            to_building_id = tt.to_building_id,
+            departure_time = p.departure,
+            available_seats = GREATEST(t.available_seats + tt.max_passengers - t.max_passengers, 0),
+            max_passengers = tt.max_passengers,
+            price = tt.price,
+            description = tt.description,
+            updated_at = NOW()
+        FROM planned p, public.trip_templates tt
+        -- Новое время сегодняшней поездки может оказаться в прошлом: такая поездка не меняется
+        WHERE t.id = p.id AND tt.id = p_template_id AND p.keep AND p.departure > NOW()
+        RETURNING t.id
+    ),
+    deleted AS (
+        DELETE FROM public.trips t
+        USING planned p
+        WHERE t.id = p.id AND NOT p.keep AND NOT p.has_bookings
+        RETURNING t.id
+    ),
+    cancelled AS (
+        UPDATE public.trips t
+        SET status = 'CANCELLED', updated_at = NOW()
+        FROM planned p
+        WHERE t.id = p.id AND NOT p.keep AND p.has_bookings
+        RETURNING t.id
+    )
+    SELECT u.id, 'UPDATED'::TEXT FROM updated u
+    UNION ALL
+    SELECT d.id, 'DELETED'::TEXT FROM deleted d
+    UNION ALL
+    SELECT c.id, 'CANCELLED'::TEXT FROM cancelled c;
+END;
+$$ LANGUAGE plpgsql;
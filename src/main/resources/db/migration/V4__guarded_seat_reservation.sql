@@ -0,0 +1,73 @@
+-- Миграция: атомарное резервирование мест
+-- create_booking списывает места одним условным UPDATE вместо SELECT + UPDATE,
+-- cancel_booking возвращает места для PENDING и CONFIRMED бронирований и не допускает повторной отмены
+
+-- Функция создания бронирования
+CREATE OR REPLACE FUNCTION public.create_booking(
+    p_trip_id BIGINT,
+    p_passenger_id BIGINT,
+    p_price NUMERIC(10,2),
+    p_payment_method VARCHAR(50),
+    p_seats INTEGER DEFAULT 1
+) RETURNS BIGINT AS $$
+DECLARE
+    v_booking_id BIGINT;
+    v_seats INTEGER;
+BEGIN
+    -- Убеждаемся, что seats не NULL
+    IF p_seats IS NULL OR p_seats < 1 THEN
+        v_seats := 1;
+    ELSE
+        v_seats := p_seats;
+    END IF;
+    
+    -- Атомарное условное списание мест: UPDATE блокирует строку поездки и перепроверяет
+    -- условие после ожидания блокировки, поэтому параллельные бронирования не продают места дважды
+    UPDATE public.trips
+    SET available_seats = available_seats - v_seats, updated_at = NOW()
+    WHERE id = p_trip_id AND status = 'SCHEDULED' AND available_seats >= v_seats;
+    
+    IF NOT FOUND THEN
+        IF NOT EXISTS (
+            SELECT 1 FROM public.trips WHERE id = p_trip_id AND status = 'SCHEDULED'
+        ) THEN
+            RAISE EXCEPTION 'Поездка не найдена или уже началась';
+        END IF;
+        RAISE EXCEPTION 'Недостаточно свободных мест' USING ERRCODE = 'check_violation';
+    END IF;
+    
+    -- Создание бронирования
+    INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at)
+    VALUES (p_trip_id, p_passenger_id, 'PENDING', p_price, p_payment_method::public.booking_payment_method, v_seats, NOW(), NOW())
+    RETURNING id INTO v_booking_id;
+    
+    RETURN v_booking_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция отмены бронирования
+CREATE OR REPLACE FUNCTION public.cancel_booking(
+    p_booking_id BIGINT
+) RETURNS BOOLEAN AS $$
+DECLARE
+    v_trip_id BIGINT;
+    v_seats INTEGER;
+BEGIN
+    -- Отменяем только активное бронирование: повторная отмена не возвращает места второй раз
+    UPDATE public.bookings
+    SET status = 'CANCELLED', updated_at = NOW()
+    WHERE id = p_booking_id AND status IN ('PENDING', 'CONFIRMED')
+    RETURNING trip_id, seats INTO v_trip_id, v_seats;
+    
+    IF v_trip_id IS NULL THEN
+        RETURN FALSE;
+    END IF;
+    
+    -- Места списываются уже при создании бронирования (PENDING), поэтому возвращаем их в любом случае
+    UPDATE public.trips
+    SET available_seats = available_seats + COALESCE(v_seats, 1), updated_at = NOW()
+    WHERE id = v_trip_id;
+    
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,160 @@
+-- Миграция: проекция статистики пассажиров user_stats
+-- Таблица поддерживается триггером на bookings в той же транзакции, что и переходы состояний бронирований,
+-- поэтому /api/users/profile/statistics читает одну строку по первичному ключу
+
+-- Проекция статистики пассажира (поддерживается триггером на bookings)
+CREATE TABLE IF NOT EXISTS public.user_stats (
+    user_id BIGINT PRIMARY KEY REFERENCES public.users(id) ON DELETE CASCADE,
+    total_bookings BIGINT NOT NULL DEFAULT 0,
+    completed_bookings BIGINT NOT NULL DEFAULT 0,
+    cancelled_bookings BIGINT NOT NULL DEFAULT 0,
+    total_spent NUMERIC(12,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Функция применения приращений к статистике пассажира
+CREATE OR REPLACE FUNCTION public.apply_user_stats_delta(
+    p_user_id BIGINT,
+    p_total BIGINT,
+    p_completed BIGINT,
+    p_cancelled BIGINT,
+    p_spent NUMERIC
+) RETURNS VOID AS $$
+BEGIN
+    INSERT INTO public.user_stats (user_id, total_bookings, completed_bookings, cancelled_bookings, total_spent, updated_at)
+    VALUES (p_user_id, p_total, p_completed, p_cancelled, p_spent, NOW())
+    ON CONFLICT (user_id) DO UPDATE
+    SET total_bookings = public.user_stats.total_bookings + EXCLUDED.total_bookings,
+        completed_bookings = public.user_stats.completed_bookings + EXCLUDED.completed_bookings,
+        cancelled_bookings = public.user_stats.cancelled_bookings + EXCLUDED.cancelled_bookings,
+        total_spent = public.user_stats.total_spent + EXCLUDED.total_spent,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция полного пересчета статистики пассажиров (для одного пользователя или для всех)
+CREATE OR REPLACE FUNCTION public.rebuild_user_stats(
+    p_user_id BIGINT DEFAULT NULL
+) RETURNS INTEGER AS $$
+DECLARE
+    v_count INTEGER;
+BEGIN
+    -- Блокировка не дает триггеру применить приращение между удалением и пересчетом
+    LOCK TABLE public.user_stats IN SHARE ROW EXCLUSIVE MODE;
+    
+    DELETE FROM public.user_stats
+    WHERE p_user_id IS NULL OR user_id = p_user_id;
+    
+    INSERT INTO public.user_stats (user_id, total_bookings, completed_bookings, cancelled_bookings, total_spent, updated_at)
+    SELECT b.passenger_id,
+           COUNT(*),
+           COUNT(*) FILTER (WHERE b.status = 'COMPLETED'),
+           COUNT(*) FILTER (WHERE b.status = 'CANCELLED'),
+           COALESCE(SUM(b.price) FILTER (WHERE b.status = 'COMPLETED'), 0),
+           NOW()
+    FROM public.bookings b
+    WHERE p_user_id IS NULL OR b.passenger_id = p_user_id
+    GROUP BY b.passenger_id;
+    
+    GET DIAGNOSTICS v_count = ROW_COUNT;
+    RETURN v_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция проверки согласованности статистики пассажиров с таблицей bookings
+CREATE OR REPLACE FUNCTION public.check_user_stats()
+RETURNS TABLE(
+    user_id BIGINT,
+    expected_total BIGINT,
+    actual_total BIGINT,
+    expected_completed BIGINT,
+    actual_completed BIGINT,
+    expected_cancelled BIGINT,
+    actual_cancelled BIGINT,
+    expected_spent NUMERIC,
+    actual_spent NUMERIC
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH expected AS (
+        SELECT b.passenger_id AS user_id,
+               COUNT(*)::BIGINT AS total,
+               COUNT(*) FILTER (WHERE b.status = 'COMPLETED')::BIGINT AS completed,
+               COUNT(*) FILTER (WHERE b.status = 'CANCELLED')::BIGINT AS cancelled,
+               COALESCE(SUM(b.price) FILTER (WHERE b.status = 'COMPLETED'), 0)::NUMERIC AS spent
+        FROM public.bookings b
+        GROUP BY b.passenger_id
+    )
+    SELECT COALESCE(e.user_id, s.user_id),
+           COALESCE(e.total, 0), COALESCE(s.total_bookings, 0),
+           COALESCE(e.completed, 0), COALESCE(s.completed_bookings, 0),
+           COALESCE(e.cancelled, 0), COALESCE(s.cancelled_bookings, 0),
+           COALESCE(e.spent, 0), COALESCE(s.total_spent, 0)::NUMERIC
+    FROM expected e
+    FULL JOIN public.user_stats s ON s.user_id = e.user_id
+    WHERE COALESCE(e.total, 0) <> COALESCE(s.total_bookings, 0)
+       OR COALESCE(e.completed, 0) <> COALESCE(s.completed_bookings, 0)
+       OR COALESCE(e.cancelled, 0) <> COALESCE(s.cancelled_bookings, 0)
+       OR COALESCE(e.spent, 0) <> COALESCE(s.total_spent, 0);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Триггер поддержки статистики пассажиров: каждое изменение бронирования
+-- (create_booking, cancel_booking, complete_trip, cancel_trip и т.д.) применяется в той же транзакции
+CREATE OR REPLACE FUNCTION fn_bookings_user_stats()
+RETURNS trigger LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        IF TG_OP = 'DELETE' THEN
+            -- При каскадном удалении пользователя строку статистики не создаем заново
+            UPDATE public.user_stats
+            SET total_bookings = total_bookings - 1,
+                completed_bookings = completed_bookings - (OLD.status = 'COMPLETED')::INTEGER,
+                cancelled_bookings = cancelled_bookings - (OLD.status = 'CANCELLED')::INTEGER,
+                total_spent = total_spent - CASE WHEN OLD.status = 'COMPLETED' THEN OLD.price ELSE 0 END,
+                updated_at = NOW()
+            WHERE user_id = OLD.passenger_id;
+            RETURN OLD;
+        END IF;
+        
+        IF NEW.status IS NOT DISTINCT FROM OLD.status
+           AND NEW.price IS NOT DISTINCT FROM OLD.price
+           AND NEW.passenger_id IS NOT DISTINCT FROM OLD.passenger_id THEN
+            RETURN NEW;
+        END IF;
+        
+        PERFORM public.apply_user_stats_delta(
+            OLD.passenger_id,
+            -1,
+            -(OLD.status = 'COMPLETED')::INTEGER,
+            -(OLD.status = 'CANCELLED')::INTEGER,
+            -CASE WHEN OLD.status = 'COMPLETED' THEN OLD.price ELSE 0 END
+        );
+    END IF;
+    
+    PERFORM public.apply_user_stats_delta(
+        NEW.passenger_id,
+        1,
+        (NEW.status = 'COMPLETED')::INTEGER,
+        (NEW.status = 'CANCELLED')::INTEGER,
+        CASE WHEN NEW.status = 'COMPLETED' THEN NEW.price ELSE 0 END
+    );
+    RETURN NEW;
+END;
+$$;
+
+-- Создаем триггер только если его еще нет
+DO $$ 
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_trigger WHERE tgname = 'trg_bookings_user_stats'
+    ) THEN
+        CREATE TRIGGER trg_bookings_user_stats
+        AFTER INSERT OR DELETE OR UPDATE OF status, price, passenger_id ON public.bookings
+        FOR EACH ROW EXECUTE FUNCTION fn_bookings_user_stats();
+    END IF;
+END $$;
+
+-- Заполняем проекцию по существующим бронированиям
+SELECT public.rebuild_user_stats();
@@ -0,0 +1,242 @@
+-- Миграция: дневная сводка trip_daily_stats для статистики администратора
+-- get_trip_statistics больше не соединяет все поездки с бронированиями, а суммирует строки сводки за период
+
+-- Дневная сводка по поездкам для статистики администратора (поддерживается триггерами на trips и bookings).
+-- Поездка относится к дню DATE(created_at) и к строке дня slot = id поездки % 16: создание поездок за один
+-- день распределяется по 16 строкам, а не ждет блокировки одной. passenger_sketch - битовая карта
+-- линейного счетчика уникальных пассажиров завершенных бронирований, объединяется через BIT_OR
+CREATE TABLE IF NOT EXISTS public.trip_daily_stats (
+    stat_date DATE NOT NULL,
+    slot SMALLINT NOT NULL,
+    total_trips BIGINT NOT NULL DEFAULT 0,
+    completed_trips BIGINT NOT NULL DEFAULT 0,
+    total_revenue NUMERIC(14,2) NOT NULL DEFAULT 0,
+    passenger_sketch BIT(16384) NOT NULL DEFAULT B'0'::BIT(16384),
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (stat_date, slot)
+);
+
+-- Функция получения бита пассажира в битовой карте дневной сводки
+CREATE OR REPLACE FUNCTION public.passenger_sketch_bit(
+    p_passenger_id BIGINT
+) RETURNS BIT(16384) AS $$
+    SELECT set_bit(B'0'::BIT(16384), hashint8(p_passenger_id) & 16383, 1)::BIT(16384);
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Функция оценки числа уникальных пассажиров по битовой карте (линейный счетчик)
+CREATE OR REPLACE FUNCTION public.estimate_passenger_count(
+    p_sketch BIT(16384)
+) RETURNS BIGINT AS $$
+DECLARE
+    v_size CONSTANT INTEGER := 16384;
+    v_empty BIGINT;
+BEGIN
+    IF p_sketch IS NULL THEN
+        RETURN 0;
+    END IF;
+    
+    v_empty := v_size - bit_count(p_sketch);
+    IF v_empty = 0 THEN
+        -- Карта заполнена: возвращаем оценку для одного свободного бита
+        v_empty := 1;
+    END IF;
+    
+    RETURN ROUND(-v_size * LN(v_empty::NUMERIC / v_size))::BIGINT;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Функция номера строки дневной сводки для поездки
+CREATE OR REPLACE FUNCTION public.trip_daily_stats_slot(
+    p_trip_id BIGINT
+) RETURNS SMALLINT AS $$
+    SELECT (p_trip_id % 16)::SMALLINT;
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Функция применения приращений к строке дневной сводки, к которой относится поездка
+CREATE OR REPLACE FUNCTION public.apply_trip_daily_stats_delta(
+    p_stat_date DATE,
+    p_trip_id BIGINT,
+    p_total_trips BIGINT,
+    p_completed_trips BIGINT,
+    p_revenue NUMERIC,
+    p_passenger_id BIGINT DEFAULT NULL
+) RETURNS VOID AS $$
+DECLARE
+    v_sketch BIT(16384) := B'0'::BIT(16384);
+BEGIN
+    IF p_passenger_id IS NOT NULL THEN
+        v_sketch := public.passenger_sketch_bit(p_passenger_id);
+    END IF;
+    
+    INSERT INTO public.trip_daily_stats (stat_date, slot, total_trips, completed_trips, total_revenue,
+                                         passenger_sketch, updated_at)
+    VALUES (p_stat_date, public.trip_daily_stats_slot(p_trip_id), p_total_trips, p_completed_trips, p_revenue,
+            v_sketch, NOW())
+    ON CONFLICT (stat_date, slot) DO UPDATE
+    SET total_trips = public.trip_daily_stats.total_trips + EXCLUDED.total_trips,
+        completed_trips = public.trip_daily_stats.completed_trips + EXCLUDED.completed_trips,
+        total_revenue = public.trip_daily_stats.total_revenue + EXCLUDED.total_revenue,
+        passenger_sketch = public.trip_daily_stats.passenger_sketch | EXCLUDED.passenger_sketch,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пересчета дневной сводки по поездкам за период (без границ - за всю историю).
+-- Нужна после удаления завершенных бронирований: битовая карта не поддерживает вычитание
+CREATE OR REPLACE FUNCTION public.rebuild_trip_daily_stats(
+    p_start_date DATE DEFAULT NULL,
+    p_end_date DATE DEFAULT NULL
+) RETURNS INTEGER AS $$
+DECLARE
+    v_count INTEGER;
+BEGIN
+    -- Блокировка не дает триггерам применить приращение между удалением и пересчетом
+    LOCK TABLE public.trip_daily_stats IN SHARE ROW EXCLUSIVE MODE;
+    
+    DELETE FROM public.trip_daily_stats
+    WHERE (p_start_date IS NULL OR stat_date >= p_start_date)
+      AND (p_end_date IS NULL OR stat_date <= p_end_date);
+    
+    INSERT INTO public.trip_daily_stats (stat_date, slot, total_trips, completed_trips, total_revenue,
+                                         passenger_sketch, updated_at)
+    SELECT d.stat_date,
+           d.slot,
+           d.total_trips,
+           d.completed_trips,
+           COALESCE(p.total_revenue, 0),
+           COALESCE(p.passenger_sketch, B'0'::BIT(16384)),
+           NOW()
+    FROM (
+        SELECT DATE(t.created_at) AS stat_date,
+               public.trip_daily_stats_slot(t.id) AS slot,
+               COUNT(*) AS total_trips,
+               COUNT(*) FILTER (WHERE t.status = 'COMPLETED') AS completed_trips
+        FROM public.trips t
+        WHERE (p_start_date IS NULL OR t.created_at >= p_start_date)
+          AND (p_end_date IS NULL OR t.created_at < p_end_date + 1)
+        GROUP BY 1, 2
+    ) d
+    LEFT JOIN (
+        SELECT DATE(t.created_at) AS stat_date,
+               public.trip_daily_stats_slot(t.id) AS slot,
+               SUM(b.price) AS total_revenue,
+               BIT_OR(public.passenger_sketch_bit(b.passenger_id)) AS passenger_sketch
+        FROM public.trips t
+        JOIN public.bookings b ON b.trip_id = t.id
+        WHERE b.status = 'COMPLETED'
+          AND (p_start_date IS NULL OR t.created_at >= p_start_date)
+          AND (p_end_date IS NULL OR t.created_at < p_end_date + 1)
+        GROUP BY 1, 2
+    ) p ON p.stat_date = d.stat_date AND p.slot = d.slot;
+    
+    GET DIAGNOSTICS v_count = ROW_COUNT;
+    RETURN v_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция получения статистики поездок (суммирует строки дневной сводки trip_daily_stats по всем slot)
+CREATE OR REPLACE FUNCTION public.get_trip_statistics(
+    p_start_date DATE DEFAULT NULL,
+    p_end_date DATE DEFAULT NULL
+) RETURNS TABLE(
+    total_trips BIGINT,
+    completed_trips BIGINT,
+    total_passengers BIGINT,
+    total_revenue NUMERIC
+) AS $$
+BEGIN
+    RETURN QUERY
+    SELECT 
+        COALESCE(SUM(s.total_trips), 0)::BIGINT as total_trips,
+        COALESCE(SUM(s.completed_trips), 0)::BIGINT as completed_trips,
+        public.estimate_passenger_count(BIT_OR(s.passenger_sketch)) as total_passengers,
+        COALESCE(SUM(s.total_revenue), 0)::NUMERIC as total_revenue
+    FROM public.trip_daily_stats s
+    WHERE (p_start_date IS NULL OR s.stat_date >= p_start_date)
+      AND (p_end_date IS NULL OR s.stat_date <= p_end_date);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Триггеры поддержки дневной сводки по поездкам
+CREATE OR REPLACE FUNCTION fn_trips_daily_stats()
+RETURNS trigger LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM public.apply_trip_daily_stats_delta(
+            DATE(NEW.created_at), NEW.id, 1, (NEW.status = 'COMPLETED')::INTEGER, 0
+        );
+        RETURN NEW;
+    ELSIF TG_OP = 'DELETE' THEN
+        PERFORM public.apply_trip_daily_stats_delta(
+            DATE(OLD.created_at), OLD.id, -1, -(OLD.status = 'COMPLETED')::INTEGER, 0
+        );
+        RETURN OLD;
+    END IF;
+    
+    -- Переходы, не затрагивающие COMPLETED (SCHEDULED -> IN_PROGRESS, отмена), сводку не меняют:
+    -- без этой проверки каждый из них блокировал бы общую строку дня
+    IF (NEW.status = 'COMPLETED') IS DISTINCT FROM (OLD.status = 'COMPLETED') THEN
+        PERFORM public.apply_trip_daily_stats_delta(
+            DATE(NEW.created_at),
+            NEW.id,
+            0,
+            (NEW.status = 'COMPLETED')::INTEGER - (OLD.status = 'COMPLETED')::INTEGER,
+            0
+        );
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION fn_bookings_daily_stats()
+RETURNS trigger LANGUAGE plpgsql AS
+$$
+DECLARE
+    v_stat_date DATE;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 'COMPLETED' THEN
+        -- При каскадном удалении поездки ее строка уже недоступна: сводку исправляет rebuild_trip_daily_stats
+        SELECT DATE(created_at) INTO v_stat_date FROM public.trips WHERE id = OLD.trip_id;
+        IF FOUND THEN
+            PERFORM public.apply_trip_daily_stats_delta(v_stat_date, OLD.trip_id, 0, 0, -OLD.price);
+        END IF;
+    END IF;
+    
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 'COMPLETED' THEN
+        SELECT DATE(created_at) INTO v_stat_date FROM public.trips WHERE id = NEW.trip_id;
+        IF FOUND THEN
+            PERFORM public.apply_trip_daily_stats_delta(v_stat_date, NEW.trip_id, 0, 0, NEW.price,
+                                                       NEW.passenger_id);
+        END IF;
+    END IF;
+    
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+-- Создаем триггеры только если их еще нет
+DO $$ 
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_trigger WHERE tgname = 'trg_trips_daily_stats'
+    ) THEN
+        CREATE TRIGGER trg_trips_daily_stats
+        AFTER INSERT OR DELETE OR UPDATE OF status ON public.trips
+        FOR EACH ROW EXECUTE FUNCTION fn_trips_daily_stats();
+    END IF;
+    
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_trigger WHERE tgname = 'trg_bookings_daily_stats'
+    ) THEN
+        CREATE TRIGGER trg_bookings_daily_stats
+        AFTER INSERT OR DELETE OR UPDATE OF status, price ON public.bookings
+        FOR EACH ROW EXECUTE FUNCTION fn_bookings_daily_stats();
+    END IF;
+END $$;
+
+-- Заполняем сводку по существующим поездкам
+SELECT public.rebuild_trip_daily_stats();
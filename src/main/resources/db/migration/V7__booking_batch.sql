@@ -0,0 +1,108 @@
+-- Миграция: пакетное бронирование
+-- validate_booking_batch проверяет пакет целиком, create_bookings_batch бронирует все элементы
+-- одним UPDATE и одним INSERT или не бронирует ни один
+
+-- Функция проверки пакета бронирований: по строке результата на каждый элемент пакета,
+-- error заполнен, если элемент не может быть забронирован
+CREATE OR REPLACE FUNCTION public.validate_booking_batch(
+    p_passenger_id BIGINT,
+    p_items JSONB
+) RETURNS TABLE (
+    item_index INTEGER,
+    trip_id BIGINT,
+    seats INTEGER,
+    payment_method TEXT,
+    price NUMERIC(10,2),
+    error TEXT
+) AS $$
+    WITH items AS (
+        SELECT (e.ordinality - 1)::INTEGER AS item_index,
+               (e.item->>'trip_id')::BIGINT AS trip_id,
+               GREATEST(COALESCE((e.item->>'seats')::INTEGER, 1), 1) AS seats,
+               e.item->>'payment_method' AS payment_method
+        FROM jsonb_array_elements(p_items) WITH ORDINALITY AS e(item, ordinality)
+    ),
+    checked AS (
+        SELECT i.item_index,
+               i.trip_id,
+               i.seats,
+               i.payment_method,
+               t.price * i.seats AS price,
+               CASE
+                   WHEN t.id IS NULL THEN 'Поездка не найдена'
+                   WHEN t.status <> 'SCHEDULED' THEN 'Невозможно забронировать место в поездке, которая уже началась'
+                   WHEN t.driver_id = p_passenger_id THEN 'Водитель не может забронировать место в своей поездке'
+                   WHEN i.payment_method IS NULL OR i.payment_method NOT IN ('CARD', 'CASH') THEN 'Некорректный способ оплаты'
+                   WHEN COUNT(*) OVER (PARTITION BY i.trip_id) > 1 THEN 'Поездка повторяется в пакете'
+                   WHEN EXISTS (
+                       SELECT 1 FROM public.bookings b
+                       WHERE b.trip_id = i.trip_id AND b.passenger_id = p_passenger_id
+                   ) THEN 'Вы уже забронировали место в этой поездке'
+                   WHEN t.available_seats < i.seats THEN 'Недостаточно свободных мест'
+               END AS error
+        FROM items i
+        LEFT JOIN public.trips t ON t.id = i.trip_id
+    )
+    SELECT item_index, trip_id, seats, payment_method, price, error
+    FROM checked
+    ORDER BY item_index;
+$$ LANGUAGE sql STABLE;
+
+-- Функция пакетного бронирования: все элементы бронируются в одной транзакции или ни один.
+-- Строки поездок блокируются в порядке id, затем пакет проверяется целиком; при любой ошибке
+-- возвращаются результаты проверки без изменений, иначе места списываются одним UPDATE,
+-- а бронирования создаются одним INSERT
+CREATE OR REPLACE FUNCTION public.create_bookings_batch(
+    p_passenger_id BIGINT,
+    p_items JSONB
+) RETURNS TABLE (
+    item_index INTEGER,
+    trip_id BIGINT,
+    booking_id BIGINT,
+    seats INTEGER,
+    available_seats INTEGER,
+    error TEXT
+) AS $$
+BEGIN
+    -- Одинаковый порядок блокировок исключает взаимоблокировку параллельных пакетов
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.id IN (SELECT (x->>'trip_id')::BIGINT FROM jsonb_array_elements(p_items) x)
+    ORDER BY t.id
+    FOR UPDATE;
+
+    IF EXISTS (
+        SELECT 1 FROM public.validate_booking_batch(p_passenger_id, p_items) v WHERE v.error IS NOT NULL
+    ) THEN
+        RETURN QUERY
+        SELECT v.item_index, v.trip_id, NULL::BIGINT, v.seats, NULL::INTEGER, v.error
+        FROM public.validate_booking_batch(p_passenger_id, p_items) v;
+        RETURN;
+    END IF;
+
+    RETURN QUERY
+    WITH items AS (
+        SELECT * FROM public.validate_booking_batch(p_passenger_id, p_items)
+    ),
+    reserved AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats - i.seats, updated_at = NOW()
+        FROM items i
+        WHERE t.id = i.trip_id
+        RETURNING t.id, t.available_seats
+    ),
+    created AS (
+        INSERT INTO public.bookings (trip_id, passenger_id, status, price, payment_method, seats, created_at, updated_at)
+        SELECT i.trip_id, p_passenger_id, 'PENDING', i.price, i.payment_method::public.booking_payment_method,
+               i.seats, NOW(), NOW()
+        FROM items i
+        ORDER BY i.item_index
+        RETURNING id, bookings.trip_id
+    )
+    SELECT i.item_index, i.trip_id, c.id, i.seats, r.available_seats, NULL::TEXT
+    FROM items i
+    JOIN created c ON c.trip_id = i.trip_id
+    JOIN reserved r ON r.id = i.trip_id
+    ORDER BY i.item_index;
+END;
+$$ LANGUAGE plpgsql;
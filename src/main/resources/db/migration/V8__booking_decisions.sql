@@ -0,0 +1,72 @@
+-- Миграция: пакетное подтверждение и отмена бронирований поездки водителем
+
+-- Функция пакетного решения водителя по бронированиям поездки: подтверждение и отмена списков
+-- бронирований одним оператором. Бронирования других поездок и в неподходящем статусе пропускаются
+-- (applied = FALSE). Возвращает строку на каждое бронирование из запроса и итоговые места поездки.
+CREATE OR REPLACE FUNCTION public.decide_bookings(
+    p_trip_id BIGINT,
+    p_confirm_ids BIGINT[],
+    p_cancel_ids BIGINT[]
+) RETURNS TABLE (
+    booking_id BIGINT,
+    decision TEXT,
+    applied BOOLEAN,
+    status TEXT,
+    available_seats INTEGER,
+    confirmed_seats INTEGER,
+    pending_seats INTEGER
+) AS $$
+DECLARE
+    v_applied BIGINT[];
+BEGIN
+    IF COALESCE(p_confirm_ids, '{}') && COALESCE(p_cancel_ids, '{}') THEN
+        RAISE EXCEPTION 'Бронирование не может быть одновременно подтверждено и отменено';
+    END IF;
+
+    -- Обе операции и возврат мест выполняются одним оператором. Подзапрос с изменением
+    -- данных (released) выполняется, даже если на него нет ссылок
+    WITH confirmed AS (
+        UPDATE public.bookings b
+        SET status = 'CONFIRMED', updated_at = NOW()
+        WHERE b.trip_id = p_trip_id AND b.id = ANY(p_confirm_ids) AND b.status = 'PENDING'
+        RETURNING b.id
+    ),
+    cancelled AS (
+        UPDATE public.bookings b
+        SET status = 'CANCELLED', updated_at = NOW()
+        WHERE b.trip_id = p_trip_id AND b.id = ANY(p_cancel_ids) AND b.status IN ('PENDING', 'CONFIRMED')
+        RETURNING b.id, COALESCE(b.seats, 1) AS seats
+    ),
+    released AS (
+        UPDATE public.trips t
+        SET available_seats = t.available_seats + (SELECT SUM(c.seats) FROM cancelled c), updated_at = NOW()
+        WHERE t.id = p_trip_id AND EXISTS (SELECT 1 FROM cancelled)
+    )
+    SELECT array_agg(a.id) INTO v_applied
+    FROM (
+        SELECT c.id FROM confirmed c
+        UNION ALL
+        SELECT c.id FROM cancelled c
+    ) a;
+
+    RETURN QUERY
+    WITH requested AS (
+        SELECT x.id, 'CONFIRM'::TEXT AS decision FROM unnest(p_confirm_ids) AS x(id)
+        UNION
+        SELECT x.id, 'CANCEL'::TEXT FROM unnest(p_cancel_ids) AS x(id)
+    ),
+    seats AS (
+        SELECT COALESCE(SUM(COALESCE(b.seats, 1)) FILTER (WHERE b.status = 'CONFIRMED'), 0)::INTEGER AS confirmed_seats,
+               COALESCE(SUM(COALESCE(b.seats, 1)) FILTER (WHERE b.status = 'PENDING'), 0)::INTEGER AS pending_seats
+        FROM public.bookings b
+        WHERE b.trip_id = p_trip_id
+    )
+    SELECT r.id, r.decision, r.id = ANY(COALESCE(v_applied, '{}')), b.status::TEXT,
+           t.available_seats, s.confirmed_seats, s.pending_seats
+    FROM requested r
+    CROSS JOIN seats s
+    LEFT JOIN public.trips t ON t.id = p_trip_id
+    LEFT JOIN public.bookings b ON b.id = r.id AND b.trip_id = p_trip_id
+    ORDER BY r.id;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,87 @@
+-- Миграция: пакетное истечение и автозавершение поездок планировщиком жизненного цикла
+
+-- Функция пакетного истечения поездок: запланированные поездки из списка, время отправления которых
+-- не позже p_departed_before, отменяются, их бронирования отменяются, а места возвращаются.
+-- Условия перепроверяются, поэтому устаревшие id (поездка уже начата или перенесена) пропускаются
+CREATE OR REPLACE FUNCTION public.expire_trips(
+    p_trip_ids BIGINT[],
+    p_departed_before TIMESTAMP
+) RETURNS TABLE (
+    trip_id BIGINT
+) AS $$
+BEGIN
+    -- Сначала поездки блокируются по порядку id, как в create_bookings_batch. Следующий запрос берет новый
+    -- снимок и видит бронирования, закоммиченные до блокировки, поэтому их места возвращаются, а сами
+    -- они отменяются. В одном запросе сумма мест считалась бы по снимку до ожидания блокировки строки поездки
+    PERFORM 1
+    FROM public.trips t
+    WHERE t.id = ANY(p_trip_ids) AND t.status = 'SCHEDULED'
+    ORDER BY t.id
+    FOR UPDATE;
+
+    RETURN QUERY
+    WITH expired AS (
+        UPDATE public.trips t
+        SET status = 'CANCELLED',
+            available_seats = t.available_seats + (
+                SELECT COALESCE(SUM(COALESCE(b.seats, 1)), 0)
+                FROM public.bookings b
+                WHERE b.trip_id = t.id AND b.status IN ('PENDING', 'CONFIRMED')
+            ),
+            updated_at = NOW()
+        WHERE t.id = ANY(p_trip_ids) AND t.status = 'SCHEDULED' AND t.departure_time <= p_departed_before
+        RETURNING t.id
+    ),
+    released AS (
+        UPDATE public.bookings b
+        SET status = 'CANCELLED', updated_at = NOW()
+        FROM expired e
+        WHERE b.trip_id = e.id AND b.status IN ('PENDING', 'CONFIRMED')
+    )
+    SELECT e.id FROM expired e ORDER BY e.id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Функция пакетного завершения брошенных поездок: поездки в процессе, начатые не позже p_started_before,
+-- завершаются так же, как complete_trip, но одним оператором для всего списка
+CREATE OR REPLACE FUNCTION public.auto_complete_trips(
+    p_trip_ids BIGINT[],
+    p_started_before TIMESTAMP
+) RETURNS TABLE (
+    trip_id BIGINT,
+    from_building_id BIGINT,
+    to_building_id BIGINT
+) AS $$
+BEGIN
+    RETURN QUERY
+    WITH completed AS (
+        UPDATE public.trips t
+        SET status = 'COMPLETED', finished_at = NOW(), updated_at = NOW()
+        WHERE t.id = ANY(p_trip_ids) AND t.status = 'IN_PROGRESS' AND t.started_at <= p_started_before
+        RETURNING t.id, t.driver_id, t.from_building_id, t.to_building_id
+    ),
+    finished AS (
+        UPDATE public.bookings b
+        SET status = 'COMPLETED', updated_at = NOW()
+        FROM completed c
+        WHERE b.trip_id = c.id AND b.status IN ('CONFIRMED', 'PENDING')
+        RETURNING b.passenger_id
+    ),
+    -- Счетчик поездок водителя и пассажиров, как в complete_trip
+    counted AS (
+        UPDATE public.users u
+        SET total_trips = u.total_trips + p.trips, updated_at = NOW()
+        FROM (
+            SELECT x.user_id, COUNT(*) AS trips
+            FROM (
+                SELECT c.driver_id AS user_id FROM completed c
+                UNION ALL
+                SELECT f.passenger_id FROM finished f
+            ) x
+            GROUP BY x.user_id
+        ) p
+        WHERE u.id = p.user_id
+    )
+    SELECT c.id, c.from_building_id, c.to_building_id FROM completed c ORDER BY c.id;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,246 @@
+package ru.itmo.itdrive.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Число SQL запросов на один запрос к API. Текущий пользователь берется из токена и кэша прав,
+// поэтому запрос не должен обращаться к users; рост числа запросов - признак N+1 или лишнего чтения.
+// Запросы считает статистика Hibernate (в том числе нативные и вызовы PL/PGSQL функций)
+// на встроенном PostgreSQL со схемой create_database.sql
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN",
+        "password.bcrypt.cost=4",
+        "trip-lifecycle.enabled=false"
+})
+@AutoConfigureMockMvc
+class RequestStatementCountTest {
+
+    private static final String PASSWORD = "password";
+    private static final EmbeddedPostgres POSTGRES = startDatabase();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.druid.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.druid.username", () -> "postgres");
+        registry.add("spring.datasource.druid.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        POSTGRES.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void createBooking() throws Exception {
+        Session passenger = login("booker@test.itdrive");
+        long tripId = tripId();
+
+        // Поездка и проверка повторного бронирования, списание мест и вставка (create_booking),
+        // бронирование и поездка для ответа, перечитывание мест для индекса после коммита
+        assertThat(countStatements(post("/api/bookings")
+                        .header(HttpHeaders.AUTHORIZATION, passenger.bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                Map.of("tripId", tripId, "paymentMethod", "CARD", "seats", 1))),
+                status().isCreated()))
+                .isEqualTo(6);
+    }
+
+    @Test
+    void passengerBookings() throws Exception {
+        Session passenger = login("passenger@test.itdrive");
+
+        // Бронирования и одним запросом их поездки: у пассажира две поездки, N+1 дал бы три запроса
+        assertThat(countStatements(get("/api/bookings/passenger/" + passenger.userId())
+                        .header(HttpHeaders.AUTHORIZATION, passenger.bearer()),
+                status().isOk()))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void tripBookings() throws Exception {
+        Session driver = login("driver@test.itdrive");
+
+        // Бронирования и поездка для ответа и проверки водителя
+        assertThat(countStatements(get("/api/bookings/trip/" + tripId())
+                        .header(HttpHeaders.AUTHORIZATION, driver.bearer()),
+                status().isOk()))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void driverTrips() throws Exception {
+        Session driver = login("driver@test.itdrive");
+
+        assertThat(countStatements(get("/api/trips/driver/" + driver.userId())
+                        .header(HttpHeaders.AUTHORIZATION, driver.bearer()),
+                status().isOk()))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void trip() throws Exception {
+        Session passenger = login("passenger@test.itdrive");
+
+        assertThat(countStatements(get("/api/trips/" + tripId())
+                        .header(HttpHeaders.AUTHORIZATION, passenger.bearer()),
+                status().isOk()))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void searchTrips() throws Exception {
+        Session passenger = login("passenger@test.itdrive");
+
+        // Поиск выполняется по индексу в памяти
+        assertThat(countStatements(get("/api/trips")
+                        .header(HttpHeaders.AUTHORIZATION, passenger.bearer()),
+                status().isOk()))
+                .isZero();
+    }
+
+    @Test
+    void searchTripsWithInvertedRange() throws Exception {
+        Session passenger = login("passenger@test.itdrive");
+
+        // Начало интервала позже конца: пустой список, как у поиска в БД, а не 400
+        assertThat(countStatements(get("/api/trips")
+                        .param("departureTimeFrom", "2030-01-02T00:00:00")
+                        .param("departureTimeTo", "2030-01-01T00:00:00")
+                        .header(HttpHeaders.AUTHORIZATION, passenger.bearer()),
+                ResultMatcher.matchAll(status().isOk(), content().json("[]"))))
+                .isZero();
+    }
+
+    @Test
+    void buildings() throws Exception {
+        Session passenger = login("passenger@test.itdrive");
+
+        assertThat(countStatements(get("/api/buildings")
+                        .header(HttpHeaders.AUTHORIZATION, passenger.bearer()),
+                status().isOk()))
+                .isZero();
+    }
+
+    private long countStatements(MockHttpServletRequestBuilder request, ResultMatcher expectedStatus) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(expectedStatus);
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Вход и первый запрос, который загружает права пользователя в кэш: замеры идут на прогретом кэше
+    private Session login(String email) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("email", email, "password", PASSWORD))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        JsonNode response = objectMapper.readTree(body);
+        Session session = new Session(response.get("userId").asLong(), "Bearer " + response.get("token").asText());
+        mockMvc.perform(get("/api/buildings").header(HttpHeaders.AUTHORIZATION, session.bearer()))
+                .andExpect(status().isOk());
+        return session;
+    }
+
+    private long tripId() throws Exception {
+        String body = mockMvc.perform(get("/api/trips").header(HttpHeaders.AUTHORIZATION,
+                        login("passenger@test.itdrive").bearer()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return objectMapper.readTree(body).get(0).get("id").asLong();
+    }
+
+    // Данные засеиваются до запуска контекста: индекс поиска строится при старте из того, что уже лежит в БД
+    private static EmbeddedPostgres startDatabase() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(Files.readString(Path.of("src/main/resources/db/create_database.sql")));
+                String hash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+                statement.execute("""
+                        INSERT INTO public.users (email, password, first_name, last_name, role, created_at, updated_at)
+                        VALUES ('driver@test.itdrive', '%1$s', 'Водитель', 'Тестовый', 'DRIVER', NOW(), NOW()),
+                               ('passenger@test.itdrive', '%1$s', 'Пассажир', 'Тестовый', 'PASSENGER', NOW(), NOW()),
+                               ('booker@test.itdrive', '%1$s', 'Пассажир', 'Бронирующий', 'PASSENGER', NOW(), NOW())
+                        """.formatted(hash));
+                statement.execute("""
+                        INSERT INTO public.buildings (name, address, latitude, longitude)
+                        VALUES ('Тестовый корпус 1', 'Адрес 1', 59.9570, 30.3080),
+                               ('Тестовый корпус 2', 'Адрес 2', 59.9720, 30.3240)
+                        """);
+                statement.execute("""
+                        INSERT INTO public.trips (driver_id, from_building_id, to_building_id, departure_time,
+                                                  max_passengers, available_seats, price, status, created_at, updated_at)
+                        SELECT (SELECT id FROM public.users WHERE email = 'driver@test.itdrive'),
+                               (SELECT MIN(id) FROM public.buildings), (SELECT MAX(id) FROM public.buildings),
+                               NOW() + d * INTERVAL '1 day', 4, 4, 150, 'SCHEDULED', NOW(), NOW()
+                        FROM generate_series(1, 2) AS d
+                        """);
+                statement.execute("""
+                        SELECT public.create_booking(t.id,
+                            (SELECT id FROM public.users WHERE email = 'passenger@test.itdrive'),
+                            150, 'CARD', 1)
+                        FROM public.trips t
+                        """);
+            }
+            return postgres;
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("Не удалось подготовить встроенный PostgreSQL", e);
+        }
+    }
+
+    private record Session(long userId, String bearer) {
+    }
+}